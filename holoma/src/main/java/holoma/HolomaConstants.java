@@ -3,6 +3,8 @@ package holoma;
 import java.util.HashMap;
 import java.util.Map;
 
+import tools.io.StreamingWriter;
+
 /**
  * Manages all constants which are relevant for HolOMa.
  * @author max
@@ -16,6 +18,18 @@ public abstract class HolomaConstants {
 	/** Where to print or where to get the set of vertices of the graph. */
 	public static final String VERTEX_FILE_LOC = "./src/main/resources/vertices.csv";
 	
+	/** Where to print or where to get the dictionary from vertex ID to URI. */
+	public static final String DICTIONARY_FILE_LOC = "./src/main/resources/dictionary.csv";
+	
+	/** Where to print or where to get the binary snapshot of the parsed graph. */
+	public static final String SNAPSHOT_FILE_LOC = "./src/main/resources/graph.snapshot";
+	
+	/** Where to print or where to get the assignment of vertices to connected components. */
+	public static final String CONNCOMP_ASSIGNMENT_FILE_LOC = "./src/main/resources/connCompAssignment.csv";
+	
+	/** Where to print the IDs of the connected components which have been changed by new mapping files. */
+	public static final String CHANGED_CONNCOMP_FILE_LOC = "./src/main/resources/changedConnComponents.csv";
+	
 	/** Where to print the connected components. */
 	public static final String CONNCOMP_FILE_LOC = "./src/main/resources/connectedComponents.csv";
 	
@@ -25,6 +39,23 @@ public abstract class HolomaConstants {
 	/** Where to print the analysis of the connected components. */
 	public static final String ANALYSIS_PPR_FILE_LOC = "./src/main/resources/analysis_PPR.txt";
 	
+	/** Size in bytes of the buffer of the large output files. */
+	public static final int OUTPUT_BUFFER_BYTES = 1 << 20;
+	
+	/** Iff 'true', the buffers of the large output files are written by a background thread. */
+	public static final boolean IS_ASYNC_OUTPUT = true;
+	
+	/** Format of the connected components: StreamingWriter.PLAIN, GZIP (suffix ".gz")
+	 *  or BINARY (suffix ".bin", vertex IDs instead of URLs). */
+	public static final int CONNCOMP_OUTPUT_FORMAT = StreamingWriter.PLAIN;
+	
+	/** Format of the pagerank vectors: StreamingWriter.PLAIN prints them into the analysis
+	 *  file ANALYSIS_PPR_FILE_LOC, GZIP and BINARY into PPR_VECTOR_FILE_LOC. */
+	public static final int PPR_VECTOR_OUTPUT_FORMAT = StreamingWriter.PLAIN;
+	
+	/** Where to print the pagerank vectors, unless PPR_VECTOR_OUTPUT_FORMAT is StreamingWriter.PLAIN. */
+	public static final String PPR_VECTOR_FILE_LOC = "./src/main/resources/prVectors";
+	
 	
 	/** Path of the ontology and mapping files. */
 	public static final String PATH = "./src/main/resources/ont/";
@@ -34,6 +65,11 @@ public abstract class HolomaConstants {
 	public static final String MAPPING_FILE_COLOR = "mapping_color.csv"; // for testing
 	
 	
+	/** Names of new mapping files (same path as ontology files) which are applied to the
+	 *  persisted connected components iff IS_INCREMENTAL_CONNCOMP is 'true'. */
+	public static final String[] NEW_MAPPING_FILES = {};
+	
+	
 	/** Names of the ontology files. */
 	public static final String[] ONTOLOGY_FILES = {
 		"RXNORM.ttljsonLD.json",
@@ -55,6 +91,23 @@ public abstract class HolomaConstants {
 	};
 	
 	
+	/** The ontology files are parsed token by token iff 'true'.
+	 *  Otherwise each file is read completely into one JSON object before parsing. */
+	public static final boolean IS_STREAMING_PARSER = true;
+	
+	/** The ontology files and the mapping file are parsed concurrently iff 'true'. */
+	public static final boolean IS_PARALLEL_PARSING = true;
+	
+	/** Maximum number of files which are parsed at the same time. */
+	public static final int PARSING_PARALLELISM = Runtime.getRuntime().availableProcessors();
+	
+	/** Number of threads which read splits of the mapping file; 1 reads it sequentially. */
+	public static final int MAPPING_PARALLELISM = Runtime.getRuntime().availableProcessors();
+	
+	/** The parsed graph is saved as a binary snapshot and loaded by the next run iff 'true'.
+	 *  A snapshot is only loaded if the ontology and mapping files have not changed. */
+	public static final boolean IS_USING_SNAPSHOT = true;
+
 	/** Specifies whether the preprocessor is optimistic: 'true' for optimistic, 'false' for pessimistic.
 	 * An optimistic preprocessor adds missing edges' vertices to the set of all vertices.
 	 * A pessimistic preprocessor deletes all edges where at least on vertex is not part of the set of all vertices. 
@@ -68,12 +121,46 @@ public abstract class HolomaConstants {
 	/** Valid edges and vertices are printed iff 'true'. */
 	public static final boolean IS_PRINTING_VALID_EDGVERT = false;
 	
+	/** The workflow runs on in-memory CSR graphs iff 'true'; otherwise it runs on Flink Gelly.
+	 *  The local engine is meant for graphs which fit into the memory of one machine. */
+	public static final boolean IS_LOCAL_ENGINE = false;
+	
+	/** Iff 'true', the connected components persisted by the last run are updated by the
+	 *  same-as edges of NEW_MAPPING_FILES instead of parsing and calculating everything again. */
+	public static final boolean IS_INCREMENTAL_CONNCOMP = false;
+	
 	/** Maximum number of iteration steps for connected components. */
 	public static final int MAX_ITER = 10;
 	
+	/** Connected components by Gelly's label propagation (MAX_ITER supersteps). */
+	public static final int CONNCOMP_FIXED_ITERATIONS = 0;
+	
+	/** Connected components by label propagation which iterates until no component ID changes
+	 *  (at most MAX_ITER_CONVERGENT_CONNCOMP supersteps). */
+	public static final int CONNCOMP_CONVERGENT = 1;
+	
+	/** Connected components by union-find in one pass over the same-as edges. */
+	public static final int CONNCOMP_UNION_FIND = 2;
+	
+	/** Method of connected components of the Flink engine. */
+	public static final int CONNCOMP_METHOD = CONNCOMP_UNION_FIND;
+	
+	/** Hard cap of supersteps of the convergence-driven connected components; Integer.MAX_VALUE means no cap. */
+	public static final int MAX_ITER_CONVERGENT_CONNCOMP = Integer.MAX_VALUE;
+	
+	/** Number of threads for union-find; a value greater than one selects the concurrent variant. */
+	public static final int CONNCOMP_PARALLELISM = Runtime.getRuntime().availableProcessors();
+	
 	/** Singletons of connected components are eliminated iff 'true'. */
 	public static final boolean NO_SINGLETON_CONNCOMP = true;
 	
+	/** Iff 'true', components are enriched by a breadth-first search on an adjacency index which is
+	 *  built once over the graph; otherwise each hop filters all edges of the graph. */
+	public static final boolean IS_INDEXED_ENRICHMENT = true;
+	
+	/** Iff 'true', all components of critical size are enriched together in one Flink job. */
+	public static final boolean IS_BATCHED_ENRICHMENT = true;
+	
 	/** Depth of the enrichment of connected components. */
 	public static final int ENR_DEPTH = 3;
 	
@@ -96,8 +183,55 @@ public abstract class HolomaConstants {
 	/** Teleportation probability. */
 	public static final float TELEPORT_PROB = 0.15f;
 	
+	/** Iff 'true', the pagerank of all sources of a component is calculated in one iteration
+	 *  (each vertex carries one value per source); otherwise one iteration per source. */
+	public static final boolean IS_MULTI_SOURCE_PPR = true;
+	
+	/** Personalized pagerank by power iteration (MAX_ITER_PPR supersteps). */
+	public static final int PPR_POWER_ITERATION = 0;
+	
+	/** Approximate personalized pagerank by forward push (see PUSH_RESIDUAL_THRESHOLD). */
+	public static final int PPR_FORWARD_PUSH = 1;
+	
+	/** Approximate personalized pagerank by Monte Carlo random walks (see MC_NUM_WALKS). */
+	public static final int PPR_MONTE_CARLO = 2;
+	
+	/** Method of personalized pagerank of the local engine. */
+	public static final int LOCAL_PPR_METHOD = PPR_POWER_ITERATION;
+	
+	/** Residual threshold per outgoing edge of forward push; the smaller, the more accurate. */
+	public static final float PUSH_RESIDUAL_THRESHOLD = 0.0001f;
+	
+	/** Number of random walks per source of the Monte Carlo method. */
+	public static final int MC_NUM_WALKS = 10000;
+	
+	/** Confidence of the bound of the Monte Carlo estimates. */
+	public static final float MC_CONFIDENCE = 0.95f;
+	
+	/** Number of threads of the Monte Carlo method. */
+	public static final int MC_PARALLELISM = Runtime.getRuntime().availableProcessors();
+	
+	/** Number of targets with the highest pagerank which are kept per source; 0 keeps all targets. */
+	public static final int PPR_TOP_K = 0;
+	
+	/** Iff 'true', PPR_TOP_K targets are kept per source and target ontology. */
+	public static final boolean IS_TOP_K_PER_ONTOLOGY = false;
+	
+	/** Number of best true friends per source which are printed by the evaluation; 0 prints none. */
+	public static final int NUM_TOP_FRIENDS = 0;
+	
+	/** Number of threads of the evaluation of the pagerank vectors. */
+	public static final int PPR_EVAL_PARALLELISM = Runtime.getRuntime().availableProcessors();
+	
+	/** Number of sources whose pagerank is calculated together by the local engine. */
+	public static final int PPR_BLOCK_SIZE = 64;
+	
 	/** Maximum number of iteration steps for personalized pagerank. */
 	public static final int MAX_ITER_PPR = 10;
 	
+	/** The pagerank iteration stops as soon as the L1 change of the pagerank vectors
+	 *  within a superstep is below this value; 0 disables the check. */
+	public static final float PPR_CONVERGENCE_EPSILON = 0.0001f;
+	
 
 }
@@ -1,4 +1,6 @@
 package holoma;
+import java.io.IOException;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -7,6 +9,7 @@ import java.util.Set;
 import org.apache.commons.lang.time.StopWatch;
 import org.apache.flink.api.java.ExecutionEnvironment;
 import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.graph.Edge;
 import org.apache.flink.graph.Graph;
 import org.apache.flink.graph.Vertex;
 import org.apache.log4j.Logger;
@@ -15,12 +18,25 @@ import holoma.complexDatatypes.EdgeValue;
 import holoma.complexDatatypes.VertexValue;
 import holoma.connComp.ConnCompCalculation;
 import holoma.connComp.ConnCompEnrichment;
+import holoma.connComp.IncrementalConnCompCalculation;
+import holoma.connComp.LocalConnCompCalculation;
+import holoma.connComp.LocalConnCompEnrichment;
+import holoma.graph.CsrGraph;
+import holoma.graph.CsrSubgraph;
 import holoma.graph.GraphCreationPoint;
 import holoma.graph.GraphVisualisation;
+import holoma.parsing.ParsingPoint;
+import holoma.parsing.UriDictionary;
+import holoma.ppr.FriendEvaluation;
+import holoma.ppr.LocalPersonalizedPageRank;
+import holoma.ppr.MonteCarloPersonalizedPageRank;
 import holoma.ppr.PersonalizedPageRank;
 import holoma.ppr.PPREvaluation;
+import holoma.ppr.PushPersonalizedPageRank;
+import holoma.ppr.TopKPageRanks;
 import tools.io.InputFromConsole;
 import tools.io.OutputToFile;
+import tools.io.StreamingWriter;
 
 /**
  * This class manages the overall workflow 
@@ -52,11 +68,17 @@ public class HolomaProcessControl {
 		System.out.println("Properties:");
 		System.out.println("edge file location:            "+HolomaConstants.EDGE_FILE_LOC);
 		System.out.println("vertex file location:          "+HolomaConstants.VERTEX_FILE_LOC);
-		System.out.println("connected components location: "+HolomaConstants.CONNCOMP_FILE_LOC);
+		System.out.println("connected components location: "+
+				StreamingWriter.getPath(HolomaConstants.CONNCOMP_FILE_LOC, HolomaConstants.CONNCOMP_OUTPUT_FORMAT));
 		System.out.println("analysis of conn comp location:"+HolomaConstants.ANALYSIS_CC_FILE_LOC);
+		System.out.println("streaming parser:              "+HolomaConstants.IS_STREAMING_PARSER);
+		System.out.println("parallel parsing:              "+HolomaConstants.IS_PARALLEL_PARSING);
 		System.out.println("optimistic preprocessor:       "+HolomaConstants.IS_OPTIM_PREPR);
 		System.out.println("printing invalid edges:        "+HolomaConstants.IS_PRINTING_INVALID_EDG);
 		System.out.println("printing valid edges/ vertices:"+HolomaConstants.IS_PRINTING_VALID_EDGVERT);
+		System.out.println("local engine:                  "+HolomaConstants.IS_LOCAL_ENGINE);
+		System.out.println("conn. components method:       "+getConnCompMethodName());
+		System.out.println("incremental conn. components:  "+HolomaConstants.IS_INCREMENTAL_CONNCOMP);
 		System.out.println("max. iterations:               "+HolomaConstants.MAX_ITER);
 		System.out.println("no singleton components:       "+HolomaConstants.NO_SINGLETON_CONNCOMP);
 		System.out.println("-------------------------------------------------------------\n");
@@ -65,11 +87,28 @@ public class HolomaProcessControl {
 		
 		OutputToFile log = new OutputToFile(1, "./holoma_log.txt"); log.addToBuff("start time: "+System.currentTimeMillis());
 		
+		if (HolomaConstants.IS_INCREMENTAL_CONNCOMP) {
+			runIncrementalConnComp(log);
+			log.close();
+			printTime();
+			System.out.println("\n--- End ---");
+			return;
+		}
+		
+		if (HolomaConstants.IS_LOCAL_ENGINE) {
+			runLocalEngine(log);
+			log.close();
+			printTime();
+			System.out.println("\n--- End ---");
+			return;
+		}
+		
 		// #1: Creating the graph
 		log.addToBuff("#1 Creating the graph");
 		GraphCreationPoint creation = new GraphCreationPoint(ENV);
-		Graph<String, String, Integer> graph = null;
+		Graph<Long, String, Integer> graph = null;
 		graph = creation.getGraphFromOntologyFiles(); log.addToBuff("  load graph from ontology files");
+		UriDictionary dictionary = creation.getDictionary();
 		
 		try {
 			log.addToBuff("  #edges: "+graph.numberOfEdges()+"\n  #nodes: "+graph.numberOfVertices());
@@ -85,6 +124,7 @@ public class HolomaProcessControl {
 			}
 			if (c=='e') {
 				graph = creation.getGraphFromEdgeVertexFile(); log.addToBuff(" load graph from existing edege, vertex files");
+				dictionary = creation.getDictionary();
 				break;
 			}
 		}
@@ -93,7 +133,7 @@ public class HolomaProcessControl {
 		log.addToBuff("#2 Calculating connected components");
 		log.addToBuff("  time before: "+System.currentTimeMillis());
 		ConnCompCalculation connCompCalc = new ConnCompCalculation(graph);
-		Map<Long, Set<String>> connCompts = connCompCalc.calculateConnComp_naive(); 		
+		Map<Long, Set<Long>> connCompts = connCompCalc.calculateConnComp_naive(); 		
 		if (connCompts==null || connCompts.size()==0) {
 			log.addToBuff("No connected components.");
 			System.out.println("\n--- End ---");
@@ -101,33 +141,54 @@ public class HolomaProcessControl {
 		}		
 		// save connected components
 		log.addToBuff("  time after:  "+System.currentTimeMillis());
-		log.addToBuff("  printing connected components to "+HolomaConstants.CONNCOMP_FILE_LOC+" ... ");
-		GraphVisualisation.printConnectedComponents(connCompts);
+		log.addToBuff("  printing connected components to "+
+				StreamingWriter.getPath(HolomaConstants.CONNCOMP_FILE_LOC, HolomaConstants.CONNCOMP_OUTPUT_FORMAT)+" ... ");
+		printConnComp(connCompts, dictionary);
 		
 		// #3: Analyzing connected components
 		log.addToBuff("\nAnalysing connected components ... ");
-		String analysisResult = connCompCalc.analyseConnComponents();
 		OutputToFile out = new OutputToFile(100, HolomaConstants.ANALYSIS_CC_FILE_LOC);
-		out.addToBuff(analysisResult); out.close();	
+		try {
+			connCompCalc.analyseConnComponents(out);
+			ConnCompCalculation.analyseIdCollisions(connCompts, dictionary, out);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		out.close();
 		log.addToBuff("  printing analysis of connected components to "+HolomaConstants.ANALYSIS_CC_FILE_LOC);
 		
 		
 		// #4: Determine PageRank
 		log.addToBuff("\nDetermine PageRank ... ");
 		log.addToBuff("  time: "+System.currentTimeMillis());
-		out = new OutputToFile(100, HolomaConstants.ANALYSIS_PPR_FILE_LOC);
+		out = new OutputToFile(HolomaConstants.ANALYSIS_PPR_FILE_LOC, HolomaConstants.OUTPUT_BUFFER_BYTES, HolomaConstants.IS_ASYNC_OUTPUT);
 		out.addToBuff("  depth: "+HolomaConstants.ENR_DEPTH+
 				", #Iter: "+HolomaConstants.MAX_ITER_PPR+
+				", epsilon: "+HolomaConstants.PPR_CONVERGENCE_EPSILON+
 				", teleportProb: "+HolomaConstants.TELEPORT_PROB);
 		
+		// the enrichment is shared by all components (its adjacency index is built once)
+		ConnCompEnrichment enr = 
+				new ConnCompEnrichment(HolomaConstants.ENR_DEPTH, graph, HolomaConstants.MAP_WEIGHT, ENV);
+		// enrich all components of critical size at once
+		Map<Long, Graph<Long, VertexValue, EdgeValue>> enrConnComps = null;
+		if (HolomaConstants.IS_BATCHED_ENRICHMENT) {
+			log.addToBuff("  enrich components of critical size in one job");
+			log.addToBuff("  time before: "+System.currentTimeMillis());
+			try {
+				enrConnComps = enr.getEnrichedConnComps(selectCriticalConnComp(connCompts)).collect(ENV);
+			} catch (Exception e) {
+				System.err.println("Exception during enrichment of connected components.");
+				e.printStackTrace();
+			}
+			log.addToBuff("  time after:  "+System.currentTimeMillis());
+		}
 		int numComp = 0;
 		// iterate over each connected component
 		for (long key : connCompts.keySet()) {
 			log.addToBuff("\n  connected component with id "+key);
-			ConnCompEnrichment enr = 
-					new ConnCompEnrichment(HolomaConstants.ENR_DEPTH, graph, HolomaConstants.MAP_WEIGHT, ENV);
 			PersonalizedPageRank pageRank = new PersonalizedPageRank();
-			Set<String> connComp = connCompts.get(key);
+			Set<Long> connComp = connCompts.get(key);
 			int connComptSize = connComp.size();
 			// check whether component has critical size
 			if (connComptSize >= HolomaConstants.MIN_CC_SIZE && connComptSize <= HolomaConstants.MAX_CC_SIZE) {
@@ -135,10 +196,11 @@ public class HolomaProcessControl {
 				// #4.1: get enriched connected component
 				log.addToBuff("  #4.1: get enriched connected component");
 				log.addToBuff("  time before: "+System.currentTimeMillis());
-				Graph<String, VertexValue, EdgeValue> enrConnComp = enr.getEnrichedConnComp(connComp);
+				Graph<Long, VertexValue, EdgeValue> enrConnComp = (enrConnComps != null) ?
+						enrConnComps.get(key) : enr.getEnrichedConnComp(connComp);
 				log.addToBuff("  time after:  "+System.currentTimeMillis());
 				out.addToBuff("\n--------\nenriched component (id:"+key+"):");
-				out.addToBuff(GraphVisualisation.showEdgesVertices(enrConnComp));
+				GraphVisualisation.appendEdgesVertices(out, enrConnComp, dictionary);
 				try {
 					log.addToBuff("  #edges: "+enrConnComp.numberOfEdges()+"\n  #nodes: "+enrConnComp.numberOfVertices());
 				} catch (Exception e1) {
@@ -151,30 +213,31 @@ public class HolomaProcessControl {
 					log.addToBuff("  time before: "+System.currentTimeMillis());
 					pageRank.setEnrConnComp(enrConnComp);
 					pageRank.start();
-					Map<String, List<Vertex<String, VertexValue>>> prVectors = pageRank.getMapCalcPageRanks();
+					Map<Long, List<Vertex<Long, VertexValue>>> prVectors = pageRank.getMapCalcPageRanks();
 					log.addToBuff("  time after: "+System.currentTimeMillis());
+					printIterations(out, pageRank.getMapIterations(), dictionary);
 					
 					// #4.3: evaluate the page-ranked component
 					log.addToBuff("  #4.3: evaluate the page-ranked component");
 					log.addToBuff("  time before: "+System.currentTimeMillis());
 					PPREvaluation pprEval = new PPREvaluation(enrConnComp, prVectors);
-					out.addToBuff(pprEval.getPrVectorsAsString());
-					Map<String, Float> statistMeans = pprEval.getStatistMeans();
+					out.addToBuff(pprEval.getPrVectorsAsString(dictionary));
+					Map<Long, Float> statistMeans = pprEval.getStatistMeans();
 					out.addToBuff("\nstatistic means:");
-					for (String source : statistMeans.keySet()) {
-						out.addToBuff("  source: "+source+" \t page rank mean: "+statistMeans.get(source));
+					for (long source : statistMeans.keySet()) {
+						out.addToBuff("  source: "+dictionary.decode(source)+" \t page rank mean: "+statistMeans.get(source));
 					}
-					Map<String, Set<Tuple2<String, VertexValue>>> bestFriends = pprEval.getTrueBestFriends();
+					Map<Long, Set<Tuple2<Long, VertexValue>>> bestFriends = pprEval.getTrueBestFriends();
 					out.addToBuff("\nbest friends:");
-					for (String src : bestFriends.keySet()) {
-						for (Tuple2<String, VertexValue> trg : bestFriends.get(src))
-							out.addToBuff("  src: "+src+" \t trg: "+trg.f0+" \t "+trg.f1);
+					for (long src : bestFriends.keySet()) {
+						for (Tuple2<Long, VertexValue> trg : bestFriends.get(src))
+							out.addToBuff("  src: "+dictionary.decode(src)+" \t trg: "+dictionary.decode(trg.f0)+" \t "+trg.f1);
 					}
-					Map<String, Set<Tuple2<String, VertexValue>>> worstFriends = pprEval.getWorstFriends();
+					Map<Long, Set<Tuple2<Long, VertexValue>>> worstFriends = pprEval.getWorstFriends();
 					out.addToBuff("\nworst friends:");
-					for (String src : worstFriends.keySet()) {
-						for (Tuple2<String, VertexValue> trg : worstFriends.get(src))
-							out.addToBuff("  src: "+src+" \t trg: "+trg.f0+" \t "+trg.f1);
+					for (long src : worstFriends.keySet()) {
+						for (Tuple2<Long, VertexValue> trg : worstFriends.get(src))
+							out.addToBuff("  src: "+dictionary.decode(src)+" \t trg: "+dictionary.decode(trg.f0)+" \t "+trg.f1);
 					}
 					log.addToBuff("  time after:  "+System.currentTimeMillis());
 				} catch (Exception e) {
@@ -200,6 +263,312 @@ public class HolomaProcessControl {
 	
 	
 	
+	/**
+	 * Selects the components of critical size, at most <code>NUM_CC</code>,
+	 * in the order in which the workflow evaluates them.
+	 * @param connCompts Map from component ID to its set of vertex IDs.
+	 * @return Map from component ID to its set of vertex IDs.
+	 */
+	private static Map<Long, Set<Long>> selectCriticalConnComp (Map<Long, Set<Long>> connCompts) {
+		Map<Long, Set<Long>> selected = new HashMap<Long, Set<Long>>();
+		for (long key : connCompts.keySet()) {
+			int connComptSize = connCompts.get(key).size();
+			if (connComptSize >= HolomaConstants.MIN_CC_SIZE && connComptSize <= HolomaConstants.MAX_CC_SIZE)
+				selected.put(key, connCompts.get(key));
+			if (selected.size() >= HolomaConstants.NUM_CC) break;
+		}
+		return selected;
+	}
+	
+	
+	
+	
+	
+	//############### local engine #####################################
+	
+	/**
+	 * Runs the workflow on in-memory CSR graphs instead of Flink Gelly.
+	 * @param log Log file.
+	 */
+	private static void runLocalEngine (OutputToFile log) {
+		// #1: Creating the graph
+		log.addToBuff("#1 Creating the graph (local engine)");
+		GraphCreationPoint creation = new GraphCreationPoint(ENV);
+		CsrGraph graph = creation.getCsrGraphFromOntologyFiles(); log.addToBuff("  load graph from ontology files");
+		UriDictionary dictionary = creation.getDictionary();
+		log.addToBuff("  #edges: "+(graph.getNumberOfEdges(CsrGraph.SAME_AS)+graph.getNumberOfEdges(CsrGraph.IS_A))
+				+"\n  #nodes: "+graph.getNumberOfVertices());
+		
+		// #2 Calculating connected components
+		log.addToBuff("#2 Calculating connected components");
+		log.addToBuff("  time before: "+System.currentTimeMillis());
+		LocalConnCompCalculation connCompCalc = new LocalConnCompCalculation(graph);
+		Map<Long, Set<Long>> connCompts = connCompCalc.calculateConnComp();
+		if (connCompts==null || connCompts.size()==0) {
+			log.addToBuff("No connected components.");
+			return;
+		}
+		log.addToBuff("  time after:  "+System.currentTimeMillis());
+		log.addToBuff("  printing connected components to "+
+				StreamingWriter.getPath(HolomaConstants.CONNCOMP_FILE_LOC, HolomaConstants.CONNCOMP_OUTPUT_FORMAT)+" ... ");
+		printConnComp(connCompts, dictionary);
+		
+		// #3: Analyzing connected components
+		log.addToBuff("\nAnalysing connected components ... ");
+		OutputToFile out = new OutputToFile(100, HolomaConstants.ANALYSIS_CC_FILE_LOC);
+		try {
+			connCompCalc.analyseConnComponents(out);
+			ConnCompCalculation.analyseIdCollisions(connCompts, dictionary, out);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		out.close();
+		log.addToBuff("  printing analysis of connected components to "+HolomaConstants.ANALYSIS_CC_FILE_LOC);
+		
+		// #4: Determine PageRank
+		log.addToBuff("\nDetermine PageRank ... ");
+		log.addToBuff("  time: "+System.currentTimeMillis());
+		out = new OutputToFile(HolomaConstants.ANALYSIS_PPR_FILE_LOC, HolomaConstants.OUTPUT_BUFFER_BYTES, HolomaConstants.IS_ASYNC_OUTPUT);
+		out.addToBuff("  depth: "+HolomaConstants.ENR_DEPTH+
+				", #Iter: "+HolomaConstants.MAX_ITER_PPR+
+				", epsilon: "+HolomaConstants.PPR_CONVERGENCE_EPSILON+
+				", teleportProb: "+HolomaConstants.TELEPORT_PROB+
+				", top-k: "+((HolomaConstants.PPR_TOP_K > 0) ? HolomaConstants.PPR_TOP_K : "all"));
+		if (HolomaConstants.LOCAL_PPR_METHOD == HolomaConstants.PPR_MONTE_CARLO)
+			out.addToBuff("  #walks: "+HolomaConstants.MC_NUM_WALKS+", confidence bound: "+
+					MonteCarloPersonalizedPageRank.getConfidenceBound(HolomaConstants.MC_NUM_WALKS, HolomaConstants.MC_CONFIDENCE)+
+					" (confidence: "+HolomaConstants.MC_CONFIDENCE+")");
+		StreamingWriter vectors = openPrVectorFile(log);
+		LocalConnCompEnrichment enr = 
+				new LocalConnCompEnrichment(HolomaConstants.ENR_DEPTH, graph, HolomaConstants.MAP_WEIGHT);
+		int numComp = 0;
+		// iterate over each connected component
+		for (long key : connCompts.keySet()) {
+			Set<Long> connComp = connCompts.get(key);
+			int connComptSize = connComp.size();
+			// check whether component has critical size
+			if (connComptSize < HolomaConstants.MIN_CC_SIZE || connComptSize > HolomaConstants.MAX_CC_SIZE)
+				continue;
+			log.addToBuff("\n  connected component with id "+key);
+			// #4.1: get enriched connected component
+			log.addToBuff("  #4.1: get enriched connected component");
+			CsrSubgraph enrConnComp = enr.getEnrichedConnComp(connComp);
+			log.addToBuff("  #edges: "+enrConnComp.getNumberOfEdges()+"\n  #nodes: "+enrConnComp.getNumberOfVertices());
+			out.addToBuff("\n--------\nenriched component (id:"+key+"):");
+			
+			// #4.2: calculate page rank
+			log.addToBuff("  #4.2: calculate page rank");
+			log.addToBuff("  time before: "+System.currentTimeMillis());
+			TopKPageRanks prVectors = calculateLocalPageRanks(enrConnComp, out, dictionary);
+			log.addToBuff("  time after: "+System.currentTimeMillis());
+			
+			// #4.3: evaluate the page-ranked component
+			log.addToBuff("  #4.3: evaluate the page-ranked component");
+			printPprEvaluation(out, vectors, key, new PPREvaluation(prVectors), dictionary);
+			
+			// quit iteration if you have evaluated 'enough' components
+			numComp++;
+			if (numComp >= HolomaConstants.NUM_CC) break;
+		}
+		out.close();
+		closePrVectorFile(vectors);
+	}
+	
+	
+	//############### incremental connected components ###############
+	
+	/**
+	 * Updates the connected components of the last run by the same-as edges
+	 * of the new mapping files and prints the IDs of the changed components;
+	 * only these have to be enriched and ranked again.
+	 * @param log Log file.
+	 */
+	private static void runIncrementalConnComp (OutputToFile log) {
+		log.addToBuff("#2 Updating connected components by new mapping files");
+		UriDictionary dictionary = UriDictionary.loadFromFile(HolomaConstants.DICTIONARY_FILE_LOC);
+		IncrementalConnCompCalculation connCompCalc =
+				IncrementalConnCompCalculation.loadFromFile(HolomaConstants.CONNCOMP_ASSIGNMENT_FILE_LOC);
+		for (String mappingFile : HolomaConstants.NEW_MAPPING_FILES) {
+			Set<Edge<Long, Integer>> edges = ParsingPoint.readMappingEdges(HolomaConstants.PATH+mappingFile, dictionary);
+			Set<Long> changed = connCompCalc.addSameAsEdges(edges);
+			log.addToBuff("  "+mappingFile+": "+edges.size()+" same-as edges, "+changed.size()+" changed components");
+		}
+		log.addToBuff("  printing connected components to "+
+				StreamingWriter.getPath(HolomaConstants.CONNCOMP_FILE_LOC, HolomaConstants.CONNCOMP_OUTPUT_FORMAT)+" ... ");
+		printConnComp(connCompCalc.getConnComp(), dictionary);
+		
+		log.addToBuff("  printing changed components to "+HolomaConstants.CHANGED_CONNCOMP_FILE_LOC);
+		OutputToFile out = new OutputToFile(100, HolomaConstants.CHANGED_CONNCOMP_FILE_LOC);
+		for (long key : connCompCalc.getChangedConnComp())
+			out.addToBuff("changed\t"+key);
+		for (long key : connCompCalc.getRemovedConnComp())
+			out.addToBuff("removed\t"+key);
+		out.close();
+	}
+	
+	
+	/**
+	 * Prints the connected components, and persists the component assignment
+	 * and the dictionary for later incremental updates.
+	 * @param connCompts Map from component ID to its set of vertex IDs.
+	 * @param dictionary Dictionary which resolves the vertex IDs to their URLs.
+	 */
+	private static void printConnComp (Map<Long, Set<Long>> connCompts, UriDictionary dictionary) {
+		GraphVisualisation.printConnectedComponents(connCompts, dictionary);
+		IncrementalConnCompCalculation.printToFile(connCompts, HolomaConstants.CONNCOMP_ASSIGNMENT_FILE_LOC);
+		dictionary.printToFile(HolomaConstants.DICTIONARY_FILE_LOC);
+	}
+	
+	
+	/**
+	 * Calculates personalized pagerank for all sources of the component
+	 * by the method <code>LOCAL_PPR_METHOD</code>.
+	 * @param enrConnComp The enriched connected component.
+	 * @param out Output file for the number of iterations per source of the power iteration.
+	 * @param dictionary Dictionary which resolves the vertex IDs to their URLs.
+	 * @return The top targets (see <code>PPR_TOP_K</code>) of the pagerank vector per source.
+	 */
+	private static TopKPageRanks calculateLocalPageRanks (CsrSubgraph enrConnComp,
+			OutputToFile out, UriDictionary dictionary) {
+		TopKPageRanks prVectors = new TopKPageRanks(
+				(HolomaConstants.PPR_TOP_K > 0) ? HolomaConstants.PPR_TOP_K : TopKPageRanks.ALL,
+				HolomaConstants.IS_TOP_K_PER_ONTOLOGY);
+		if (HolomaConstants.LOCAL_PPR_METHOD == HolomaConstants.PPR_FORWARD_PUSH) {
+			PushPersonalizedPageRank pageRank = new PushPersonalizedPageRank(HolomaConstants.PUSH_RESIDUAL_THRESHOLD);
+			pageRank.setEnrConnComp(enrConnComp);
+			pageRank.setResultStore(prVectors);
+			pageRank.start();
+			return prVectors;
+		}
+		if (HolomaConstants.LOCAL_PPR_METHOD == HolomaConstants.PPR_MONTE_CARLO) {
+			MonteCarloPersonalizedPageRank pageRank = new MonteCarloPersonalizedPageRank(
+					HolomaConstants.MC_NUM_WALKS, HolomaConstants.MC_CONFIDENCE, HolomaConstants.MC_PARALLELISM);
+			pageRank.setEnrConnComp(enrConnComp);
+			pageRank.setResultStore(prVectors);
+			pageRank.start();
+			return prVectors;
+		}
+		LocalPersonalizedPageRank pageRank = new LocalPersonalizedPageRank();
+		pageRank.setEnrConnComp(enrConnComp);
+		pageRank.setResultStore(prVectors);
+		pageRank.start();
+		printIterations(out, pageRank.getMapIterations(), dictionary);
+		return prVectors;
+	}
+	
+	
+	/**
+	 * Opens the file of the pagerank vectors, unless they are printed to the analysis file
+	 * (<code>PPR_VECTOR_OUTPUT_FORMAT</code> is <code>StreamingWriter.PLAIN</code>).
+	 * @param log Log file.
+	 * @return The writer, or null.
+	 */
+	private static StreamingWriter openPrVectorFile (OutputToFile log) {
+		if (HolomaConstants.PPR_VECTOR_OUTPUT_FORMAT == StreamingWriter.PLAIN)
+			return null;
+		try {
+			StreamingWriter vectors = new StreamingWriter(HolomaConstants.PPR_VECTOR_FILE_LOC,
+					HolomaConstants.PPR_VECTOR_OUTPUT_FORMAT, HolomaConstants.OUTPUT_BUFFER_BYTES);
+			log.addToBuff("  printing pagerank vectors to "+vectors.getPath());
+			return vectors;
+		} catch (IOException e) {
+			System.err.println("Wrong path '"+HolomaConstants.PPR_VECTOR_FILE_LOC+"'.");
+			e.printStackTrace();
+			return null;
+		}
+	}
+	
+	/**
+	 * Closes the file of the pagerank vectors.
+	 * @param vectors The writer, or null.
+	 */
+	private static void closePrVectorFile (StreamingWriter vectors) {
+		if (vectors == null) return;
+		try {
+			vectors.close();
+		} catch (IOException e) {
+			System.err.println("Exception during writing the pagerank vectors to '"+vectors.getPath()+"'.");
+			e.printStackTrace();
+		}
+	}
+	
+	
+	/**
+	 * Prints the number of iterations of the pagerank calculation per source.
+	 * @param out Output file.
+	 * @param iterations Map from source ID to its number of iterations.
+	 * @param dictionary Dictionary which resolves the vertex IDs to their URLs.
+	 */
+	private static void printIterations (OutputToFile out, Map<Long, Integer> iterations, UriDictionary dictionary) {
+		out.addToBuff("\niterations until convergence:");
+		for (long source : iterations.keySet())
+			out.addToBuff("  source: "+dictionary.decode(source)+" \t #Iter: "+iterations.get(source));
+	}
+	
+	
+	/**
+	 * Prints the evaluation of the pagerank vectors of one component.
+	 * @param out Output file.
+	 * @param vectors Output file of the pagerank vectors; if null, they are printed to <code>out</code>.
+	 * @param key ID of the connected component.
+	 * @param pprEval Evaluation of the pagerank vectors.
+	 * @param dictionary Dictionary which resolves the vertex IDs to their URLs.
+	 */
+	private static void printPprEvaluation (OutputToFile out, StreamingWriter vectors, long key,
+			PPREvaluation pprEval, UriDictionary dictionary) {
+		try {
+			if (vectors == null)
+				pprEval.appendPrVectors(out, dictionary);
+			else
+				pprEval.writePrVectors(vectors, key, dictionary);
+		} catch (IOException e) {
+			System.err.println("Exception during writing the pagerank vectors.");
+			e.printStackTrace();
+		}
+		// all friends are found in a single pass per source
+		FriendEvaluation friends = pprEval.evaluate(null, HolomaConstants.NUM_TOP_FRIENDS, HolomaConstants.PPR_EVAL_PARALLELISM);
+		Map<Long, Float> statistMeans = friends.getStatistMeans();
+		out.addToBuff("\nstatistic means:");
+		for (long source : statistMeans.keySet()) {
+			out.addToBuff("  source: "+dictionary.decode(source)+" \t page rank mean: "+statistMeans.get(source));
+		}
+		Map<Long, Set<Tuple2<Long, VertexValue>>> bestFriends = friends.getTrueBestFriends();
+		out.addToBuff("\nbest friends:");
+		for (long src : bestFriends.keySet()) {
+			for (Tuple2<Long, VertexValue> trg : bestFriends.get(src))
+				out.addToBuff("  src: "+dictionary.decode(src)+" \t trg: "+dictionary.decode(trg.f0)+" \t "+trg.f1);
+		}
+		Map<Long, Set<Tuple2<Long, VertexValue>>> worstFriends = friends.getWorstFriends();
+		// sparse vectors do not store the vertices with pagerank 0
+		out.addToBuff((HolomaConstants.LOCAL_PPR_METHOD == HolomaConstants.PPR_POWER_ITERATION) ?
+				"\nworst friends:" : "\nworst friends (among the targets with positive pagerank):");
+		for (long src : worstFriends.keySet()) {
+			for (Tuple2<Long, VertexValue> trg : worstFriends.get(src))
+				out.addToBuff("  src: "+dictionary.decode(src)+" \t trg: "+dictionary.decode(trg.f0)+" \t "+trg.f1);
+		}
+		if (HolomaConstants.NUM_TOP_FRIENDS > 0) {
+			Map<Long, List<Tuple2<Long, VertexValue>>> topFriends = friends.getTopFriends();
+			out.addToBuff("\ntop friends:");
+			for (long src : topFriends.keySet()) {
+				for (Tuple2<Long, VertexValue> trg : topFriends.get(src))
+					out.addToBuff("  src: "+dictionary.decode(src)+" \t trg: "+dictionary.decode(trg.f0)+" \t "+trg.f1);
+			}
+		}
+	}
+	
+	
+	/** Returns the name of the method of connected components which is selected by <code>CONNCOMP_METHOD</code>. */
+	private static String getConnCompMethodName () {
+		switch (HolomaConstants.CONNCOMP_METHOD) {
+			case HolomaConstants.CONNCOMP_UNION_FIND: return "union-find";
+			case HolomaConstants.CONNCOMP_CONVERGENT: return "convergent label propagation";
+			default: return "label propagation ("+HolomaConstants.MAX_ITER+" iterations)";
+		}
+	}
+	
+	
+	
+	
 	//############### time measure methods ###############
 	
 	/** Starts the stop watch. */
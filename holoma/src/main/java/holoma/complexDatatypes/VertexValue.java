@@ -9,6 +9,8 @@ public class VertexValue implements Serializable {
 	
 	public String ontName;
 	public float pr;
+	/** Superstep of the last update of the pagerank during an iteration; 0 iff it has not been updated. */
+	public int superstep;
 	
 	/**
 	 * Create a new vertex value.
@@ -0,0 +1,45 @@
+package holoma.complexDatatypes;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+public class VertexVectorValue implements Serializable {
+	
+	
+	private static final long serialVersionUID = 1L;
+	
+	public String ontName;
+	/** Index of this vertex within the vector of sources; -1 iff it is no source. */
+	public int slot;
+	/** PageRank value of this vertex per source. */
+	public float[] pr;
+	/** Superstep of the last update of the pagerank vector during an iteration; 0 iff it has not been updated. */
+	public int superstep;
+	
+	/**
+	 * Create a new vertex value.
+	 * @param ontName Name of the ontology the vertex is part of.
+	 * @param slot Index of this vertex within the vector of sources; -1 iff it is no source.
+	 * @param pr PageRank value of this vertex per source.
+	 */
+	public VertexVectorValue (String ontName, int slot, float[] pr) {
+		this.ontName=ontName;
+		this.slot=slot;
+		this.pr=pr;
+	}
+	
+	
+	/** Creates a new vertex value with default values. */
+	public VertexVectorValue () {
+		this.ontName="";
+		this.slot=-1;
+		this.pr=new float[0];
+	}
+	
+	
+	@Override
+	public String toString() {
+		return "["+ontName+", "+slot+", "+Arrays.toString(pr)+"]";
+	}
+
+}
@@ -0,0 +1,128 @@
+package holoma.connComp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Lock-free disjoint-set forest over the vertex IDs <i>0 ... n-1</i>
+ * which can be shared by several threads.
+ * Roots are linked by index (the greater root is linked to the smaller one) with
+ * compare-and-set, thus each parent is at most its child and the root of a set is
+ * its smallest element. Paths are compressed by path halving.
+ * @author max
+ *
+ */
+public class ConcurrentUnionFind {
+
+	/** Parent of each element; a root is its own parent. */
+	private final AtomicIntegerArray parent;
+
+
+	/**
+	 * Constructor. Each element is a set of its own.
+	 * @param size Number of elements.
+	 */
+	public ConcurrentUnionFind (int size) {
+		this.parent = new AtomicIntegerArray(size);
+		for (int i=0; i<size; i++)
+			this.parent.set(i, i);
+	}
+
+
+	/**
+	 * Returns the representative of the set which contains <code>x</code>.
+	 * @param x An element.
+	 * @return The root of the set.
+	 */
+	public int find (int x) {
+		while (true) {
+			int p = this.parent.get(x);
+			if (p == x) return x;
+			int grandParent = this.parent.get(p);
+			if (p != grandParent)
+				this.parent.compareAndSet(x, p, grandParent);
+			x = grandParent;
+		}
+	}
+
+
+	/**
+	 * Merges the sets which contain <code>x</code> and <code>y</code>.
+	 * @param x An element.
+	 * @param y An element.
+	 */
+	public void union (int x, int y) {
+		while (true) {
+			int rootX = find(x);
+			int rootY = find(y);
+			if (rootX == rootY) return;
+			// link the greater root to the smaller one; retry if the greater one is no root anymore
+			if (rootX < rootY) {
+				if (this.parent.compareAndSet(rootY, rootY, rootX)) return;
+			}
+			else {
+				if (this.parent.compareAndSet(rootX, rootX, rootY)) return;
+			}
+		}
+	}
+
+
+	/**
+	 * Returns the root of each element. Must not be called while other threads merge sets.
+	 * @return Array which maps each element to the root of its set.
+	 */
+	public int[] getRoots () {
+		int[] roots = new int[this.parent.length()];
+		for (int i=0; i<roots.length; i++)
+			roots[i] = find(i);
+		return roots;
+	}
+
+
+	/**
+	 * Calculates the connected components of an undirected graph.
+	 * The edges are split into one chunk per thread; all threads merge into the same forest.
+	 * @param size Number of vertices.
+	 * @param sources Source of each edge.
+	 * @param targets Target of each edge.
+	 * @param parallelism Number of threads.
+	 * @return Array which maps each vertex to the root (the smallest vertex) of its component.
+	 * @throws InterruptedException Interrupted while waiting for the threads.
+	 */
+	public static int[] components (int size, final int[] sources, final int[] targets, int parallelism)
+			throws InterruptedException {
+		final ConcurrentUnionFind uf = new ConcurrentUnionFind(size);
+		int noEdges = sources.length;
+		int chunkSize = (noEdges + parallelism - 1) / Math.max(1, parallelism);
+		ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+		try {
+			List<Future<Void>> results = new ArrayList<Future<Void>>();
+			for (int start=0; start<noEdges; start+=chunkSize) {
+				final int from = start;
+				final int to = Math.min(noEdges, start+chunkSize);
+				results.add(executor.submit(new Callable<Void>() {
+					public Void call() {
+						for (int e=from; e<to; e++)
+							uf.union(sources[e], targets[e]);
+						return null;
+					}
+				}));
+			}
+			for (Future<Void> result : results)
+				result.get();
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Union of components failed.", e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+		return uf.getRoots();
+	}
+
+
+}
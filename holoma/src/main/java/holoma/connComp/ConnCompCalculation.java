@@ -1,21 +1,32 @@
 package holoma.connComp;
 
+import java.io.IOException;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 
 import org.apache.flink.api.common.functions.FilterFunction;
+import org.apache.flink.api.common.functions.JoinFunction;
 import org.apache.flink.api.common.functions.MapFunction;
+import org.apache.flink.api.common.functions.ReduceFunction;
+import org.apache.flink.api.common.functions.RichFlatJoinFunction;
 import org.apache.flink.api.java.DataSet;
+import org.apache.flink.api.java.operators.DeltaIteration;
+import org.apache.flink.api.java.tuple.Tuple2;
 import org.apache.flink.graph.Edge;
 import org.apache.flink.graph.Graph;
 import org.apache.flink.graph.Vertex;
 import org.apache.flink.graph.library.ConnectedComponents;
 import org.apache.flink.graph.spargel.VertexCentricConfiguration;
+import org.apache.flink.util.Collector;
 
 import holoma.HolomaConstants;
+import holoma.parsing.UriDictionary;
 
 /**
  * This class provides methods for 
@@ -27,18 +38,22 @@ import holoma.HolomaConstants;
 public class ConnCompCalculation implements Serializable {
 	
 	/** The graph. */
-	transient private final Graph<String, String, Integer> GRAPH;	
+	transient private final Graph<Long, String, Integer> GRAPH;	
 	/** Graph for calculating connected components. */
-	transient private Graph<String, Long, Integer> componentGraph; 
+	transient private Graph<Long, Long, Integer> componentGraph; 
 	/** Map from component ID to its set of vertex IDs.*/
-	private Map<Long, Set<String>> connCompts = new HashMap<Long, Set<String>>();
+	private Map<Long, Set<Long>> connCompts = new HashMap<Long, Set<Long>>();
+	/** Report of the supersteps of the convergence-driven iteration (empty if not used). */
+	private String convergenceReport = "";
+	/** Name prefix of the accumulators which count the changed vertices per superstep. */
+	private static final String CHANGED_ACC_PREFIX = "changed vertices in superstep ";
 	
 	
 	/**
 	 * Constructor.
 	 * @param graph The graph which shall be evaluated.
 	 */
-	public ConnCompCalculation (Graph<String, String, Integer> graph) {
+	public ConnCompCalculation (Graph<Long, String, Integer> graph) {
 		this.GRAPH = graph;
 	}
 	
@@ -48,7 +63,7 @@ public class ConnCompCalculation implements Serializable {
 	 * Returns the graph on which the connected components are calculated.
 	 * @return Graph for connected components calculation.
 	 */
-	public Graph<String, Long, Integer> getComponentGraph () { return this.componentGraph; }
+	public Graph<Long, Long, Integer> getComponentGraph () { return this.componentGraph; }
 	
 		
 	
@@ -56,7 +71,7 @@ public class ConnCompCalculation implements Serializable {
 	 * Naive approach: calculate connected components on the whole graph of all ontologies.
 	 * @return Map from component ID to a connected component, i.e., a set of vertices.
 	 */
-	public Map<Long, Set<String>> calculateConnComp_naive () {
+	public Map<Long, Set<Long>> calculateConnComp_naive () {
 		try {
 			// exactly one ontology: no connected components
 			connCompts = (HolomaConstants.ONTOLOGY_FILES.length<=1) ? null : getSortedConnComp ();
@@ -74,49 +89,96 @@ public class ConnCompCalculation implements Serializable {
 	/**
 	 * Calculates the connected components and changes their format to a map
 	 * which has the component ID as key, and the nodes of this ID as value.
-	 * @param noSingletonComponents Singletons of connected components are eliminated iff 'true'.
 	 * @return Connected Components.
+	 * @throws Exception Collecting the graph failed.
 	 */
-	private Map<Long, Set<String>> getSortedConnComp (){
-		DataSet<Vertex<String, Long>> verticesWithComponents = getConnectedComponents();			
+	private Map<Long, Set<Long>> getSortedConnComp () throws Exception {
+		if (HolomaConstants.CONNCOMP_METHOD == HolomaConstants.CONNCOMP_UNION_FIND)
+			return getConnCompByUnionFind();
+		if (HolomaConstants.CONNCOMP_METHOD == HolomaConstants.CONNCOMP_CONVERGENT) {
+			sortConnectedComponents(getConnectedComponentsUntilConvergence());
+			this.convergenceReport = getConvergenceReport();
+			return connCompts;
+		}
+		DataSet<Vertex<Long, Long>> verticesWithComponents = getConnectedComponents();			
 		return sortConnectedComponents(verticesWithComponents);
 	}
 	
 	
+	/**
+	 * Calculates the exact connected components by union-find in one pass over the same-as edges.
+	 * Like in the iterative approach, the component ID is the smallest vertex ID of the component.
+	 * @return Map from component ID to its set of vertex IDs.
+	 * @throws Exception Collecting the graph failed.
+	 */
+	private Map<Long, Set<Long>> getConnCompByUnionFind () throws Exception {
+		// #1: collect the same-as edges (and the vertices if singletons are kept)
+		List<Tuple2<Long, Long>> sameAsEdges = this.GRAPH.filterOnEdges(new SameAsFilter()).getEdgeIds().collect();
+		List<Long> vertexIds = (HolomaConstants.NO_SINGLETON_CONNCOMP) ? new ArrayList<Long>() : this.GRAPH.getVertexIds().collect();
+		int size = 0;
+		int[] sources = new int[sameAsEdges.size()];
+		int[] targets = new int[sameAsEdges.size()];
+		for (int e=0; e<sources.length; e++) {
+			// vertex IDs are dense dictionary IDs
+			sources[e] = sameAsEdges.get(e).f0.intValue();
+			targets[e] = sameAsEdges.get(e).f1.intValue();
+			size = Math.max(size, Math.max(sources[e], targets[e])+1);
+		}
+		for (long vertexId : vertexIds)
+			size = Math.max(size, (int) vertexId+1);
+		
+		// #2: merge the end points of each edge
+		int[] roots = (HolomaConstants.CONNCOMP_PARALLELISM > 1) ?
+				ConcurrentUnionFind.components(size, sources, targets, HolomaConstants.CONNCOMP_PARALLELISM) :
+				UnionFind.components(size, sources, targets);
+		
+		// #3: group the vertices by their root; vertices without same-as edges are singletons
+		boolean[] isVertex = new boolean[size];
+		for (int e=0; e<sources.length; e++) {
+			isVertex[sources[e]] = true;
+			isVertex[targets[e]] = true;
+		}
+		for (long vertexId : vertexIds)
+			isVertex[(int) vertexId] = true;
+		Map<Integer, Set<Long>> compByRoot = new HashMap<Integer, Set<Long>>();
+		for (int v=0; v<size; v++) {
+			if (!isVertex[v]) continue;
+			Set<Long> component = compByRoot.get(roots[v]);
+			// ascending order: the first vertex of a component is its smallest one
+			if (component == null) {
+				component = new HashSet<Long>();
+				compByRoot.put(roots[v], component);
+				this.connCompts.put((long) v, component);
+			}
+			component.add((long) v);
+		}
+		
+		if (HolomaConstants.NO_SINGLETON_CONNCOMP)
+			connCompts = eliminateSingletons ();
+		
+		return connCompts;
+	}
+	
+	
 	
 	/**
 	 * Returns the connected components of the given graph.
 	 * @return DataSet of vertices, where the vertex values correspond to the component ID.
 	 */
-	private DataSet<Vertex<String, Long>> getConnectedComponents () {
+	private DataSet<Vertex<Long, Long>> getConnectedComponents () {
 		// set the degree option to true
 		VertexCentricConfiguration parameters = new VertexCentricConfiguration();
 		parameters.setOptDegrees(true);
 		
-		DataSet<Vertex<String, Long>> verticesWithComponents = null;		
+		DataSet<Vertex<Long, Long>> verticesWithComponents = null;		
 		
-		// #1: Initialize each vertex value with its own and unique component ID
-		this.componentGraph = this.GRAPH.mapVertices(
-				new MapFunction<Vertex<String, String>, Long>() {
-					public Long map (Vertex<String, String> value) {
-						// the component ID is the hashCode of the key
-						return (long) value.getId().hashCode();
-					}
-				});	
-				
-		// #2: create subgraph: only edges with value "equal"
-		this.componentGraph = this.componentGraph.filterOnEdges(
-				new FilterFunction<Edge<String, Integer>>() {
-					public boolean filter(Edge<String, Integer> edge) {
-						// keep only edges that denotes an equal relation
-						return (edge.getValue() == 0);
-					}
-				});
+		// #1, #2: initialize component IDs, keep same-as edges
+		initComponentGraph();
 
 		// #3: calculate the connected components
 		try {
 			verticesWithComponents = this.componentGraph.run(
-					new ConnectedComponents<String, Integer>(HolomaConstants.MAX_ITER)
+					new ConnectedComponents<Long, Integer>(HolomaConstants.MAX_ITER)
 					);
 		} catch (Exception e) {
 			e.printStackTrace();
@@ -127,6 +189,77 @@ public class ConnCompCalculation implements Serializable {
 	
 	
 	
+	/**
+	 * Returns the connected components of the given graph. The component IDs are
+	 * propagated by a delta iteration until no component ID changes; the number
+	 * of changed vertices per superstep is counted by accumulators.
+	 * @return DataSet of vertices, where the vertex values correspond to the component ID.
+	 */
+	private DataSet<Vertex<Long, Long>> getConnectedComponentsUntilConvergence () {
+		initComponentGraph();
+		DataSet<Vertex<Long, Long>> vertices = this.componentGraph.getVertices();
+		// component IDs are propagated in both directions of a same-as edge
+		DataSet<Edge<Long, Integer>> edges = this.componentGraph.getUndirected().getEdges();
+		
+		// the workset contains the vertices whose component ID changed in the last superstep
+		DeltaIteration<Vertex<Long, Long>, Vertex<Long, Long>> iteration =
+				vertices.iterateDelta(vertices, HolomaConstants.MAX_ITER_CONVERGENT_CONNCOMP, 0);
+		DataSet<Vertex<Long, Long>> changes = iteration.getWorkset()
+				.join(edges).where(0).equalTo(0).with(new NeighborWithComponentId())
+				.groupBy(0).reduce(new MinComponentId())
+				.join(iteration.getSolutionSet()).where(0).equalTo(0).with(new ComponentIdFilter());
+		return iteration.closeWith(changes, changes);
+	}
+	
+	
+	/**
+	 * Initializes the graph for connected components: each vertex value
+	 * is its own component ID, and only same-as edges are kept.
+	 */
+	private void initComponentGraph () {
+		// #1: Initialize each vertex value with its own and unique component ID
+		this.componentGraph = this.GRAPH.mapVertices(
+				new MapFunction<Vertex<Long, String>, Long>() {
+					public Long map (Vertex<Long, String> value) {
+						// the component ID is the (unique) vertex ID
+						return value.getId();
+					}
+				});	
+				
+		// #2: create subgraph: only edges with value "equal"
+		this.componentGraph = this.componentGraph.filterOnEdges(new SameAsFilter());
+	}
+	
+	
+	/**
+	 * Reads the accumulators of the last job and reports the number of supersteps
+	 * and the number of changed vertices per superstep.
+	 * @return Report of the convergence-driven iteration.
+	 */
+	private String getConvergenceReport () {
+		Map<String, Object> accumulators = this.GRAPH.getContext().getLastJobExecutionResult().getAllAccumulatorResults();
+		TreeMap<Integer, Long> changedPerSuperstep = new TreeMap<Integer, Long>();
+		for (String name : accumulators.keySet()) {
+			if (name.startsWith(CHANGED_ACC_PREFIX))
+				changedPerSuperstep.put(Integer.parseInt(name.substring(CHANGED_ACC_PREFIX.length())),
+						(Long) accumulators.get(name));
+		}
+		// the last superstep changes nothing unless the iteration has been capped
+		int lastChange = changedPerSuperstep.isEmpty() ? 0 : changedPerSuperstep.lastKey();
+		boolean isCapped = lastChange >= HolomaConstants.MAX_ITER_CONVERGENT_CONNCOMP;
+		
+		StringBuilder result = new StringBuilder("-------------------------------------------------------------\n");
+		result.append("Convergence of connected components:\n");
+		result.append("supersteps: ").append(isCapped ? lastChange+" (capped)" : String.valueOf(lastChange+1)).append("\n");
+		result.append("\nsuperstep \t|\t#changed vertices\n-----------------------\n");
+		for (int superstep : changedPerSuperstep.keySet())
+			result.append(" ").append(superstep).append("\t|\t ").append(changedPerSuperstep.get(superstep)).append("\n");
+		result.append("\n");
+		return result.toString();
+	}
+	
+	
+	
 	/**
 	 * Sorts the nodes according to their association with a connected component. 
 	 * All nodes with the same component ID are grouped together. They are mapped
@@ -135,16 +268,16 @@ public class ConnCompCalculation implements Serializable {
 	 * @param noSingletons Singletons of connected components are eliminated iff 'true'.
 	 * @return Map from component ID to its set of connected vertices.
 	 */
-	public Map<Long, Set<String>> sortConnectedComponents (DataSet<Vertex<String, Long>> verticesWithComponents) {
+	public Map<Long, Set<Long>> sortConnectedComponents (DataSet<Vertex<Long, Long>> verticesWithComponents) {
 		
 		try {
-			for (Vertex<String, Long> vertex : verticesWithComponents.collect()) {
+			for (Vertex<Long, Long> vertex : verticesWithComponents.collect()) {
 				// component has already occurred: add entry to existing hash map
 				if (connCompts.keySet().contains(vertex.f1))
 					connCompts.get(vertex.f1).add(vertex.f0);
 				// component is new: create a new entry in the hash map
 				else {
-					Set<String> l = new HashSet<String>();
+					Set<Long> l = new HashSet<Long>();
 					l.add(vertex.f0);
 					connCompts.put(vertex.f1, l);
 				}
@@ -165,8 +298,8 @@ public class ConnCompCalculation implements Serializable {
 	 * @param connCompts Set of connected components (potentially components of cardinality one).
 	 * @return Set of connected components such that each connected component contains at least two nodes.
 	 */
-	private Map<Long, Set<String>> eliminateSingletons () {
-		Map<Long, Set<String>> newMap = new HashMap<Long, Set<String>>();
+	private Map<Long, Set<Long>> eliminateSingletons () {
+		Map<Long, Set<Long>> newMap = new HashMap<Long, Set<Long>>();
 		for (Long key : this.connCompts.keySet()) {
 			if (this.connCompts.get(key).size() > 1)
 				newMap.put(key, this.connCompts.get(key));
@@ -180,12 +313,51 @@ public class ConnCompCalculation implements Serializable {
 	 * @return Analysis result.
 	 */
 	public String analyseConnComponents () {
-		int count = this.connCompts.size();
+		return analyseConnComponents(this.connCompts) + this.convergenceReport;
+	}
+	
+	
+	/**
+	 * Streams the analysis of the connected components to <code>out</code>.
+	 * @param out Output, e.g., a file.
+	 * @throws IOException Writing failed.
+	 */
+	public void analyseConnComponents (Appendable out) throws IOException {
+		analyseConnComponents(this.connCompts, out);
+		out.append(this.convergenceReport);
+	}
+	
+	
+	/**
+	 * Analyzes the given connected components.
+	 * @param connCompts Map from component ID to its set of vertex IDs.
+	 * @return Analysis result.
+	 */
+	public static String analyseConnComponents (Map<Long, Set<Long>> connCompts) {
+		StringBuilder result = new StringBuilder();
+		try {
+			analyseConnComponents(connCompts, result);
+		} catch (IOException e) {
+			// not thrown by a StringBuilder
+			throw new IllegalStateException(e);
+		}
+		return result.toString();
+	}
+	
+	
+	/**
+	 * Streams the analysis of the given connected components to <code>out</code>.
+	 * @param connCompts Map from component ID to its set of vertex IDs.
+	 * @param out Output, e.g., a file.
+	 * @throws IOException Writing failed.
+	 */
+	public static void analyseConnComponents (Map<Long, Set<Long>> connCompts, Appendable out) throws IOException {
+		int count = connCompts.size();
 		int max = 0, min = Integer.MAX_VALUE, sum = 0;
 		Map<Integer, Long> histogramData = new HashMap<Integer, Long>();
 		
-		for (long component : this.connCompts.keySet()) {
-			int size = this.connCompts.get(component).size();
+		for (long component : connCompts.keySet()) {
+			int size = connCompts.get(component).size();
 			if (histogramData.containsKey(size)) {
 				long value = histogramData.get(size);
 				histogramData.put(size, (value+1));
@@ -198,19 +370,117 @@ public class ConnCompCalculation implements Serializable {
 		}
 		float avg = sum / (1.0f*count);
 
-		String result = "-------------------------------------------------------------\n";
-		result += "Analysis of connected components (#nodes):\n";
-		result += "count:     "+count+"\n";
-		result += "avg:       "+avg+"\n";
-		result += "min:       "+((min==Integer.MAX_VALUE) ? "--" : min)+"\n";
-		result += "max:       "+((max==0) ? "--" : max)+"\n";
-		result += "\n";
-		result += "size \t|\tcount\n-----------------------\n";
+		out.append("-------------------------------------------------------------\n");
+		out.append("Analysis of connected components (#nodes):\n");
+		out.append("count:     "+count+"\n");
+		out.append("avg:       "+avg+"\n");
+		out.append("min:       "+((min==Integer.MAX_VALUE) ? "--" : min)+"\n");
+		out.append("max:       "+((max==0) ? "--" : max)+"\n");
+		out.append("\n");
+		out.append("size \t|\tcount\n-----------------------\n");
 		for (int size : histogramData.keySet())
-			result += " "+size+"\t|\t "+histogramData.get(size)+"\n";
-		result += "\n";
-		
-		return result;
+			out.append(" "+size+"\t|\t "+histogramData.get(size)+"\n");
+		out.append("\n");
+	}
+	
+	
+	/**
+	 * Reports the merges of connected components which are avoided by dense vertex IDs.
+	 * @param connCompts Map from component ID to its set of vertex IDs.
+	 * @param dictionary Dictionary which resolves the vertex IDs to their URLs.
+	 * @return Report of hash collisions and avoided merges.
+	 */
+	public static String analyseIdCollisions (Map<Long, Set<Long>> connCompts, UriDictionary dictionary) {
+		StringBuilder result = new StringBuilder();
+		try {
+			analyseIdCollisions(connCompts, dictionary, result);
+		} catch (IOException e) {
+			// not thrown by a StringBuilder
+			throw new IllegalStateException(e);
+		}
+		return result.toString();
+	}
+	
+	
+	/**
+	 * Streams the report of the merges of connected components which are avoided by dense vertex IDs
+	 * to <code>out</code>.
+	 * Formerly, the component ID was seeded with the 32-bit hash code of the vertex URL,
+	 * so distinct components whose smallest hash codes collided were merged.
+	 * @param connCompts Map from component ID to its set of vertex IDs.
+	 * @param dictionary Dictionary which resolves the vertex IDs to their URLs.
+	 * @param out Output, e.g., a file.
+	 * @throws IOException Writing failed.
+	 */
+	public static void analyseIdCollisions (Map<Long, Set<Long>> connCompts, UriDictionary dictionary,
+			Appendable out) throws IOException {
+		Map<Long, Integer> compByHashLabel = new HashMap<Long, Integer>();
+		Map<Integer, Long> vertexByHash = new HashMap<Integer, Long>();
+		int noHashCollisions = 0;
+		for (Set<Long> component : connCompts.values()) {
+			long hashLabel = Long.MAX_VALUE;
+			for (long vertexId : component) {
+				int hash = dictionary.decode(vertexId).hashCode();
+				Long other = vertexByHash.put(hash, vertexId);
+				if (other != null && other != vertexId)
+					noHashCollisions++;
+				hashLabel = Math.min(hashLabel, hash);
+			}
+			Integer count = compByHashLabel.get(hashLabel);
+			compByHashLabel.put(hashLabel, (count==null) ? 1 : count+1);
+		}
+		int noMergesAvoided = connCompts.size() - compByHashLabel.size();
+
+		out.append("-------------------------------------------------------------\n");
+		out.append("Collisions of component IDs:\n");
+		out.append("URL hash collisions:  "+noHashCollisions+"\n");
+		out.append("merges avoided:       "+noMergesAvoided+"\n");
+		if (noMergesAvoided > 0) {
+			out.append("\nhash label \t|\t#components\n-----------------------\n");
+			for (long hashLabel : compByHashLabel.keySet()) {
+				if (compByHashLabel.get(hashLabel) > 1)
+					out.append(" "+hashLabel+"\t|\t "+compByHashLabel.get(hashLabel)+"\n");
+			}
+		}
+		out.append("\n");
+	}
+	
+	
+	/** Sends the component ID of a vertex to the target of an edge. */
+	private static final class NeighborWithComponentId
+			implements JoinFunction<Vertex<Long, Long>, Edge<Long, Integer>, Vertex<Long, Long>> {
+		public Vertex<Long, Long> join (Vertex<Long, Long> vertex, Edge<Long, Integer> edge) {
+			return new Vertex<Long, Long>(edge.getTarget(), vertex.getValue());
+		}
+	}
+	
+	
+	/** Keeps the smallest candidate component ID per vertex. */
+	private static final class MinComponentId implements ReduceFunction<Vertex<Long, Long>> {
+		public Vertex<Long, Long> reduce (Vertex<Long, Long> v1, Vertex<Long, Long> v2) {
+			return (v1.getValue() <= v2.getValue()) ? v1 : v2;
+		}
+	}
+	
+	
+	/** Emits a vertex iff the candidate component ID is smaller than the current one, and counts it. */
+	private static final class ComponentIdFilter
+			extends RichFlatJoinFunction<Vertex<Long, Long>, Vertex<Long, Long>, Vertex<Long, Long>> {
+		public void join (Vertex<Long, Long> candidate, Vertex<Long, Long> current, Collector<Vertex<Long, Long>> out) {
+			if (candidate.getValue() < current.getValue()) {
+				int superstep = getIterationRuntimeContext().getSuperstepNumber();
+				getRuntimeContext().getLongCounter(CHANGED_ACC_PREFIX+superstep).add(1l);
+				out.collect(candidate);
+			}
+		}
+	}
+	
+	
+	/** Keeps only edges that denote an equal relation. */
+	private static final class SameAsFilter implements FilterFunction<Edge<Long, Integer>> {
+		public boolean filter(Edge<Long, Integer> edge) {
+			return (edge.getValue() == 0);
+		}
 	}
 	
 }
@@ -1,20 +1,32 @@
 package holoma.connComp;
 
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-import org.apache.flink.api.common.functions.FilterFunction;
+import org.apache.flink.api.common.functions.CoGroupFunction;
+import org.apache.flink.api.common.functions.FlatMapFunction;
+import org.apache.flink.api.common.functions.JoinFunction;
 import org.apache.flink.api.common.functions.MapFunction;
 import org.apache.flink.api.java.DataSet;
 import org.apache.flink.api.java.ExecutionEnvironment;
+import org.apache.flink.api.java.operators.DeltaIteration;
+import org.apache.flink.api.java.tuple.Tuple1;
 import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.api.java.tuple.Tuple3;
+import org.apache.flink.api.java.tuple.Tuple4;
 import org.apache.flink.graph.Edge;
 import org.apache.flink.graph.Graph;
 import org.apache.flink.graph.Vertex;
+import org.apache.flink.util.Collector;
 
+import holoma.HolomaConstants;
 import holoma.complexDatatypes.EdgeValue;
 import holoma.complexDatatypes.VertexValue;
+import holoma.graph.CsrGraph;
 
 /**
  * Enriches connected components
@@ -27,9 +39,11 @@ public class ConnCompEnrichment {
 	/** Depth of the enrichment. */
 	private final int DEPTH;
 	/** Underlying graph structure. */
-	transient private final Graph<String, String, Integer> GRAPH;
+	transient private final Graph<Long, String, Integer> GRAPH;
 	/** Mapping from edge type to weight. */
 	private final Map<Integer, Float> MAP_WEIGHT;
+	/** Adjacency index over <code>GRAPH</code>; built once on first use. */
+	transient private LocalConnCompEnrichment index = null;
 	
 		
 	ExecutionEnvironment ENV;
@@ -40,7 +54,7 @@ public class ConnCompEnrichment {
 	 * @param graph Underlying graph.
 	 * @param mapWeight Mapping from edge type to weight.
 	 */
-	public ConnCompEnrichment (int depth, Graph<String, String, Integer> graph,
+	public ConnCompEnrichment (int depth, Graph<Long, String, Integer> graph,
 			Map<Integer, Float> mapWeight, ExecutionEnvironment env) {
 		this.DEPTH=depth;
 		this.GRAPH=graph;
@@ -55,11 +69,18 @@ public class ConnCompEnrichment {
 	 * @param connComp A set of vertices which are a connected component.
 	 * @return The enriched connected component.
 	 */
-	public Graph<String, VertexValue, EdgeValue> getEnrichedConnComp (Set<String> connComp) {
-		Graph<String, VertexValue, EdgeValue> enrConnComp = null;
+	public Graph<Long, VertexValue, EdgeValue> getEnrichedConnComp (Set<Long> connComp) {
+		Graph<Long, VertexValue, EdgeValue> enrConnComp = null;
+		
+		// the adjacency index yields the vertices and edges of the subgraph without joining the whole graph
+		if (HolomaConstants.IS_INDEXED_ENRICHMENT) {
+			try {
+				return getIndex().getEnrichedConnComp(connComp).toGraph(this.ENV);
+			} catch (Exception e) { e.printStackTrace(); }
+		}
 		
 		// calculate the subgraph, i.e. the connected component plus some structure
-		Graph<String, VertexValue, Integer> subgraph = extractSubgraph(connComp);
+		Graph<Long, VertexValue, Integer> subgraph = extractSubgraph(connComp);
 		
 		// map the values of the edges from type to weight
 		enrConnComp = mapEdgeValues (subgraph);
@@ -68,88 +89,223 @@ public class ConnCompEnrichment {
 	}
 	
 	
+	/**
+	 * Starts the enrichment of all given connected components in one job.
+	 * The vertices are tagged with their component ID and the neighborhoods
+	 * of all components are expanded together by a delta iteration
+	 * over (component ID, vertex ID); each superstep adds one hop.
+	 * @param connCompts Map from component ID to a connected component.
+	 * @return The enriched connected components, tagged with their component ID.
+	 */
+	public EnrichedConnComps getEnrichedConnComps (Map<Long, Set<Long>> connCompts) {
+		List<Tuple2<Long, Long>> initialMembers = new ArrayList<Tuple2<Long, Long>>();
+		for (long compId : connCompts.keySet())
+			for (long vertexId : connCompts.get(compId))
+				initialMembers.add(new Tuple2<Long, Long>(compId, vertexId));
+		DataSet<Tuple2<Long, Long>> members = this.ENV.fromCollection(initialMembers);
+		
+		// #1 add vertices: the workset contains the vertices of the last hop
+		if (this.DEPTH > 0) {
+			DataSet<Tuple2<Long, Long>> undirectedEdges = this.GRAPH.getUndirected().getEdgeIds();
+			DeltaIteration<Tuple2<Long, Long>, Tuple2<Long, Long>> iteration =
+					members.iterateDelta(members, this.DEPTH, 0, 1);
+			DataSet<Tuple2<Long, Long>> newMembers = iteration.getWorkset()
+					.join(undirectedEdges).where(1).equalTo(0).with(new NeighborInConnComp())
+					.coGroup(iteration.getSolutionSet()).where(0, 1).equalTo(0, 1).with(new NewMemberFilter());
+			members = iteration.closeWith(newMembers, newMembers);
+		}
+		
+		// #2 vertices and edges of each enriched component
+		DataSet<Tuple3<Long, Long, VertexValue>> vertices = members
+				.join(this.GRAPH.getVertices()).where(1).equalTo(0).with(new MemberVertex());
+		DataSet<Tuple4<Long, Long, Long, EdgeValue>> edges = members
+				.join(this.GRAPH.getEdges()).where(1).equalTo(0).with(new MemberEdge(this.MAP_WEIGHT))
+				.join(members).where(0, 2).equalTo(0, 1).with(new EdgeWithinConnComp());
+		
+		return new EnrichedConnComps(vertices, edges);
+	}
+	
+	
 	/**
 	 * Extracts a subgraph from the given graph. The subgraph contains the connected
 	 * component plus structure according the depth <code>DEPTH</code>.
 	 * @param connComp A connected component within <code>GRAPH</code>.
 	 * @return The subgraph around the connected component.
 	 */
-	private Graph<String, VertexValue, Integer> extractSubgraph (Set<String> connComp) {		
-		Graph<String, String, Integer> subgraph = null;
-		Set<String> vertexIds = connComp;
+	private Graph<Long, VertexValue, Integer> extractSubgraph (Set<Long> connComp) {		
+		Graph<Long, String, Integer> subgraph = null;
 		// #1 add vertices:
-		// in each step the current vertexIds are expanded by all vertexIds which are one hop away
-		for (int i=1; i<= this.DEPTH; i++) {
-			try {
-				vertexIds = addNextHop (vertexIds);
-			} catch (Exception e) { e.printStackTrace(); }
-		}
-		// #2 create subgraph due to relevant vertices
-		final Set<String> relevantVertexIds = vertexIds;
-		subgraph = this.GRAPH.filterOnVertices(new FilterFunction<Vertex<String, String>>() {
-			
-			private static final long serialVersionUID = 1L;
-
-			public boolean filter(Vertex<String, String> value) throws Exception {
-				return relevantVertexIds.contains(value.f0);
-			}			
-		});
+		// the component is the only vertex set which is uploaded; in each step the vertex IDs
+		// of the previous step are expanded by all vertex IDs which are one hop away
+		DataSet<Tuple1<Long>> relevantVertexIds = toDataSet(connComp);
+		for (int i=1; i<= this.DEPTH; i++)
+			relevantVertexIds = addNextHop(relevantVertexIds);
+		// #2 create subgraph due to relevant vertices:
+		// the vertex IDs are joined as a DataSet instead of being serialized into the filter functions
+		DataSet<Vertex<Long, String>> vertices = this.GRAPH.getVertices()
+				.join(relevantVertexIds).where(0).equalTo(0).with(new KeepFirst<Vertex<Long, String>>());
+		DataSet<Edge<Long, Integer>> edges = this.GRAPH.getEdges()
+				.join(relevantVertexIds).where(0).equalTo(0).with(new KeepFirst<Edge<Long, Integer>>())
+				.join(relevantVertexIds).where(1).equalTo(0).with(new KeepFirst<Edge<Long, Integer>>());
+		subgraph = Graph.fromDataSet(vertices, edges, this.ENV);
 		// #3 change vertex value to complex vertex value type
-		Graph<String, VertexValue, Integer> g = subgraph.mapVertices(new MapperNull2VertexVal());			
+		Graph<Long, VertexValue, Integer> g = subgraph.mapVertices(new MapperNull2VertexVal());			
 		
 		return g;
 	}
 	
 	
+	/**
+	 * Returns the adjacency index over <code>GRAPH</code>; it is built on first use.
+	 * @return The enrichment on the adjacency index.
+	 * @throws Exception Collecting the graph for the index failed.
+	 */
+	private LocalConnCompEnrichment getIndex () throws Exception {
+		if (this.index == null) {
+			CsrGraph csrGraph = new CsrGraph(this.GRAPH.getVertices().collect(), this.GRAPH.getEdges().collect());
+			this.index = new LocalConnCompEnrichment(this.DEPTH, csrGraph, this.MAP_WEIGHT);
+		}
+		return this.index;
+	}
+	
+	
 	/**
 	 * Adds to the previous subgraph (represented by its vertex IDs)
 	 * all vertices (and the corresponding edges) which are one hop away.
-	 * @param vertexIds Set of vertices, represent the subgraph.
+	 * The hop is a further operator of the job, i.e., nothing is collected.
+	 * @param vertexIds Vertex IDs which represent the subgraph.
 	 * @return Vertex IDs of the of the current graph plus those which are one hop away.
-	 * @throws Exception Converting DataSet to List failed.
 	 */
-	private Set<String> addNextHop (Set<String> vertexIds) throws Exception {
-		final Set<String> currentVertices = vertexIds; 
-		Set<String> newVertexIds = new HashSet<String>();
-		DataSet<Tuple2<String, String>> edges = this.GRAPH.getEdgeIds();
-		
-		DataSet<Tuple2<String, String>> filteredEdges = edges
-				.filter( new FilterFunction<Tuple2<String, String>>() {
-					
-					private static final long serialVersionUID = 1L;
-
-					public boolean filter(Tuple2<String, String> value) throws Exception {
-						return ( currentVertices.contains(value.f0) 
-								|| currentVertices.contains(value.f1));
-					}
-				});
-		
-		for (Tuple2<String, String> edge : filteredEdges.collect()) {
-			newVertexIds.add(edge.f0);
-			newVertexIds.add(edge.f1);
-		}
+	private DataSet<Tuple1<Long>> addNextHop (DataSet<Tuple1<Long>> vertexIds) {
+		DataSet<Tuple2<Long, Long>> edges = this.GRAPH.getEdgeIds();
 		
-		return newVertexIds;		
+		// edges whose source or target is a current vertex
+		DataSet<Tuple2<Long, Long>> filteredEdges = edges
+				.join(vertexIds).where(0).equalTo(0).with(new KeepFirst<Tuple2<Long, Long>>())
+				.union(edges.join(vertexIds).where(1).equalTo(0).with(new KeepFirst<Tuple2<Long, Long>>()));
+		
+		return filteredEdges.flatMap(new EndPoints()).distinct();
 	}
 	
 	
 	
+	/**
+	 * Converts a set of vertex IDs to a DataSet which can be joined.
+	 * @param vertexIds Set of vertex IDs.
+	 * @return DataSet of vertex IDs.
+	 */
+	private DataSet<Tuple1<Long>> toDataSet (Set<Long> vertexIds) {
+		List<Tuple1<Long>> list = new ArrayList<Tuple1<Long>>(vertexIds.size());
+		for (long vertexId : vertexIds)
+			list.add(new Tuple1<Long>(vertexId));
+		return this.ENV.fromCollection(list);
+	}
+	
+	
 	/**
 	 * Maps the edge values from edge type to weight according to <code>MAP_WEIGHT</code>.
 	 * @param subgraph The graph for which the mapping is executed.
 	 * @return A new graph with mapped edges.
 	 */
-	private Graph<String, VertexValue, EdgeValue> mapEdgeValues (Graph<String, VertexValue, Integer> subgraph) {
+	private Graph<Long, VertexValue, EdgeValue> mapEdgeValues (Graph<Long, VertexValue, Integer> subgraph) {
 		
 		return subgraph.mapEdges(new MapperWeights(this.MAP_WEIGHT));
 	}
 	
 	
+	/** Keeps the first element of a join, i.e., the join acts as a filter. */
+	@SuppressWarnings("serial")
+	private final static class KeepFirst<T> implements JoinFunction<T, Tuple1<Long>, T> {
+
+		public T join(T first, Tuple1<Long> second) throws Exception {
+			return first;
+		}
+	}
+	
+	
+	/** Emits the source and the target of an edge. */
+	@SuppressWarnings("serial")
+	private final static class EndPoints implements FlatMapFunction<Tuple2<Long, Long>, Tuple1<Long>> {
+
+		public void flatMap(Tuple2<Long, Long> edge, Collector<Tuple1<Long>> out) throws Exception {
+			out.collect(new Tuple1<Long>(edge.f0));
+			out.collect(new Tuple1<Long>(edge.f1));
+		}
+	}
+	
+	
+	/** Tags the neighbor of a member with the component ID of the member. */
+	@SuppressWarnings("serial")
+	private final static class NeighborInConnComp
+			implements JoinFunction<Tuple2<Long, Long>, Tuple2<Long, Long>, Tuple2<Long, Long>> {
+
+		public Tuple2<Long, Long> join(Tuple2<Long, Long> member, Tuple2<Long, Long> edge) throws Exception {
+			return new Tuple2<Long, Long>(member.f0, edge.f1);
+		}
+	}
+	
+	
+	/** Emits a (component ID, vertex ID) pair once iff it is no member yet. */
+	@SuppressWarnings("serial")
+	private final static class NewMemberFilter
+			implements CoGroupFunction<Tuple2<Long, Long>, Tuple2<Long, Long>, Tuple2<Long, Long>> {
+
+		public void coGroup(Iterable<Tuple2<Long, Long>> candidates, Iterable<Tuple2<Long, Long>> members,
+				Collector<Tuple2<Long, Long>> out) throws Exception {
+			if (members.iterator().hasNext()) return;
+			Iterator<Tuple2<Long, Long>> it = candidates.iterator();
+			if (it.hasNext())
+				out.collect(it.next());
+		}
+	}
+	
+	
+	/** Maps a member to its vertex with the complex vertex value type. */
+	@SuppressWarnings("serial")
+	private final static class MemberVertex
+			implements JoinFunction<Tuple2<Long, Long>, Vertex<Long, String>, Tuple3<Long, Long, VertexValue>> {
+
+		public Tuple3<Long, Long, VertexValue> join(Tuple2<Long, Long> member, Vertex<Long, String> vertex) throws Exception {
+			return new Tuple3<Long, Long, VertexValue>(member.f0, vertex.f0, new VertexValue(vertex.f1, 0f));
+		}
+	}
+	
+	
+	/** Tags an outgoing edge of a member with the component ID, and maps edge type to weight. */
+	@SuppressWarnings("serial")
+	private final static class MemberEdge
+			implements JoinFunction<Tuple2<Long, Long>, Edge<Long, Integer>, Tuple4<Long, Long, Long, EdgeValue>> {
+		
+		/** Mapping from edge type to weight. */
+		private final Map<Integer, Float> MAP_WEIGHT;
+		
+		public MemberEdge (Map<Integer, Float> mapWeight) {
+			this.MAP_WEIGHT=mapWeight;
+		}
+
+		public Tuple4<Long, Long, Long, EdgeValue> join(Tuple2<Long, Long> member, Edge<Long, Integer> edge) throws Exception {
+			return new Tuple4<Long, Long, Long, EdgeValue>(member.f0, edge.f0, edge.f1,
+					new EdgeValue(edge.f2, this.MAP_WEIGHT.get(edge.f2)));
+		}
+	}
+	
+	
+	/** Keeps an edge iff its target is a member of the same component. */
+	@SuppressWarnings("serial")
+	private final static class EdgeWithinConnComp
+			implements JoinFunction<Tuple4<Long, Long, Long, EdgeValue>, Tuple2<Long, Long>, Tuple4<Long, Long, Long, EdgeValue>> {
+
+		public Tuple4<Long, Long, Long, EdgeValue> join(Tuple4<Long, Long, Long, EdgeValue> edge, Tuple2<Long, Long> member) throws Exception {
+			return edge;
+		}
+	}
+	
+	
 	/** Maps simple vertex values to the complex vertex value type. */
 	@SuppressWarnings("serial")
-	private final static class MapperNull2VertexVal implements MapFunction<Vertex<String, String>, VertexValue> {
+	private final static class MapperNull2VertexVal implements MapFunction<Vertex<Long, String>, VertexValue> {
 
-		public VertexValue map(Vertex<String, String> value) throws Exception {
+		public VertexValue map(Vertex<Long, String> value) throws Exception {
 			return new VertexValue(value.f1,0f);
 		}		
 	}
@@ -157,7 +313,7 @@ public class ConnCompEnrichment {
 	
 	/** Maps edge type to weight. */
 	@SuppressWarnings("serial")
-	private final static class MapperWeights implements MapFunction<Edge<String, Integer>, EdgeValue> {
+	private final static class MapperWeights implements MapFunction<Edge<Long, Integer>, EdgeValue> {
 		
 		/** Mapping from edge type to weight. */
 		private final Map<Integer, Float> MAP_WEIGHT;
@@ -166,7 +322,7 @@ public class ConnCompEnrichment {
 			this.MAP_WEIGHT=mapWeight;
 		}
 
-		public EdgeValue map(Edge<String, Integer> value) throws Exception {
+		public EdgeValue map(Edge<Long, Integer> value) throws Exception {
 			return new EdgeValue(value.getValue(), this.MAP_WEIGHT.get(value.f2));
 		}
 	}
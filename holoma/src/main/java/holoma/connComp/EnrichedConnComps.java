@@ -0,0 +1,104 @@
+package holoma.connComp;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.flink.api.common.functions.CoGroupFunction;
+import org.apache.flink.api.java.DataSet;
+import org.apache.flink.api.java.ExecutionEnvironment;
+import org.apache.flink.api.java.tuple.Tuple3;
+import org.apache.flink.api.java.tuple.Tuple4;
+import org.apache.flink.graph.Edge;
+import org.apache.flink.graph.Graph;
+import org.apache.flink.graph.Vertex;
+import org.apache.flink.util.Collector;
+
+import holoma.complexDatatypes.EdgeValue;
+import holoma.complexDatatypes.VertexValue;
+
+/**
+ * Enriched connected components which have been calculated together,
+ * see {@link ConnCompEnrichment#getEnrichedConnComps(Map)}.
+ * Each vertex and edge is tagged with the ID of its component;
+ * a vertex (or edge) occurs once per enriched component which contains it.
+ * @author max
+ *
+ */
+public class EnrichedConnComps {
+
+	/** Vertices: component ID, vertex ID, vertex value. */
+	private final DataSet<Tuple3<Long, Long, VertexValue>> vertices;
+	/** Edges: component ID, source ID, target ID, edge value. */
+	private final DataSet<Tuple4<Long, Long, Long, EdgeValue>> edges;
+
+
+	/**
+	 * Constructor.
+	 * @param vertices Vertices tagged with their component ID.
+	 * @param edges Edges tagged with their component ID.
+	 */
+	public EnrichedConnComps (DataSet<Tuple3<Long, Long, VertexValue>> vertices,
+			DataSet<Tuple4<Long, Long, Long, EdgeValue>> edges) {
+		this.vertices = vertices;
+		this.edges = edges;
+	}
+
+
+	/**
+	 * Returns the vertices of all enriched components.
+	 * @return DataSet of (component ID, vertex ID, vertex value).
+	 */
+	public DataSet<Tuple3<Long, Long, VertexValue>> getVertices () { return this.vertices; }
+
+	/**
+	 * Returns the edges of all enriched components.
+	 * @return DataSet of (component ID, source ID, target ID, edge value).
+	 */
+	public DataSet<Tuple4<Long, Long, Long, EdgeValue>> getEdges () { return this.edges; }
+
+
+	/**
+	 * Collects the enriched components and splits them into one graph per component.
+	 * The vertices and edges are grouped by their component within the job and
+	 * collected together, thus the enrichment runs once.
+	 * @param env Context in which the graphs are created.
+	 * @return Map from component ID to its enriched component.
+	 * @throws Exception Converting DataSet to List failed.
+	 */
+	public Map<Long, Graph<Long, VertexValue, EdgeValue>> collect (ExecutionEnvironment env) throws Exception {
+		List<Tuple3<Long, List<Vertex<Long, VertexValue>>, List<Edge<Long, EdgeValue>>>> connComps = this.vertices
+				.coGroup(this.edges).where(0).equalTo(0).with(new ConnCompParts()).collect();
+
+		Map<Long, Graph<Long, VertexValue, EdgeValue>> result = new HashMap<Long, Graph<Long, VertexValue, EdgeValue>>();
+		for (Tuple3<Long, List<Vertex<Long, VertexValue>>, List<Edge<Long, EdgeValue>>> connComp : connComps)
+			result.put(connComp.f0, Graph.fromCollection(connComp.f1, connComp.f2, env));
+		return result;
+	}
+
+
+	/** Groups the vertices and edges of a component into one record. */
+	@SuppressWarnings("serial")
+	private static final class ConnCompParts implements CoGroupFunction<Tuple3<Long, Long, VertexValue>,
+			Tuple4<Long, Long, Long, EdgeValue>, Tuple3<Long, List<Vertex<Long, VertexValue>>, List<Edge<Long, EdgeValue>>>> {
+
+		public void coGroup(Iterable<Tuple3<Long, Long, VertexValue>> vertices, Iterable<Tuple4<Long, Long, Long, EdgeValue>> edges,
+				Collector<Tuple3<Long, List<Vertex<Long, VertexValue>>, List<Edge<Long, EdgeValue>>>> out) throws Exception {
+			Long compId = null;
+			List<Vertex<Long, VertexValue>> vertexList = new ArrayList<Vertex<Long, VertexValue>>();
+			for (Tuple3<Long, Long, VertexValue> vertex : vertices) {
+				compId = vertex.f0;
+				vertexList.add(new Vertex<Long, VertexValue>(vertex.f1, vertex.f2));
+			}
+			// each edge connects two vertices of its component, thus there is no group of edges only
+			if (compId == null) return;
+			List<Edge<Long, EdgeValue>> edgeList = new ArrayList<Edge<Long, EdgeValue>>();
+			for (Tuple4<Long, Long, Long, EdgeValue> edge : edges)
+				edgeList.add(new Edge<Long, EdgeValue>(edge.f1, edge.f2, edge.f3));
+			out.collect(new Tuple3<Long, List<Vertex<Long, VertexValue>>, List<Edge<Long, EdgeValue>>>(compId, vertexList, edgeList));
+		}
+	}
+
+
+}
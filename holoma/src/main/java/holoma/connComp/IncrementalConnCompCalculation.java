@@ -0,0 +1,182 @@
+package holoma.connComp;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.flink.graph.Edge;
+
+import holoma.HolomaConstants;
+import tools.io.FieldScanner;
+import tools.io.InputFromFile;
+import tools.io.OutputToFile;
+
+/**
+ * Maintains connected components under newly added same-as edges,
+ * e.g., from a new batch of mapping correspondences.
+ * Starting from a persisted component assignment, only the components
+ * which are linked by the new edges are merged. As in {@link ConnCompCalculation},
+ * the component ID is the smallest vertex ID of the component.
+ * @author max
+ *
+ */
+public class IncrementalConnCompCalculation {
+
+	/** Map from component ID to its set of vertex IDs.*/
+	private final Map<Long, Set<Long>> connCompts;
+	/** Map from vertex ID to its component ID. */
+	private final Map<Long, Long> compOfVertex = new HashMap<Long, Long>();
+	/** IDs of the components of the loaded assignment. */
+	private final Set<Long> loadedConnCompts;
+	/** IDs of the components which have been created or enlarged by new edges. */
+	private final Set<Long> changedConnCompts = new HashSet<Long>();
+	/** IDs of the components which have been merged into other components. */
+	private final Set<Long> removedConnCompts = new HashSet<Long>();
+
+
+	/**
+	 * Constructor.
+	 * @param connCompts Map from component ID to its set of vertex IDs.
+	 */
+	public IncrementalConnCompCalculation (Map<Long, Set<Long>> connCompts) {
+		this.connCompts = connCompts;
+		this.loadedConnCompts = new HashSet<Long>(connCompts.keySet());
+		for (long compId : connCompts.keySet())
+			for (long vertexId : connCompts.get(compId))
+				this.compOfVertex.put(vertexId, compId);
+	}
+
+
+	/**
+	 * Returns the current connected components.
+	 * @return Map from component ID to its set of vertex IDs.
+	 */
+	public Map<Long, Set<Long>> getConnComp () { return this.connCompts; }
+
+	/**
+	 * Returns the IDs of the components which have been created or enlarged
+	 * since the assignment has been loaded. Only these have to be enriched and ranked again.
+	 * @return Set of component IDs.
+	 */
+	public Set<Long> getChangedConnComp () { return this.changedConnCompts; }
+
+	/**
+	 * Returns the IDs of the components which have been merged into other
+	 * components since the assignment has been loaded.
+	 * @return Set of component IDs.
+	 */
+	public Set<Long> getRemovedConnComp () { return this.removedConnCompts; }
+
+
+	/**
+	 * Merges the components which are linked by the given edges.
+	 * Edges which are no same-as edges are ignored.
+	 * @param edges New edges.
+	 * @return IDs of the components which have been changed by these edges.
+	 */
+	public Set<Long> addSameAsEdges (Collection<Edge<Long, Integer>> edges) {
+		Set<Long> changed = new HashSet<Long>();
+		for (Edge<Long, Integer> edge : edges) {
+			if (edge.getValue() != 0) continue;
+			long compSrc = getOrCreateConnComp(edge.getSource());
+			long compTrg = getOrCreateConnComp(edge.getTarget());
+			if (compSrc == compTrg) continue;
+			// the smaller ID survives
+			long compId = Math.min(compSrc, compTrg);
+			long otherId = Math.max(compSrc, compTrg);
+			Set<Long> component = this.connCompts.get(compId);
+			Set<Long> other = this.connCompts.remove(otherId);
+			for (long vertexId : other)
+				this.compOfVertex.put(vertexId, compId);
+			component.addAll(other);
+			changed.remove(otherId);
+			changed.add(compId);
+			this.changedConnCompts.remove(otherId);
+			this.changedConnCompts.add(compId);
+			if (this.loadedConnCompts.contains(otherId))
+				this.removedConnCompts.add(otherId);
+		}
+		return changed;
+	}
+
+
+	/**
+	 * Returns the component ID of the vertex. A vertex without component
+	 * (e.g., an eliminated singleton) becomes a new component.
+	 * @param vertexId ID of the vertex.
+	 * @return Component ID.
+	 */
+	private long getOrCreateConnComp (long vertexId) {
+		Long compId = this.compOfVertex.get(vertexId);
+		if (compId != null) return compId;
+		Set<Long> component = new HashSet<Long>();
+		component.add(vertexId);
+		this.connCompts.put(vertexId, component);
+		this.compOfVertex.put(vertexId, vertexId);
+		return vertexId;
+	}
+
+
+	/**
+	 * Prints the component assignment, one line "vertexID \t componentID" per vertex.
+	 * @param fileLoc Location of the assignment file.
+	 */
+	public void printToFile (String fileLoc) {
+		printToFile(this.connCompts, fileLoc);
+	}
+
+
+	/**
+	 * Prints the component assignment, one line "vertexID \t componentID" per vertex.
+	 * @param connCompts Map from component ID to its set of vertex IDs.
+	 * @param fileLoc Location of the assignment file.
+	 */
+	public static void printToFile (Map<Long, Set<Long>> connCompts, String fileLoc) {
+		OutputToFile out = new OutputToFile (fileLoc, HolomaConstants.OUTPUT_BUFFER_BYTES, HolomaConstants.IS_ASYNC_OUTPUT);
+		try {
+			for (long compId : connCompts.keySet())
+				for (long vertexId : connCompts.get(compId))
+					out.addToBuff(vertexId+"\t"+compId);
+		} finally {
+			out.close();
+		}
+	}
+
+
+	/**
+	 * Loads a component assignment which has been printed by {@link #printToFile(Map, String)}.
+	 * @param fileLoc Location of the assignment file.
+	 * @return Incremental calculation starting at the loaded components.
+	 * @exception IllegalArgumentException Wrong input file.
+	 * @exception IllegalStateException Reading the file failed; no partial assignment is returned.
+	 */
+	public static IncrementalConnCompCalculation loadFromFile (String fileLoc) throws IllegalArgumentException, IllegalStateException {
+		Map<Long, Set<Long>> connCompts = new HashMap<Long, Set<Long>>();
+		// the IDs are parsed from the mapped file without creating Strings per line
+		FieldScanner scanner = new InputFromFile.Builder(fileLoc).build().scan();
+		try {
+			while (scanner.nextLine()) {
+				if (scanner.getNumberOfFields() != 2)
+					throw new IllegalArgumentException("Invalid line "+scanner.getLineNumber()+" in component assignment file.");
+				long vertexId = scanner.getLong(0);
+				long compId = scanner.getLong(1);
+				Set<Long> component = connCompts.get(compId);
+				if (component == null) {
+					component = new HashSet<Long>();
+					connCompts.put(compId, component);
+				}
+				component.add(vertexId);
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException("Reading the component assignment file "+fileLoc+" failed.", e);
+		} finally {
+			scanner.close();
+		}
+		return new IncrementalConnCompCalculation(connCompts);
+	}
+
+
+}
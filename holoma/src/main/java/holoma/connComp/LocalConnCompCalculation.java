@@ -0,0 +1,109 @@
+package holoma.connComp;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import holoma.HolomaConstants;
+import holoma.graph.CsrGraph;
+
+/**
+ * This class provides methods for determining connected components
+ * on an in-memory CSR graph (local engine).
+ * Like {@link ConnCompCalculation}, only same-as edges are considered and
+ * the component ID is the smallest vertex ID of the component.
+ * @author max
+ *
+ */
+public class LocalConnCompCalculation {
+
+	/** The graph. */
+	private final CsrGraph GRAPH;
+	/** Map from component ID to its set of vertex IDs.*/
+	private Map<Long, Set<Long>> connCompts = new HashMap<Long, Set<Long>>();
+
+
+	/**
+	 * Constructor.
+	 * @param graph The graph which shall be evaluated.
+	 */
+	public LocalConnCompCalculation (CsrGraph graph) {
+		this.GRAPH = graph;
+	}
+
+
+	/**
+	 * Calculates the connected components on the whole graph of all ontologies.
+	 * @return Map from component ID to a connected component, i.e., a set of vertices.
+	 */
+	public Map<Long, Set<Long>> calculateConnComp () {
+		// exactly one ontology: no connected components
+		this.connCompts = (HolomaConstants.ONTOLOGY_FILES.length<=1) ? null : getConnComp();
+		return this.connCompts;
+	}
+
+
+	/**
+	 * Calculates the connected components by a breadth-first search over the same-as edges.
+	 * The vertices are visited in ascending order, thus the first vertex of each
+	 * component is its smallest one.
+	 * @return Map from component ID to its set of vertex IDs.
+	 */
+	private Map<Long, Set<Long>> getConnComp () {
+		Map<Long, Set<Long>> result = new HashMap<Long, Set<Long>>();
+		int n = this.GRAPH.getNumberOfVertices();
+		int[] outOffsets = this.GRAPH.getOutOffsets(CsrGraph.SAME_AS);
+		int[] outTargets = this.GRAPH.getOutTargets(CsrGraph.SAME_AS);
+		int[] inOffsets = this.GRAPH.getInOffsets(CsrGraph.SAME_AS);
+		int[] inSources = this.GRAPH.getInSources(CsrGraph.SAME_AS);
+		boolean[] visited = new boolean[n];
+		int[] queue = new int[n];
+
+		for (int root=0; root<n; root++) {
+			if (visited[root] || this.GRAPH.getOntName(root) == null) continue;
+			Set<Long> component = new HashSet<Long>();
+			int head = 0, tail = 0;
+			queue[tail++] = root;
+			visited[root] = true;
+			while (head < tail) {
+				int v = queue[head++];
+				component.add((long) v);
+				for (int e=outOffsets[v]; e<outOffsets[v+1]; e++) {
+					int u = outTargets[e];
+					if (!visited[u]) { visited[u] = true; queue[tail++] = u; }
+				}
+				for (int e=inOffsets[v]; e<inOffsets[v+1]; e++) {
+					int u = inSources[e];
+					if (!visited[u]) { visited[u] = true; queue[tail++] = u; }
+				}
+			}
+			if (HolomaConstants.NO_SINGLETON_CONNCOMP && component.size() <= 1)
+				continue;
+			result.put((long) root, component);
+		}
+		return result;
+	}
+
+
+	/**
+	 * Analyzes the connected components.
+	 * @return Analysis result.
+	 */
+	public String analyseConnComponents () {
+		return ConnCompCalculation.analyseConnComponents(this.connCompts);
+	}
+
+
+	/**
+	 * Streams the analysis of the connected components to <code>out</code>.
+	 * @param out Output, e.g., a file.
+	 * @throws IOException Writing failed.
+	 */
+	public void analyseConnComponents (Appendable out) throws IOException {
+		ConnCompCalculation.analyseConnComponents(this.connCompts, out);
+	}
+
+
+}
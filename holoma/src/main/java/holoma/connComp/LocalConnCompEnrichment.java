@@ -0,0 +1,118 @@
+package holoma.connComp;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+
+import holoma.graph.CsrGraph;
+import holoma.graph.CsrSubgraph;
+
+/**
+ * Enriches connected components
+ * with additional structure from the given ontologies
+ * on an in-memory CSR graph (local engine).
+ * Like {@link ConnCompEnrichment}, each hop adds all vertices which share
+ * an edge (of any type and direction) with the current vertices.
+ * @author max
+ *
+ */
+public class LocalConnCompEnrichment {
+
+	/** Depth of the enrichment. */
+	private final int DEPTH;
+	/** Underlying graph structure. */
+	private final CsrGraph GRAPH;
+	/** Mapping from edge type to weight. */
+	private final Map<Integer, Float> MAP_WEIGHT;
+	/** Marks the vertices which have been visited in the current enrichment (value equals <code>stamp</code>). */
+	private final int[] visited;
+	/** Identifies the current enrichment; the mark array is not cleared between enrichments. */
+	private int stamp = 0;
+	/** Vertices of the current enrichment in the order of their visit. */
+	private int[] queue = new int[16];
+	/** Number of vertices within <code>queue</code>. */
+	private int noQueued = 0;
+
+
+	/**
+	 * Constructor.
+	 * @param depth Depth of the enrichment of connected components.
+	 * @param graph Underlying graph.
+	 * @param mapWeight Mapping from edge type to weight.
+	 */
+	public LocalConnCompEnrichment (int depth, CsrGraph graph, Map<Integer, Float> mapWeight) {
+		this.DEPTH=depth;
+		this.GRAPH=graph;
+		this.MAP_WEIGHT=mapWeight;
+		this.visited = new int[graph.getNumberOfVertices()];
+	}
+
+
+	/**
+	 * Starts the enrichment of the connected component and
+	 * returns the result as a weighted subgraph.
+	 * @param connComp A set of vertices which are a connected component.
+	 * @return The enriched connected component.
+	 */
+	public CsrSubgraph getEnrichedConnComp (Set<Long> connComp) {
+		return CsrSubgraph.induce(this.GRAPH, extractVertices(connComp), this.MAP_WEIGHT);
+	}
+
+
+	/**
+	 * Calculates the vertices of the enriched component by a breadth-first search
+	 * of depth <code>DEPTH</code> starting at the connected component.
+	 * @param connComp A connected component within <code>GRAPH</code>.
+	 * @return The vertex IDs of the enriched component in ascending order.
+	 */
+	int[] extractVertices (Set<Long> connComp) {
+		this.stamp++;
+		this.noQueued = 0;
+		for (long vertexId : connComp)
+			visit((int) vertexId);
+		// in each step the vertices of the last hop are expanded by their neighbors
+		int frontierStart = 0;
+		for (int i=1; i<=this.DEPTH; i++) {
+			int frontierEnd = this.noQueued;
+			for (int f=frontierStart; f<frontierEnd; f++) {
+				int v = this.queue[f];
+				for (int type=0; type<2; type++) {
+					int[] offsets = this.GRAPH.getOutOffsets(type);
+					int[] targets = this.GRAPH.getOutTargets(type);
+					for (int e=offsets[v]; e<offsets[v+1]; e++)
+						visit(targets[e]);
+					offsets = this.GRAPH.getInOffsets(type);
+					int[] sources = this.GRAPH.getInSources(type);
+					for (int e=offsets[v]; e<offsets[v+1]; e++)
+						visit(sources[e]);
+				}
+			}
+			frontierStart = frontierEnd;
+		}
+		// a hop only yields vertices with edges: drop isolated vertices of the component
+		int[] result = new int[this.noQueued];
+		int k = 0;
+		for (int f=0; f<this.noQueued; f++) {
+			if (this.DEPTH == 0 || this.GRAPH.getDegree(this.queue[f]) > 0)
+				result[k++] = this.queue[f];
+		}
+		result = Arrays.copyOf(result, k);
+		Arrays.sort(result);
+		return result;
+	}
+
+
+	/**
+	 * Appends a vertex to the queue unless it has already been visited.
+	 * @param v The vertex.
+	 */
+	private void visit (int v) {
+		if (this.visited[v] == this.stamp) return;
+		this.visited[v] = this.stamp;
+		if (this.noQueued == this.queue.length)
+			this.queue = Arrays.copyOf(this.queue, 2*this.noQueued);
+		this.queue[this.noQueued++] = v;
+	}
+
+
+}
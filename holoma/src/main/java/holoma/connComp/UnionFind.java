@@ -0,0 +1,96 @@
+package holoma.connComp;
+
+/**
+ * Disjoint-set forest over the vertex IDs <i>0 ... n-1</i>
+ * with path compression and union by rank.
+ * @author max
+ *
+ */
+public class UnionFind {
+
+	/** Parent of each element; a root is its own parent. */
+	private final int[] parent;
+	/** Upper bound of the height of each root's tree. */
+	private final byte[] rank;
+
+
+	/**
+	 * Constructor. Each element is a set of its own.
+	 * @param size Number of elements.
+	 */
+	public UnionFind (int size) {
+		this.parent = new int[size];
+		this.rank = new byte[size];
+		for (int i=0; i<size; i++)
+			this.parent[i] = i;
+	}
+
+
+	/**
+	 * Returns the representative of the set which contains <code>x</code>.
+	 * All elements on the path to the root are linked to the root directly.
+	 * @param x An element.
+	 * @return The root of the set.
+	 */
+	public int find (int x) {
+		int root = x;
+		while (this.parent[root] != root)
+			root = this.parent[root];
+		while (this.parent[x] != root) {
+			int next = this.parent[x];
+			this.parent[x] = root;
+			x = next;
+		}
+		return root;
+	}
+
+
+	/**
+	 * Merges the sets which contain <code>x</code> and <code>y</code>.
+	 * The root of lower rank is linked to the root of higher rank.
+	 * @param x An element.
+	 * @param y An element.
+	 */
+	public void union (int x, int y) {
+		int rootX = find(x);
+		int rootY = find(y);
+		if (rootX == rootY) return;
+		if (this.rank[rootX] < this.rank[rootY])
+			this.parent[rootX] = rootY;
+		else if (this.rank[rootX] > this.rank[rootY])
+			this.parent[rootY] = rootX;
+		else {
+			this.parent[rootY] = rootX;
+			this.rank[rootX]++;
+		}
+	}
+
+
+	/**
+	 * Returns the root of each element.
+	 * @return Array which maps each element to the root of its set.
+	 */
+	public int[] getRoots () {
+		int[] roots = new int[this.parent.length];
+		for (int i=0; i<roots.length; i++)
+			roots[i] = find(i);
+		return roots;
+	}
+
+
+	/**
+	 * Calculates the connected components of an undirected graph in one pass over its edges.
+	 * @param size Number of vertices.
+	 * @param sources Source of each edge.
+	 * @param targets Target of each edge.
+	 * @return Array which maps each vertex to the root of its component.
+	 */
+	public static int[] components (int size, int[] sources, int[] targets) {
+		UnionFind uf = new UnionFind(size);
+		for (int e=0; e<sources.length; e++)
+			uf.union(sources[e], targets[e]);
+		return uf.getRoots();
+	}
+
+
+}
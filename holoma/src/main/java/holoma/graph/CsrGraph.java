@@ -0,0 +1,178 @@
+package holoma.graph;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.flink.graph.Edge;
+import org.apache.flink.graph.Vertex;
+
+/**
+ * In-memory graph in compressed sparse row (CSR) format.
+ * The vertex IDs are the dense IDs of the dictionary, thus a vertex ID is
+ * directly used as index into the arrays.
+ * For each edge type (same-as, is-a) there is a separate adjacency structure
+ * of the outgoing and of the incoming edges:
+ * the neighbors of vertex <i>v</i> are <code>targets[offsets[v]] ... targets[offsets[v+1]-1]</code>.
+ * @author max
+ *
+ */
+public class CsrGraph {
+
+	/** Edge type 'equal'. */
+	public static final int SAME_AS = 0;
+	/** Edge type 'is-a'. */
+	public static final int IS_A = 1;
+
+	/** Number of vertices, i.e., the highest vertex ID plus one. */
+	private final int noVertices;
+	/** Ontology name of each vertex ('null' iff the ID is no vertex). */
+	private final String[] ontNames;
+	/** Offsets of the outgoing edges, per edge type. */
+	private final int[][] outOffsets = new int[2][];
+	/** Targets of the outgoing edges, per edge type. */
+	private final int[][] outTargets = new int[2][];
+	/** Offsets of the incoming edges, per edge type. */
+	private final int[][] inOffsets = new int[2][];
+	/** Sources of the incoming edges, per edge type. */
+	private final int[][] inSources = new int[2][];
+
+
+	/**
+	 * Creates the CSR graph from a collection of vertices and edges.
+	 * @param vertices Vertices with dense IDs.
+	 * @param edges Edges of type same-as ('0') or is-a ('1').
+	 * @exception IllegalArgumentException Unknown edge type.
+	 */
+	public CsrGraph (Collection<Vertex<Long, String>> vertices, Collection<Edge<Long, Integer>> edges)
+			throws IllegalArgumentException {
+		// #1: vertices; ontology names are shared between vertices
+		int maxId = -1;
+		for (Vertex<Long, String> vertex : vertices)
+			maxId = Math.max(maxId, vertex.f0.intValue());
+		for (Edge<Long, Integer> edge : edges)
+			maxId = Math.max(maxId, Math.max(edge.f0.intValue(), edge.f1.intValue()));
+		this.noVertices = maxId+1;
+		this.ontNames = new String[this.noVertices];
+		Map<String, String> ontNamePool = new HashMap<String, String>();
+		for (Vertex<Long, String> vertex : vertices) {
+			String ontName = ontNamePool.get(vertex.f1);
+			if (ontName == null) {
+				ontName = vertex.f1;
+				ontNamePool.put(ontName, ontName);
+			}
+			if (this.ontNames[vertex.f0.intValue()] == null)
+				this.ontNames[vertex.f0.intValue()] = ontName;
+		}
+
+		// #2: count the degrees
+		for (int type=0; type<2; type++) {
+			this.outOffsets[type] = new int[this.noVertices+1];
+			this.inOffsets[type] = new int[this.noVertices+1];
+		}
+		for (Edge<Long, Integer> edge : edges) {
+			int type = checkType(edge.f2);
+			this.outOffsets[type][edge.f0.intValue()+1]++;
+			this.inOffsets[type][edge.f1.intValue()+1]++;
+		}
+
+		// #3: prefix sums and filling of the adjacency arrays
+		int[][] outPos = new int[2][];
+		int[][] inPos = new int[2][];
+		for (int type=0; type<2; type++) {
+			for (int v=0; v<this.noVertices; v++) {
+				this.outOffsets[type][v+1] += this.outOffsets[type][v];
+				this.inOffsets[type][v+1] += this.inOffsets[type][v];
+			}
+			this.outTargets[type] = new int[this.outOffsets[type][this.noVertices]];
+			this.inSources[type] = new int[this.inOffsets[type][this.noVertices]];
+			outPos[type] = this.outOffsets[type].clone();
+			inPos[type] = this.inOffsets[type].clone();
+		}
+		for (Edge<Long, Integer> edge : edges) {
+			int type = edge.f2;
+			int src = edge.f0.intValue();
+			int trg = edge.f1.intValue();
+			this.outTargets[type][outPos[type][src]++] = trg;
+			this.inSources[type][inPos[type][trg]++] = src;
+		}
+	}
+
+
+	/**
+	 * Checks whether an edge type is known.
+	 * @param type Edge type.
+	 * @return The edge type.
+	 * @exception IllegalArgumentException Unknown edge type.
+	 */
+	private static int checkType (int type) throws IllegalArgumentException {
+		if (type != SAME_AS && type != IS_A)
+			throw new IllegalArgumentException("Unknown edge type "+type+".");
+		return type;
+	}
+
+
+	/**
+	 * Returns the number of vertices, i.e., the highest vertex ID plus one.
+	 * @return Number of vertices.
+	 */
+	public int getNumberOfVertices () { return this.noVertices; }
+
+	/**
+	 * Returns the number of edges of the given type.
+	 * @param type Edge type.
+	 * @return Number of edges.
+	 */
+	public int getNumberOfEdges (int type) { return this.outTargets[checkType(type)].length; }
+
+	/**
+	 * Returns the ontology name of a vertex.
+	 * @param vertex Vertex ID.
+	 * @return Ontology name or 'null' iff the ID is no vertex.
+	 */
+	public String getOntName (int vertex) { return this.ontNames[vertex]; }
+
+	/**
+	 * Returns the offsets of the outgoing edges (length: number of vertices plus one).
+	 * @param type Edge type.
+	 * @return Offsets into {@link #getOutTargets(int)}.
+	 */
+	public int[] getOutOffsets (int type) { return this.outOffsets[checkType(type)]; }
+
+	/**
+	 * Returns the targets of the outgoing edges.
+	 * @param type Edge type.
+	 * @return Targets, grouped by source.
+	 */
+	public int[] getOutTargets (int type) { return this.outTargets[checkType(type)]; }
+
+	/**
+	 * Returns the offsets of the incoming edges (length: number of vertices plus one).
+	 * @param type Edge type.
+	 * @return Offsets into {@link #getInSources(int)}.
+	 */
+	public int[] getInOffsets (int type) { return this.inOffsets[checkType(type)]; }
+
+	/**
+	 * Returns the sources of the incoming edges.
+	 * @param type Edge type.
+	 * @return Sources, grouped by target.
+	 */
+	public int[] getInSources (int type) { return this.inSources[checkType(type)]; }
+
+	/**
+	 * Returns the number of edges of any type which start or end at a vertex.
+	 * @param vertex Vertex ID.
+	 * @return Degree of the vertex.
+	 */
+	public int getDegree (int vertex) {
+		int degree = 0;
+		for (int type=0; type<2; type++) {
+			degree += this.outOffsets[type][vertex+1] - this.outOffsets[type][vertex];
+			degree += this.inOffsets[type][vertex+1] - this.inOffsets[type][vertex];
+		}
+		return degree;
+	}
+
+
+}
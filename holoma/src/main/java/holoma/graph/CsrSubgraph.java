@@ -0,0 +1,251 @@
+package holoma.graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.flink.api.java.ExecutionEnvironment;
+import org.apache.flink.graph.Edge;
+import org.apache.flink.graph.Graph;
+import org.apache.flink.graph.Vertex;
+
+import holoma.complexDatatypes.EdgeValue;
+import holoma.complexDatatypes.VertexValue;
+
+/**
+ * Weighted in-memory subgraph in compressed sparse row (CSR) format,
+ * e.g., an enriched connected component.
+ * The vertices are addressed by a local index <i>0 ... n-1</i>; the local indices
+ * are ordered like the (global) vertex IDs.
+ * The outgoing edges of vertex <i>i</i> are at positions
+ * <code>offsets[i] ... offsets[i+1]-1</code> of the arrays
+ * <code>targets</code>, <code>weights</code> and <code>types</code>.
+ * @author max
+ *
+ */
+public class CsrSubgraph {
+
+	/** Global vertex ID per local index (ascending). */
+	private final long[] vertexIds;
+	/** Ontology name per local index. */
+	private final String[] ontNames;
+	/** Offsets of the outgoing edges per local index. */
+	private final int[] offsets;
+	/** Local index of the target of each edge. */
+	private final int[] targets;
+	/** Weight of each edge. */
+	private final float[] weights;
+	/** Type of each edge. */
+	private final int[] types;
+
+
+	/**
+	 * Constructor.
+	 * @param vertexIds Global vertex IDs in ascending order.
+	 * @param ontNames Ontology name per vertex.
+	 * @param edgeSources Local index of the source per edge.
+	 * @param edgeTargets Local index of the target per edge.
+	 * @param edgeTypes Type per edge.
+	 * @param edgeWeights Weight per edge.
+	 */
+	public CsrSubgraph (long[] vertexIds, String[] ontNames,
+			int[] edgeSources, int[] edgeTargets, int[] edgeTypes, float[] edgeWeights) {
+		this.vertexIds = vertexIds;
+		this.ontNames = ontNames;
+		int n = vertexIds.length;
+		int m = edgeSources.length;
+		// counting sort of the edges by their source
+		this.offsets = new int[n+1];
+		for (int e=0; e<m; e++)
+			this.offsets[edgeSources[e]+1]++;
+		for (int i=0; i<n; i++)
+			this.offsets[i+1] += this.offsets[i];
+		int[] pos = Arrays.copyOf(this.offsets, n);
+		this.targets = new int[m];
+		this.weights = new float[m];
+		this.types = new int[m];
+		for (int e=0; e<m; e++) {
+			int p = pos[edgeSources[e]]++;
+			this.targets[p] = edgeTargets[e];
+			this.weights[p] = edgeWeights[e];
+			this.types[p] = edgeTypes[e];
+		}
+	}
+
+
+	/**
+	 * Creates the subgraph of <code>graph</code> which is induced by the given vertices,
+	 * i.e., it contains all edges whose source and target are part of <code>vertices</code>.
+	 * @param graph The whole graph.
+	 * @param vertices The vertex IDs of the subgraph in ascending order.
+	 * @param mapWeight Mapping from edge type to weight.
+	 * @return The induced subgraph.
+	 */
+	public static CsrSubgraph induce (CsrGraph graph, int[] vertices, Map<Integer, Float> mapWeight) {
+		long[] vertexIds = new long[vertices.length];
+		String[] ontNames = new String[vertices.length];
+		for (int i=0; i<vertices.length; i++) {
+			vertexIds[i] = vertices[i];
+			ontNames[i] = graph.getOntName(vertices[i]);
+		}
+		// #1: count the edges within the subgraph
+		int m = 0;
+		for (int type=0; type<2; type++) {
+			int[] offsets = graph.getOutOffsets(type);
+			int[] targets = graph.getOutTargets(type);
+			for (int v : vertices)
+				for (int e=offsets[v]; e<offsets[v+1]; e++)
+					if (Arrays.binarySearch(vertices, targets[e]) >= 0) m++;
+		}
+		// #2: collect them
+		int[] edgeSources = new int[m];
+		int[] edgeTargets = new int[m];
+		int[] edgeTypes = new int[m];
+		float[] edgeWeights = new float[m];
+		int k = 0;
+		for (int type=0; type<2; type++) {
+			int[] offsets = graph.getOutOffsets(type);
+			int[] targets = graph.getOutTargets(type);
+			float weight = mapWeight.get(type);
+			for (int i=0; i<vertices.length; i++) {
+				int v = vertices[i];
+				for (int e=offsets[v]; e<offsets[v+1]; e++) {
+					int j = Arrays.binarySearch(vertices, targets[e]);
+					if (j < 0) continue;
+					edgeSources[k] = i;
+					edgeTargets[k] = j;
+					edgeTypes[k] = type;
+					edgeWeights[k] = weight;
+					k++;
+				}
+			}
+		}
+		return new CsrSubgraph(vertexIds, ontNames, edgeSources, edgeTargets, edgeTypes, edgeWeights);
+	}
+
+
+	/**
+	 * Creates the CSR representation of a (small) Gelly graph, e.g., an enriched connected component.
+	 * @param graph The weighted graph.
+	 * @return The subgraph in CSR format.
+	 * @throws Exception Converting DataSet to List failed.
+	 */
+	public static CsrSubgraph fromGraph (Graph<Long, VertexValue, EdgeValue> graph) throws Exception {
+		List<Vertex<Long, VertexValue>> vertices = graph.getVertices().collect();
+		List<Edge<Long, EdgeValue>> edges = graph.getEdges().collect();
+		int n = vertices.size();
+		long[] vertexIds = new long[n];
+		for (int i=0; i<n; i++)
+			vertexIds[i] = vertices.get(i).f0;
+		Arrays.sort(vertexIds);
+		String[] ontNames = new String[n];
+		for (Vertex<Long, VertexValue> vertex : vertices)
+			ontNames[Arrays.binarySearch(vertexIds, vertex.f0)] = vertex.f1.ontName;
+		
+		int m = edges.size();
+		int[] edgeSources = new int[m];
+		int[] edgeTargets = new int[m];
+		int[] edgeTypes = new int[m];
+		float[] edgeWeights = new float[m];
+		for (int e=0; e<m; e++) {
+			Edge<Long, EdgeValue> edge = edges.get(e);
+			edgeSources[e] = Arrays.binarySearch(vertexIds, edge.f0);
+			edgeTargets[e] = Arrays.binarySearch(vertexIds, edge.f1);
+			edgeTypes[e] = edge.f2.type;
+			edgeWeights[e] = edge.f2.weight;
+		}
+		return new CsrSubgraph(vertexIds, ontNames, edgeSources, edgeTargets, edgeTypes, edgeWeights);
+	}
+
+
+	/**
+	 * Creates a Gelly graph of the subgraph, e.g., to hand an enriched connected
+	 * component of the adjacency index to the Gelly workflow.
+	 * @param env The execution environment.
+	 * @return The weighted graph.
+	 */
+	public Graph<Long, VertexValue, EdgeValue> toGraph (ExecutionEnvironment env) {
+		List<Vertex<Long, VertexValue>> vertices = new ArrayList<Vertex<Long, VertexValue>>(this.vertexIds.length);
+		List<Edge<Long, EdgeValue>> edges = new ArrayList<Edge<Long, EdgeValue>>(this.targets.length);
+		for (int i=0; i<this.vertexIds.length; i++) {
+			vertices.add(new Vertex<Long, VertexValue>(this.vertexIds[i], new VertexValue(this.ontNames[i], 0f)));
+			for (int e=this.offsets[i]; e<this.offsets[i+1]; e++)
+				edges.add(new Edge<Long, EdgeValue>(this.vertexIds[i], this.vertexIds[this.targets[e]],
+						new EdgeValue(this.types[e], this.weights[e])));
+		}
+		return Graph.fromCollection(vertices, edges, env);
+	}
+
+
+	/**
+	 * Returns the number of vertices.
+	 * @return Number of vertices.
+	 */
+	public int getNumberOfVertices () { return this.vertexIds.length; }
+
+	/**
+	 * Returns the number of edges.
+	 * @return Number of edges.
+	 */
+	public int getNumberOfEdges () { return this.targets.length; }
+
+	/**
+	 * Returns the global vertex ID of a local index.
+	 * @param index Local index.
+	 * @return Global vertex ID.
+	 */
+	public long getVertexId (int index) { return this.vertexIds[index]; }
+
+	/**
+	 * Returns the local index of a global vertex ID.
+	 * @param vertexId Global vertex ID.
+	 * @return Local index or a negative value iff the vertex is not part of the subgraph.
+	 */
+	public int indexOf (long vertexId) { return Arrays.binarySearch(this.vertexIds, vertexId); }
+
+	/**
+	 * Returns the ontology name of a vertex.
+	 * @param index Local index.
+	 * @return Ontology name.
+	 */
+	public String getOntName (int index) { return this.ontNames[index]; }
+
+	/**
+	 * Returns the global vertex IDs by local index.
+	 * @return Global vertex IDs (ascending).
+	 */
+	public long[] getVertexIds () { return this.vertexIds; }
+
+	/**
+	 * Returns the ontology names by local index.
+	 * @return Ontology names.
+	 */
+	public String[] getOntNames () { return this.ontNames; }
+
+	/**
+	 * Returns the offsets of the outgoing edges (length: number of vertices plus one).
+	 * @return Offsets.
+	 */
+	public int[] getOffsets () { return this.offsets; }
+
+	/**
+	 * Returns the local index of the target of each edge.
+	 * @return Targets.
+	 */
+	public int[] getTargets () { return this.targets; }
+
+	/**
+	 * Returns the weight of each edge.
+	 * @return Weights.
+	 */
+	public float[] getWeights () { return this.weights; }
+
+	/**
+	 * Returns the type of each edge.
+	 * @return Types.
+	 */
+	public int[] getTypes () { return this.types; }
+
+
+}
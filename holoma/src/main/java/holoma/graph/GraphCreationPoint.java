@@ -1,5 +1,7 @@
 package holoma.graph;
 
+import java.io.IOException;
+import java.util.Collection;
 import java.util.Set;
 
 import org.apache.flink.api.java.DataSet;
@@ -12,12 +14,13 @@ import org.apache.flink.graph.Vertex;
 
 import holoma.HolomaConstants;
 import holoma.parsing.ParsingPoint;
+import holoma.parsing.UriDictionary;
 
 /**
  * This class creates the graph which
  * consists of ontologies and correspondences.
- * A <b>vertex</b> is defined as a tuple (url, ont)
- * with <i>url</i> its URL/ ID
+ * A <b>vertex</b> is defined as a tuple (id, ont)
+ * with <i>id</i> the dictionary ID of its URL
  * and <i>ont</i> the name of ontology to which it belongs to.
  * An <b>edged</b> is defined as a triple (src, trg, type)
  * with <i>src</i> the source, <i>trg</i> the target of the edge
@@ -31,6 +34,8 @@ public class GraphCreationPoint {
 	
 	/** Context in which the program is currently executed. */
 	ExecutionEnvironment env;
+	/** Dictionary which maps the URLs of the vertices to their IDs. */
+	private UriDictionary dictionary = null;
 	
 	/**
 	 * Constructor.
@@ -40,6 +45,13 @@ public class GraphCreationPoint {
 	}
 	
 	
+	/**
+	 * Returns the dictionary of the vertices of the last created graph.
+	 * @return Dictionary from URL to vertex ID, or 'null' iff no graph has been created yet.
+	 */
+	public UriDictionary getDictionary () { return this.dictionary; }
+	
+	
 	/**
 	 * Returns a graph which is created after parsing the specified ontology and mapping files.
 	 * @param ontologyPath Path of the ontology files.
@@ -52,34 +64,96 @@ public class GraphCreationPoint {
 	 * @param vertexFileLoc Where to print the vertex file.
 	 * @return The created graph.
 	 */
-	public Graph<String, String, Integer> getGraphFromOntologyFiles () {
-		// #0: Load vertices and edges	 
+	public Graph<Long, String, Integer> getGraphFromOntologyFiles () {
+		GraphSnapshot parsed = loadFromOntologyFiles();
+		
+		 // Creating the graph		 
+		Graph<Long, String, Integer> graph = createGraph(parsed.getEdges(), parsed.getVertices());
+		
+		return graph;
+	}
+	
+	
+	/**
+	 * Returns an in-memory CSR graph which is created after parsing the specified ontology and mapping files.
+	 * It is used by the local engine instead of a Gelly graph.
+	 * @return The created graph.
+	 */
+	public CsrGraph getCsrGraphFromOntologyFiles () {
+		GraphSnapshot parsed = loadFromOntologyFiles();
+		return new CsrGraph(parsed.getVertices(), parsed.getEdges());
+	}
+	
+	
+	/**
+	 * Loads the dictionary, edges and vertices from the snapshot or by parsing the ontology and mapping files.
+	 * @return Dictionary, edges and vertices.
+	 */
+	private GraphSnapshot loadFromOntologyFiles () {
+		// #0: Load a snapshot if the input files have not changed since it was written
+		byte[] snapshotKey = null;
+		if (HolomaConstants.IS_USING_SNAPSHOT) {
+			snapshotKey = getSnapshotKey();
+			GraphSnapshot snapshot = (snapshotKey == null) ? null 
+					: GraphSnapshot.load(HolomaConstants.SNAPSHOT_FILE_LOC, snapshotKey);
+			if (snapshot != null) {
+				System.out.println("Loading graph snapshot "+HolomaConstants.SNAPSHOT_FILE_LOC+" ... ");
+				this.dictionary = snapshot.getDictionary();
+				return snapshot;
+			}
+		}
+		
+		// #1: Load vertices and edges	 
 		ParsingPoint pp = new ParsingPoint ();		
 		if (HolomaConstants.IS_PRINTING_VALID_EDGVERT)
 			pp.printEdgeVertexToFile();
-		Set<Edge<String, Integer>> edges = pp.getEdges();
-		Set<Vertex<String, String>> vertices = pp.getVertices();
+		Set<Edge<Long, Integer>> edges = pp.getEdges();
+		Set<Vertex<Long, String>> vertices = pp.getVertices();
+		this.dictionary = pp.getDictionary();
 		if (HolomaConstants.IS_PRINTING_VALID_EDGVERT) {
 			System.out.println();
 			System.out.println("Printing "+edges.size()+" edges to file  ... ");
 			System.out.println("Printing "+vertices.size()+" vertices to file ... ");			
 		}
+		GraphSnapshot parsed = new GraphSnapshot(this.dictionary, edges, vertices);
 		
-		 // #1: Creating the graph		 
-		Graph<String, String, Integer> graph = createGraph(edges, vertices);
+		// #2: Save a snapshot for the next run
+		if (snapshotKey != null) {
+			System.out.println("Writing graph snapshot "+HolomaConstants.SNAPSHOT_FILE_LOC+" ... ");
+			try {
+				parsed.write(HolomaConstants.SNAPSHOT_FILE_LOC, snapshotKey);
+			} catch (IOException e) {
+				System.err.println("Cannot write graph snapshot.");
+				e.printStackTrace();
+			}
+		}
 		
-		return graph;
+		return parsed;
+	}
+	
+	
+	/**
+	 * Calculates the key of the graph snapshot for the current ontology and mapping files.
+	 * @return The key, or 'null' iff the input files cannot be read.
+	 */
+	private byte[] getSnapshotKey () {
+		try {
+			return GraphSnapshot.computeKey(HolomaConstants.PATH, HolomaConstants.ONTOLOGY_FILES, HolomaConstants.MAPPING_FILE);
+		} catch (IOException e) {
+			e.printStackTrace();
+			return null;
+		}
 	}
 	
 	
 	/**
 	 * Creates a graph based on a list of edges and vertices.
-	 * @param edges Set of edges.
-	 * @param vertices Set of vertices.
+	 * @param edges Collection of edges.
+	 * @param vertices Collection of vertices.
 	 * @return The graph.
 	 */
-	private Graph<String, String, Integer> createGraph (Set<Edge<String, Integer>> edges, Set<Vertex<String, String>> vertices) {
-		Graph<String, String, Integer> graph = Graph.fromCollection(vertices, edges, env);
+	private Graph<Long, String, Integer> createGraph (Collection<Edge<Long, Integer>> edges, Collection<Vertex<Long, String>> vertices) {
+		Graph<Long, String, Integer> graph = Graph.fromCollection(vertices, edges, env);
 		return graph;
 	}
 	
@@ -89,12 +163,13 @@ public class GraphCreationPoint {
 	 * Manages the creation of the graph.
 	 * @return The created graph.
 	 */
-	public Graph<String, String, Integer> getGraphFromEdgeVertexFile () {
+	public Graph<Long, String, Integer> getGraphFromEdgeVertexFile () {
 		// load vertices and edges
-		DataSet<Tuple2<String, String>> vertices = loadVertices(HolomaConstants.VERTEX_FILE_LOC);
-		DataSet<Tuple3<String, String, Integer>> edges = loadEdges(HolomaConstants.EDGE_FILE_LOC);
+		DataSet<Tuple2<Long, String>> vertices = loadVertices(HolomaConstants.VERTEX_FILE_LOC);
+		DataSet<Tuple3<Long, Long, Integer>> edges = loadEdges(HolomaConstants.EDGE_FILE_LOC);
+		this.dictionary = UriDictionary.loadFromFile(HolomaConstants.DICTIONARY_FILE_LOC);
 		// create graph with vertex ID type, vertex value type, and edge value type
-		Graph<String, String, Integer> graph = Graph.fromTupleDataSet(vertices, edges, env);
+		Graph<Long, String, Integer> graph = Graph.fromTupleDataSet(vertices, edges, env);
 		return graph;
 		
 	}
@@ -102,13 +177,13 @@ public class GraphCreationPoint {
 	/**
 	 * Loads the vertices of the graph.
 	 * @param vertexFileLocation Location of the vertex file.
-	 * @return The vertices of the graph. Format: (url, ont)
+	 * @return The vertices of the graph. Format: (id, ont)
 	 */
-	public DataSet<Tuple2<String, String>> loadVertices(String vertexFileLocation) {
-		DataSet<Tuple2<String, String>> vertexTuples = env.readCsvFile(vertexFileLocation)
+	public DataSet<Tuple2<Long, String>> loadVertices(String vertexFileLocation) {
+		DataSet<Tuple2<Long, String>> vertexTuples = env.readCsvFile(vertexFileLocation)
 				.fieldDelimiter("\t")  // configures the delimiter ("\t") that separates the fields within a row.
 				.ignoreComments("#")  // configures the string ('#') that starts comments
-				.types(String.class, String.class); // specifies the types for the CSV fields
+				.types(Long.class, String.class); // specifies the types for the CSV fields
 	
 		return vertexTuples;
 	}
@@ -119,11 +194,11 @@ public class GraphCreationPoint {
 	 * @param edgeFileLocation Location of the edge file.
 	 * @return The edges of the graph. Format: (src, trg, type)
 	 */
-	public DataSet<Tuple3<String, String, Integer>> loadEdges(String edgeFileLocation) {		
-		DataSet<Tuple3<String, String, Integer>> edgeTuples = env.readCsvFile(edgeFileLocation)
+	public DataSet<Tuple3<Long, Long, Integer>> loadEdges(String edgeFileLocation) {		
+		DataSet<Tuple3<Long, Long, Integer>> edgeTuples = env.readCsvFile(edgeFileLocation)
 				.fieldDelimiter("\t")  // configures the delimiter ("\t") that separates the fields within a row.
 	            .ignoreComments("#")  // configures the string ('#') that starts comments
-	            .types(String.class, String.class, Integer.class); // specifies the types for the CSV fields
+	            .types(Long.class, Long.class, Integer.class); // specifies the types for the CSV fields
 		
 		return edgeTuples;
 	}
@@ -0,0 +1,298 @@
+package holoma.graph;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.flink.graph.Edge;
+import org.apache.flink.graph.Vertex;
+
+import holoma.HolomaConstants;
+import holoma.parsing.UriDictionary;
+
+/**
+ * Binary snapshot of the parsed graph: the dictionary plus the encoded vertices and edges.
+ * A snapshot is keyed on the content of the ontology and mapping files, thus
+ * it is only loaded as long as none of these files has changed.
+ * <p>
+ * Schema (big endian): magic, version, key (length-prefixed),
+ * URIs (count, length-prefixed UTF-8), ontology names (count, length-prefixed UTF-8),
+ * vertices (count, ID array, ontology index array),
+ * edges (count, source array, target array, type array).
+ * @author max
+ *
+ */
+public class GraphSnapshot {
+
+	/** Identifies a snapshot file ("HOLO"). */
+	private static final int MAGIC = 0x484F4C4F;
+	/** Version of the schema. */
+	private static final int VERSION = 1;
+
+	/** Dictionary from URL to vertex ID. */
+	private final UriDictionary dictionary;
+	/** Edges of the graph. */
+	private final Collection<Edge<Long, Integer>> edges;
+	/** Vertices of the graph. */
+	private final Collection<Vertex<Long, String>> vertices;
+
+
+	/**
+	 * Constructor.
+	 * @param dictionary Dictionary from URL to vertex ID.
+	 * @param edges Edges of the graph.
+	 * @param vertices Vertices of the graph.
+	 */
+	public GraphSnapshot (UriDictionary dictionary, Collection<Edge<Long, Integer>> edges,
+			Collection<Vertex<Long, String>> vertices) {
+		this.dictionary = dictionary;
+		this.edges = edges;
+		this.vertices = vertices;
+	}
+
+	/**
+	 * Get the dictionary.
+	 * @return Dictionary from URL to vertex ID.
+	 */
+	public UriDictionary getDictionary () { return this.dictionary; }
+
+	/**
+	 * Get the edges.
+	 * @return Edges.
+	 */
+	public Collection<Edge<Long, Integer>> getEdges () { return this.edges; }
+
+	/**
+	 * Get the vertices.
+	 * @return Vertices.
+	 */
+	public Collection<Vertex<Long, String>> getVertices () { return this.vertices; }
+
+
+
+	/**
+	 * Calculates the key of the snapshot, i.e., a SHA-256 hash over the names and contents
+	 * of the ontology files and the mapping file plus the preprocessing mode.
+	 * @param path Path of the ontology and mapping files.
+	 * @param ontologyFiles Names of the ontology files.
+	 * @param mappingFile Name of the mapping file.
+	 * @return The key.
+	 * @throws IOException Cannot read an input file.
+	 */
+	public static byte[] computeKey (String path, String[] ontologyFiles, String mappingFile) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+		digest.update((byte) (HolomaConstants.IS_OPTIM_PREPR ? 1 : 0));
+		for (String ontology : ontologyFiles)
+			updateDigest(digest, path, ontology);
+		updateDigest(digest, path, mappingFile);
+		return digest.digest();
+	}
+
+
+	/**
+	 * Adds the name and the content of a file to the digest.
+	 * A missing file (which the parser skips) is hashed by its name only.
+	 * @param digest The digest.
+	 * @param path Path of the file.
+	 * @param fileName Name of the file.
+	 * @throws IOException Cannot read the file.
+	 */
+	private static void updateDigest (MessageDigest digest, String path, String fileName) throws IOException {
+		digest.update(fileName.getBytes(StandardCharsets.UTF_8));
+		File file = new File(path+fileName);
+		if (!file.exists()) {
+			digest.update((byte) 0);
+			return;
+		}
+		digest.update((byte) 1);
+		InputStream is = new FileInputStream(file);
+		try {
+			byte[] buff = new byte[1 << 16];
+			int len;
+			while ( (len = is.read(buff)) != -1 )
+				digest.update(buff, 0, len);
+		} finally {
+			is.close();
+		}
+	}
+
+
+
+	/**
+	 * Writes the snapshot to <code>fileLoc</code>.
+	 * @param fileLoc Location of the snapshot file.
+	 * @param key The key of the snapshot, see {@link #computeKey(String, String[], String)}.
+	 * @throws IOException Cannot write the snapshot file.
+	 */
+	public void write (String fileLoc, byte[] key) throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileLoc), 1 << 16));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(key.length);
+			out.write(key);
+			// dictionary
+			out.writeInt(this.dictionary.size());
+			for (int id=0; id<this.dictionary.size(); id++)
+				writeString(out, this.dictionary.decode(id));
+			// ontology names
+			Map<String, Integer> ontIndices = new HashMap<String, Integer>();
+			List<String> ontNames = new ArrayList<String>();
+			for (Vertex<Long, String> vertex : this.vertices) {
+				if (!ontIndices.containsKey(vertex.f1)) {
+					ontIndices.put(vertex.f1, ontNames.size());
+					ontNames.add(vertex.f1);
+				}
+			}
+			out.writeInt(ontNames.size());
+			for (String ontName : ontNames)
+				writeString(out, ontName);
+			// vertices
+			out.writeInt(this.vertices.size());
+			for (Vertex<Long, String> vertex : this.vertices)
+				out.writeInt(vertex.f0.intValue());
+			for (Vertex<Long, String> vertex : this.vertices)
+				out.writeInt(ontIndices.get(vertex.f1));
+			// edges
+			out.writeInt(this.edges.size());
+			for (Edge<Long, Integer> edge : this.edges)
+				out.writeInt(edge.f0.intValue());
+			for (Edge<Long, Integer> edge : this.edges)
+				out.writeInt(edge.f1.intValue());
+			for (Edge<Long, Integer> edge : this.edges)
+				out.writeByte(edge.f2);
+		} finally {
+			out.close();
+		}
+	}
+
+
+	/**
+	 * Loads a snapshot via memory mapping.
+	 * @param fileLoc Location of the snapshot file.
+	 * @param key The expected key, see {@link #computeKey(String, String[], String)}.
+	 * @return The snapshot or 'null' iff there is no snapshot file, or it is outdated or corrupt.
+	 */
+	public static GraphSnapshot load (String fileLoc, byte[] key) {
+		File file = new File(fileLoc);
+		if (!file.exists()) return null;
+		RandomAccessFile raf = null;
+		try {
+			raf = new RandomAccessFile(file, "r");
+			FileChannel channel = raf.getChannel();
+			MappedByteBuffer buff = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (buff.getInt() != MAGIC || buff.getInt() != VERSION)
+				return null;
+			byte[] storedKey = new byte[readLength(buff, 1)];
+			buff.get(storedKey);
+			if (!Arrays.equals(key, storedKey))
+				return null;
+			// dictionary
+			UriDictionary dictionary = new UriDictionary();
+			int noUris = readLength(buff, 4);
+			for (int i=0; i<noUris; i++)
+				dictionary.encode(readString(buff));
+			// ontology names
+			String[] ontNames = new String[readLength(buff, 4)];
+			for (int i=0; i<ontNames.length; i++)
+				ontNames[i] = readString(buff);
+			// vertices
+			int noVertices = readLength(buff, 8);
+			int[] vertexIds = new int[noVertices];
+			buff.asIntBuffer().get(vertexIds);
+			buff.position(buff.position() + 4*noVertices);
+			List<Vertex<Long, String>> vertices = new ArrayList<Vertex<Long, String>>(noVertices);
+			for (int i=0; i<noVertices; i++)
+				vertices.add(new Vertex<Long, String>((long) vertexIds[i], ontNames[buff.getInt()]));
+			// edges
+			int noEdges = readLength(buff, 9);
+			int[] sources = new int[noEdges];
+			int[] targets = new int[noEdges];
+			buff.asIntBuffer().get(sources);
+			buff.position(buff.position() + 4*noEdges);
+			buff.asIntBuffer().get(targets);
+			buff.position(buff.position() + 4*noEdges);
+			List<Edge<Long, Integer>> edges = new ArrayList<Edge<Long, Integer>>(noEdges);
+			for (int i=0; i<noEdges; i++)
+				edges.add(new Edge<Long, Integer>((long) sources[i], (long) targets[i], (int) buff.get()));
+
+			return new GraphSnapshot(dictionary, edges, vertices);
+		} catch (IOException | BufferUnderflowException | IndexOutOfBoundsException e) {
+			System.err.println("Cannot load graph snapshot "+fileLoc+": "+e);
+			return null;
+		} finally {
+			if (raf != null)
+				try {
+					raf.close();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+		}
+	}
+
+
+	/**
+	 * Writes a length-prefixed UTF-8 string.
+	 * @param out The output stream.
+	 * @param str The string.
+	 * @throws IOException Cannot write.
+	 */
+	private static void writeString (DataOutputStream out, String str) throws IOException {
+		byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+
+	/**
+	 * Reads the number of elements of an array and checks it against the remaining bytes,
+	 * thus a corrupt snapshot is a cache miss instead of a huge or negative allocation.
+	 * @param buff The buffer.
+	 * @param minBytes Minimal number of bytes per element.
+	 * @return The number of elements.
+	 * @throws IOException The number is negative or exceeds the remaining bytes.
+	 */
+	private static int readLength (MappedByteBuffer buff, int minBytes) throws IOException {
+		int length = buff.getInt();
+		if (length < 0 || (long) length*minBytes > buff.remaining())
+			throw new IOException("Invalid length "+length+" at position "+(buff.position()-4)+".");
+		return length;
+	}
+
+
+	/**
+	 * Reads a length-prefixed UTF-8 string.
+	 * @param buff The buffer.
+	 * @return The string.
+	 * @throws IOException The length is corrupt.
+	 */
+	private static String readString (MappedByteBuffer buff) throws IOException {
+		byte[] bytes = new byte[readLength(buff, 1)];
+		buff.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+
+}
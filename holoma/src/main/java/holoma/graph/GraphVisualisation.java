@@ -1,13 +1,18 @@
 package holoma.graph;
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.Map;
 import java.util.Set;
 
 import org.apache.flink.core.fs.FileSystem.WriteMode;
+import org.apache.flink.graph.Edge;
 import org.apache.flink.graph.Graph;
+import org.apache.flink.graph.Vertex;
 
 import holoma.HolomaConstants;
+import holoma.parsing.UriDictionary;
 import tools.io.OutputToFile;
+import tools.io.StreamingWriter;
 
 /**
  * Contains different methods for visualisation of a graph
@@ -26,18 +31,62 @@ public class GraphVisualisation implements Serializable {
 	 */
 	@SuppressWarnings("rawtypes")
 	public static String showEdgesVertices (Graph g) {
-		String str = "";
+		StringBuilder str = new StringBuilder();
+		appendEdgesVertices(str, g);
+		return str.toString();
+	}
+	
+	/**
+	 * Streams the edges and vertices of a graph <code>g</code> to <code>out</code>.
+	 * @param out Output, e.g., a file.
+	 * @param g A graph.
+	 */
+	@SuppressWarnings("rawtypes")
+	public static void appendEdgesVertices (Appendable out, Graph g) {
 		try {
-			str = "Edges:\n";
+			out.append("Edges:\n");
 			for (Object edge : g.getEdges().collect())
-				str += " "+edge+"\n";
-			str += "\nVertices:\n";
+				out.append(" ").append(String.valueOf(edge)).append("\n");
+			out.append("\nVertices:\n");
 			for (Object vertex : g.getVertices().collect())
-				str += " "+vertex+"\n";
+				out.append(" ").append(String.valueOf(vertex)).append("\n");
+		} catch (Exception e1) {
+			e1.printStackTrace();
+		}
+	}
+	
+	/**
+	 * Prints the edges and vertices of a graph <code>g</code> whereby the vertex IDs
+	 * are resolved to their URLs.
+	 * @param g A graph.
+	 * @param dictionary Dictionary which resolves the vertex IDs to their URLs.
+	 * @return Result.
+	 */
+	public static <VV, EV> String showEdgesVertices (Graph<Long, VV, EV> g, UriDictionary dictionary) {
+		StringBuilder str = new StringBuilder();
+		appendEdgesVertices(str, g, dictionary);
+		return str.toString();
+	}
+	
+	/**
+	 * Streams the edges and vertices of a graph <code>g</code> to <code>out</code> whereby
+	 * the vertex IDs are resolved to their URLs.
+	 * @param out Output, e.g., a file.
+	 * @param g A graph.
+	 * @param dictionary Dictionary which resolves the vertex IDs to their URLs.
+	 */
+	public static <VV, EV> void appendEdgesVertices (Appendable out, Graph<Long, VV, EV> g, UriDictionary dictionary) {
+		try {
+			out.append("Edges:\n");
+			for (Edge<Long, EV> edge : g.getEdges().collect())
+				out.append(" (").append(dictionary.decode(edge.f0)).append(",").append(dictionary.decode(edge.f1))
+					.append(",").append(String.valueOf(edge.f2)).append(")\n");
+			out.append("\nVertices:\n");
+			for (Vertex<Long, VV> vertex : g.getVertices().collect())
+				out.append(" (").append(dictionary.decode(vertex.f0)).append(",").append(String.valueOf(vertex.f1)).append(")\n");
 		} catch (Exception e1) {
 			e1.printStackTrace();
 		}
-		return str;
 	}
 	
 	/**
@@ -60,28 +109,79 @@ public class GraphVisualisation implements Serializable {
 	/**
 	 * Prints the connected components to the console.
 	 * @param connCompts Map of connected components.
+	 * @param dictionary Dictionary which resolves the vertex IDs to their URLs.
 	 */
-	public static void showConnectedComponents (Map<Long, Set<String>> connCompts) {			
+	public static void showConnectedComponents (Map<Long, Set<Long>> connCompts, UriDictionary dictionary) {			
 		for (Long key : connCompts.keySet()) {
 			System.out.println("component ID: "+key);
-			System.out.println(connCompts.get(key));
+			for (long vertex : connCompts.get(key))
+				System.out.println(dictionary.decode(vertex));
 		}		
 	}
 	
 	/**
-	 * Prints the connected components to <code>path</code>.
-	 * Schema: Each set of connected components is introduced by a dotted line 
+	 * Prints the connected components to <code>CONNCOMP_FILE_LOC</code>
+	 * in the format <code>CONNCOMP_OUTPUT_FORMAT</code>.
+	 * @param connCompts Map of connected components.
+	 * @param dictionary Dictionary which resolves the vertex IDs to their URLs.
+	 */
+	public static void printConnectedComponents (Map<Long, Set<Long>> connCompts, UriDictionary dictionary) {
+		printConnectedComponents(connCompts, dictionary, HolomaConstants.CONNCOMP_FILE_LOC, HolomaConstants.CONNCOMP_OUTPUT_FORMAT);
+	}
+	
+	/**
+	 * Prints the connected components to <code>pathFile</code>.
+	 * Schema of the text formats: Each set of connected components is introduced by a dotted line 
 	 * followed by the component ID. The following lines contain the particular vertex URLs.
+	 * Schema of the binary format: one record per component, i.e., the component ID (long),
+	 * the number of vertices (int) and the vertex IDs (long); the URLs are given by the dictionary file.
 	 * @param connCompts Map of connected components.
+	 * @param dictionary Dictionary which resolves the vertex IDs to their URLs.
+	 * @param pathFile Location of the file (without the suffix of the format).
+	 * @param format Format of {@link StreamingWriter}.
 	 */
-	public static void printConnectedComponents (Map<Long, Set<String>> connCompts) {
-		OutputToFile out = new OutputToFile (500, HolomaConstants.CONNCOMP_FILE_LOC);
-		for (Long key : connCompts.keySet()) {
-			out.addToBuff("-------------\ncomponent ID: "+key);
-			for (String vertex : connCompts.get(key))
-				out.addToBuff(vertex);
-		}	
-		out.close();
+	public static void printConnectedComponents (Map<Long, Set<Long>> connCompts, UriDictionary dictionary,
+			String pathFile, int format) {
+		if (format == StreamingWriter.PLAIN) {
+			OutputToFile out = new OutputToFile (pathFile, HolomaConstants.OUTPUT_BUFFER_BYTES, HolomaConstants.IS_ASYNC_OUTPUT);
+			try {
+				for (Long key : connCompts.keySet()) {
+					out.addToBuff("-------------\ncomponent ID: "+key);
+					for (long vertex : connCompts.get(key))
+						out.addToBuff(dictionary.decode(vertex));
+				}
+			} finally {
+				out.close();
+			}
+			return;
+		}
+		StreamingWriter out = null;
+		try {
+			out = new StreamingWriter(pathFile, format, HolomaConstants.OUTPUT_BUFFER_BYTES);
+			for (Long key : connCompts.keySet()) {
+				Set<Long> connComp = connCompts.get(key);
+				if (out.isBinary()) {
+					out.writeLong(key);
+					out.writeInt(connComp.size());
+					for (long vertex : connComp)
+						out.writeLong(vertex);
+				} else {
+					out.writeLine("-------------\ncomponent ID: "+key);
+					for (long vertex : connComp)
+						out.writeLine(dictionary.decode(vertex));
+				}
+			}
+		} catch (IOException e) {
+			System.err.println("Wrong path '"+StreamingWriter.getPath(pathFile, format)+"'.");
+			e.printStackTrace();
+		} finally {
+			if (out != null)
+				try {
+					out.close();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+		}
 	}
 	
 	
@@ -0,0 +1,221 @@
+package holoma.parsing;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.ClosedByInterruptException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import tools.io.FieldScanner;
+
+/**
+ * Reads the correspondences of a mapping file.
+ * Schema: Each line contains the URIs of two vertices, the names of their ontologies
+ * and two further columns, separated by commas.
+ * The file is scanned memory-mapped, split by split, optionally by several threads.
+ * The ontology names are lowercased once per distinct name and shared by all correspondences.
+ * The correspondences are handed to a {@link CorrespondenceHandler} with the IDs of the dictionary.
+ * @author max
+ *
+ */
+public class MappingFileReader {
+
+	/** Number of columns of the mapping file. */
+	private static final int NUM_COLUMNS = 6;
+	/** Minimal size in bytes of a split which is read by its own thread. */
+	private static final long MIN_SPLIT_BYTES = 1 << 23;
+
+	/** Receives the correspondences in the order of the mapping file. */
+	public interface CorrespondenceHandler {
+		/**
+		 * Adds a correspondence.
+		 * @param src ID of the first vertex.
+		 * @param trg ID of the second vertex.
+		 * @param srcOnt Ontology name of the first vertex.
+		 * @param trgOnt Ontology name of the second vertex.
+		 */
+		void add (long src, long trg, String srcOnt, String trgOnt);
+	}
+
+	/** The splits in the order of the file; 'null' iff they have been encoded. */
+	private List<Split> splits;
+	private int numCorrespondences = 0;
+
+
+	/**
+	 * Reads the mapping file.
+	 * @param fileLoc Location of the mapping file.
+	 * @param parallelism Maximal number of threads.
+	 * @exception IllegalArgumentException Wrong input file.
+	 * @exception IllegalStateException Reading the file failed or has been interrupted.
+	 */
+	public MappingFileReader (String fileLoc, int parallelism) throws IllegalArgumentException, IllegalStateException {
+		this(fileLoc, parallelism, MIN_SPLIT_BYTES);
+	}
+
+	/**
+	 * Reads the mapping file in splits of at least <code>minSplitBytes</code>.
+	 * @param fileLoc Location of the mapping file.
+	 * @param parallelism Maximal number of threads.
+	 * @param minSplitBytes Minimal size in bytes of a split.
+	 * @exception IllegalArgumentException Wrong input file.
+	 * @exception IllegalStateException Reading the file failed or has been interrupted.
+	 */
+	MappingFileReader (String fileLoc, int parallelism, long minSplitBytes) throws IllegalArgumentException, IllegalStateException {
+		final File file = new File(fileLoc);
+		long size = file.length();
+		int numSplits = (int) Math.max(1, Math.min(parallelism, size / minSplitBytes));
+		this.splits = new ArrayList<Split>(numSplits);
+		if (numSplits == 1) {
+			this.splits.add(readSplit(file, 0, size));
+		} else {
+			ExecutorService executor = Executors.newFixedThreadPool(numSplits);
+			List<Future<Split>> tasks = new ArrayList<Future<Split>>();
+			try {
+				for (int i=0; i<numSplits; i++) {
+					final long from = size*i/numSplits;
+					final long to = size*(i+1)/numSplits;
+					tasks.add(executor.submit(new Callable<Split>() {
+						public Split call() {
+							return readSplit(file, from, to);
+						}
+					}));
+				}
+				for (Future<Split> task : tasks)
+					this.splits.add(task.get());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Reading "+fileLoc+" has been interrupted.", e);
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof IllegalArgumentException)
+					throw (IllegalArgumentException) e.getCause();
+				throw new IllegalStateException("Reading "+fileLoc+" failed.", e.getCause());
+			} finally {
+				executor.shutdownNow();
+			}
+		}
+		for (Split split : this.splits)
+			this.numCorrespondences += split.size;
+	}
+
+
+	/**
+	 * Returns the number of correspondences of the mapping file.
+	 * @return Number of correspondences.
+	 */
+	public int getNumberOfCorrespondences () { return this.numCorrespondences; }
+
+
+	/**
+	 * Replaces the URIs by their IDs of the dictionary (unknown URIs are added), in the order of the file,
+	 * and hands the correspondences to the handler. The URIs are released afterwards.
+	 * @param dictionary Dictionary which maps the URIs of the vertices to their IDs.
+	 * @param handler Receives the correspondences.
+	 * @exception IllegalStateException The correspondences have already been encoded.
+	 */
+	public void encode (UriDictionary dictionary, CorrespondenceHandler handler) throws IllegalStateException {
+		if (this.splits == null)
+			throw new IllegalStateException("The correspondences have already been encoded.");
+		Map<String, String> ontNamePool = new HashMap<String, String>();
+		for (Split split : this.splits) {
+			String[] ontNames = new String[split.ontNames.size()];
+			for (int i=0; i<ontNames.length; i++) {
+				String ontName = ontNamePool.get(split.ontNames.get(i));
+				if (ontName == null) {
+					ontName = split.ontNames.get(i);
+					ontNamePool.put(ontName, ontName);
+				}
+				ontNames[i] = ontName;
+			}
+			for (int row=0; row<split.size; row++) {
+				long src = dictionary.encode(split.uris[2*row]);
+				long trg = dictionary.encode(split.uris[2*row+1]);
+				handler.add(src, trg, ontNames[split.onts[2*row]], ontNames[split.onts[2*row+1]]);
+			}
+		}
+		this.splits = null;
+	}
+
+
+	/**
+	 * Reads the lines which start within <code>[from, to)</code>.
+	 * @param file The mapping file.
+	 * @param from Position of the split within the file.
+	 * @param to Position behind the split.
+	 * @return The correspondences of the split.
+	 * @exception IllegalArgumentException Wrong input file.
+	 * @exception IllegalStateException Reading the file failed or has been interrupted.
+	 */
+	private static Split readSplit (File file, long from, long to) throws IllegalArgumentException, IllegalStateException {
+		Split split = new Split();
+		FieldScanner scanner = null;
+		try {
+			scanner = new FieldScanner(file, ',', from, to, FieldScanner.DEFAULT_WINDOW_BYTES);
+			while (scanner.nextLine()) {
+				// check whether it is the right mapping file
+				if (scanner.getNumberOfFields() != NUM_COLUMNS)
+					throw new IllegalArgumentException("Line at byte "+scanner.getLinePosition()+" of the mapping file has "
+							+scanner.getNumberOfFields()+" columns. "+NUM_COLUMNS+" expected!");
+				split.add(scanner.getString(0), scanner.getString(1), split.getOntIndex(scanner, 2), split.getOntIndex(scanner, 3));
+			}
+		} catch (ClosedByInterruptException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Reading "+file+" has been interrupted.", e);
+		} catch (IOException e) {
+			throw new IllegalStateException("Reading "+file+" failed.", e);
+		} finally {
+			if (scanner != null)
+				scanner.close();
+		}
+		return split;
+	}
+
+
+	/** Correspondences of one split of the mapping file. */
+	private static final class Split {
+		/** URIs of the correspondences, two per correspondence. */
+		String[] uris = new String[1024];
+		/** Indexes into <code>ontNames</code>, two per correspondence. */
+		int[] onts = new int[1024];
+		int size = 0;
+		/** Distinct ontology names as within the file. */
+		final List<byte[]> rawOntNames = new ArrayList<byte[]>();
+		/** Lowercased ontology names. */
+		final List<String> ontNames = new ArrayList<String>();
+
+		void add (String src, String trg, int srcOnt, int trgOnt) {
+			if (2*this.size+1 >= this.uris.length) {
+				this.uris = Arrays.copyOf(this.uris, 2*this.uris.length);
+				this.onts = Arrays.copyOf(this.onts, 2*this.onts.length);
+			}
+			this.uris[2*this.size] = src;
+			this.uris[2*this.size+1] = trg;
+			this.onts[2*this.size] = srcOnt;
+			this.onts[2*this.size+1] = trgOnt;
+			this.size++;
+		}
+
+		/**
+		 * Returns the index of the ontology name of a field; the names are compared bytewise,
+		 * thus only a new name is decoded and lowercased.
+		 */
+		int getOntIndex (FieldScanner scanner, int field) {
+			for (int i=0; i<this.rawOntNames.size(); i++) {
+				if (scanner.fieldEquals(field, this.rawOntNames.get(i)))
+					return i;
+			}
+			this.rawOntNames.add(scanner.getBytes(field));
+			this.ontNames.add(scanner.getString(field).toLowerCase());
+			return this.ontNames.size()-1;
+		}
+	}
+
+}
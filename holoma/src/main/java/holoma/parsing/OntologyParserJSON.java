@@ -1,9 +1,12 @@
 package holoma.parsing;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -13,6 +16,9 @@ import org.apache.flink.graph.Vertex;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import holoma.HolomaConstants;
 
 /**
  * Parser of a JSON ontology file.
@@ -58,12 +64,25 @@ public class OntologyParserJSON {
 	
 	/** Parses a JSON file which contains ontological information. */
 	public void doParsing () {
+		if (HolomaConstants.IS_STREAMING_PARSER)
+			doStreamParsing();
+		else
+			doTreeParsing();
+	}
+	
+	
+	/**
+	 * Parses the JSON file by converting it into one JSON object.
+	 * The whole file is kept in memory.
+	 */
+	private void doTreeParsing () {
 		try {
 			if (ONT_FILE.exists()){
 				InputStream is = new FileInputStream(ONT_FILE);
 
 				//the inputStream has to be converted to a String
 				String jsonTxt = IOUtils.toString(is);
+				is.close();
 
 				//the String is converted to a JSON object
 				JSONObject json = new JSONObject(jsonTxt);
@@ -72,39 +91,8 @@ public class OntologyParserJSON {
 				JSONArray jsonArray= json.getJSONArray("@graph");
 				int size = jsonArray.length();
 				
-				for (int i=0; i < size; i++){
-					JSONObject graph_dependency_object = jsonArray.getJSONObject(i);
-					// get id
-					String graphID = graph_dependency_object.get("@id").toString();
-					graphID = enrichShortHandNode(graphID);
-			
-					Vertex<String, String> vertex = new Vertex<String, String>(graphID, this.ONT_NAME);
-					this.vertexSet.add(vertex);
-					
-					// get subclasses
-					String typeSubclassField = graph_dependency_object.get("subClassOf").getClass().getName();
-					// only one parent: field is a string
-					if (typeSubclassField.equals("java.lang.String")) {
-						String subclass = enrichShortHandNode(graph_dependency_object.get("subClassOf").toString());
-						// blank nodes are ignored
-						if (!subclass.startsWith("_:")) {
-							Edge<String, Integer> edge = new Edge<String, Integer>(graphID, subclass, 1);
-							this.edgeSet.add(edge);
-						}
-					}
-					// more than on parent: field is an array
-					else {
-						JSONArray jArray = graph_dependency_object.getJSONArray("subClassOf");
-						for (int j=0; j<jArray.length(); j++){
-							String subclass = enrichShortHandNode(jArray.getString(j));
-							// blank nodes are ignored
-							if (!subclass.startsWith("_:")) {
-								Edge<String, Integer> edge = new Edge<String, Integer>(graphID, subclass, 1);
-								this.edgeSet.add(edge);
-							} // end if
-						} // end for j
-					} // end else
-				} // end for i
+				for (int i=0; i < size; i++)
+					parseGraphObject(jsonArray.getJSONObject(i));
 			} // end if
 		} catch (JSONException  | IOException e) {
 			e.printStackTrace();
@@ -112,6 +100,113 @@ public class OntologyParserJSON {
 	}
 	
 	
+	/**
+	 * Parses the JSON file token by token. Only the entries of the '@graph' array
+	 * are materialized, one object at a time, thus the memory needed for
+	 * parsing does not depend on the size of the file.
+	 */
+	private void doStreamParsing () {
+		if (!ONT_FILE.exists()) return;
+		Reader reader = null;
+		try {
+			reader = new BufferedReader(new InputStreamReader(new FileInputStream(ONT_FILE), "UTF-8"));
+			JSONTokener tokener = new JSONTokener(reader);
+			if (tokener.nextClean() != '{')
+				throw tokener.syntaxError("A JSON-LD file must begin with '{'");
+			// iterate over the keys of the top level object
+			char c = tokener.nextClean();
+			while (c != '}') {
+				if (c != '"')
+					throw tokener.syntaxError("Expected a key");
+				String key = tokener.nextString('"');
+				if (tokener.nextClean() != ':')
+					throw tokener.syntaxError("Expected a ':' after a key");
+				if (key.equals("@graph"))
+					streamGraphArray(tokener);
+				else
+					tokener.nextValue(); // e.g. '@context': small, thus read and dropped
+				c = tokener.nextClean();
+				if (c == ',')
+					c = tokener.nextClean();
+				else if (c != '}')
+					throw tokener.syntaxError("Expected a ',' or '}'");
+			}
+		} catch (JSONException  | IOException e) {
+			e.printStackTrace();
+		} finally {
+			if (reader != null)
+				try {
+					reader.close();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+		}
+	}
+	
+	
+	/**
+	 * Reads the '@graph' array from the tokener and parses each of its objects.
+	 * @param tokener Tokener which is positioned in front of the array.
+	 * @throws JSONException Syntax error within the array.
+	 */
+	private void streamGraphArray (JSONTokener tokener) throws JSONException {
+		if (tokener.nextClean() != '[')
+			throw tokener.syntaxError("'@graph' has to be an array");
+		char c = tokener.nextClean();
+		if (c == ']') return;
+		tokener.back();
+		while (true) {
+			Object value = tokener.nextValue();
+			if (!(value instanceof JSONObject))
+				throw tokener.syntaxError("'@graph' has to contain objects only");
+			parseGraphObject((JSONObject) value);
+			c = tokener.nextClean();
+			if (c == ']') return;
+			if (c != ',')
+				throw tokener.syntaxError("Expected a ',' or ']'");
+		}
+	}
+	
+	
+	/**
+	 * Adds the vertex and the is-a edges of one entry of the '@graph' array.
+	 * @param graph_dependency_object An entry of the '@graph' array.
+	 * @throws JSONException Entry has no '@id' or no 'subClassOf' field.
+	 */
+	private void parseGraphObject (JSONObject graph_dependency_object) throws JSONException {
+		// get id
+		String graphID = graph_dependency_object.get("@id").toString();
+		graphID = enrichShortHandNode(graphID);
+
+		Vertex<String, String> vertex = new Vertex<String, String>(graphID, this.ONT_NAME);
+		this.vertexSet.add(vertex);
+		
+		// get subclasses
+		String typeSubclassField = graph_dependency_object.get("subClassOf").getClass().getName();
+		// only one parent: field is a string
+		if (typeSubclassField.equals("java.lang.String")) {
+			String subclass = enrichShortHandNode(graph_dependency_object.get("subClassOf").toString());
+			// blank nodes are ignored
+			if (!subclass.startsWith("_:")) {
+				Edge<String, Integer> edge = new Edge<String, Integer>(graphID, subclass, 1);
+				this.edgeSet.add(edge);
+			}
+		}
+		// more than on parent: field is an array
+		else {
+			JSONArray jArray = graph_dependency_object.getJSONArray("subClassOf");
+			for (int j=0; j<jArray.length(); j++){
+				String subclass = enrichShortHandNode(jArray.getString(j));
+				// blank nodes are ignored
+				if (!subclass.startsWith("_:")) {
+					Edge<String, Integer> edge = new Edge<String, Integer>(graphID, subclass, 1);
+					this.edgeSet.add(edge);
+				} // end if
+			} // end for j
+		} // end else
+	}
+	
+	
 	
 	
 	
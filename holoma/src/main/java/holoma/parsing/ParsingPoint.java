@@ -1,11 +1,16 @@
 package holoma.parsing;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
-import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.flink.graph.Edge;
 import org.apache.flink.graph.Vertex;
@@ -21,9 +26,11 @@ import tools.io.OutputToFile;
 public class ParsingPoint {
 
 	/** Edges of the graph. */
-	private Set<Edge<String, Integer>> edges = new HashSet<Edge<String, Integer>>();
+	private Set<Edge<Long, Integer>> edges = new HashSet<Edge<Long, Integer>>();
 	/** Vertices of the graph. */
-	private Set<Vertex<String, String>> vertices = new HashSet<Vertex<String, String>>();
+	private Set<Vertex<Long, String>> vertices = new HashSet<Vertex<Long, String>>();
+	/** Dictionary which maps the URIs of the vertices to their IDs. */
+	private final UriDictionary dictionary = new UriDictionary();
 	
 
 	/** Constructor. */
@@ -36,7 +43,7 @@ public class ParsingPoint {
 	 * Gets the edges within the specified ontology files.
 	 * @return Edges of all ontologies.
 	 */
-	public Set<Edge<String, Integer>> getEdges () {
+	public Set<Edge<Long, Integer>> getEdges () {
 		if (this.edges.isEmpty())
 			parseEdgesVertices();
 		return this.edges;
@@ -47,14 +54,25 @@ public class ParsingPoint {
 	 * Gets the vertices within the specified ontology files.
 	 * @return Vertices of all ontologies.
 	 */
-	public Set<Vertex<String, String>> getVertices () {
+	public Set<Vertex<Long, String>> getVertices () {
 		if (this.vertices.isEmpty())
 			parseEdgesVertices();
 		return this.vertices;
 	}
 	
 	
-	/**  Creates the edge file to the specified location. */
+	/**
+	 * Gets the dictionary which maps the URIs of the vertices to their IDs.
+	 * @return The dictionary of all vertices.
+	 */
+	public UriDictionary getDictionary () {
+		if (this.vertices.isEmpty())
+			parseEdgesVertices();
+		return this.dictionary;
+	}
+	
+	
+	/**  Creates the edge, vertex and dictionary file to the specified locations. */
 	public void printEdgeVertexToFile () {
 		// create a new edge file
 		File fileEdge = new File (HolomaConstants.EDGE_FILE_LOC);
@@ -67,23 +85,31 @@ public class ParsingPoint {
 			parseEdgesVertices();
 		
 		// print edges
-		OutputToFile out = new OutputToFile (800, HolomaConstants.EDGE_FILE_LOC);
-		for (Edge<String, Integer> edge : this.edges) {
-			String line = edge.f0+"\t"+edge.f1+"\t"+edge.f2;
-			out.addToBuff(line);
+		OutputToFile out = new OutputToFile (HolomaConstants.EDGE_FILE_LOC, HolomaConstants.OUTPUT_BUFFER_BYTES, HolomaConstants.IS_ASYNC_OUTPUT);
+		try {
+			for (Edge<Long, Integer> edge : this.edges) {
+				String line = edge.f0+"\t"+edge.f1+"\t"+edge.f2;
+				out.addToBuff(line);
+			}
+		} finally {
+			out.close();
 		}
-		out.close();
 		// print vertices
-		out = new OutputToFile (800, HolomaConstants.VERTEX_FILE_LOC);
-		for (Vertex<String, String> vert : this.vertices) {
-			String line = vert.f0+"\t"+vert.f1;
-			out.addToBuff(line);
+		out = new OutputToFile (HolomaConstants.VERTEX_FILE_LOC, HolomaConstants.OUTPUT_BUFFER_BYTES, HolomaConstants.IS_ASYNC_OUTPUT);
+		try {
+			for (Vertex<Long, String> vert : this.vertices) {
+				String line = vert.f0+"\t"+vert.f1;
+				out.addToBuff(line);
+			}
+		} finally {
+			out.close();
 		}
-		out.close();	
+		// print dictionary
+		this.dictionary.printToFile(HolomaConstants.DICTIONARY_FILE_LOC);
 	}
 	
 	
-	/** Resets the sets of edges and vertices. */
+	/** Resets the sets of edges and vertices. The IDs of the dictionary are kept. */
 	public void clear() {
 		this.edges.clear();
 		this.vertices.clear();
@@ -95,49 +121,163 @@ public class ParsingPoint {
 	 *  @exception Wrong input file. 
 	 */
 	private void parseEdgesVertices () throws IllegalArgumentException {
+		if (HolomaConstants.IS_PARALLEL_PARSING)
+			parseEdgesVerticesParallel();
+		else
+			parseEdgesVerticesSequential();
+	}
+	
+	
+	/** Parses the ontology files and the mapping file one after the other.
+	 *  @exception Wrong input file. 
+	 */
+	private void parseEdgesVerticesSequential () throws IllegalArgumentException {
 		// #1: parse each ontology
-		for (String ontology : HolomaConstants.ONTOLOGY_FILES) {
-			System.out.println("Parsing "+HolomaConstants.PATH+ontology+" ... ");
-			File fileOntology = new File (HolomaConstants.PATH+ontology);
-			String ontName = getOntologyName(ontology);
-			
-			OntologyParserJSON parser = new OntologyParserJSON(ontName, fileOntology);
-			parser.doParsing();
-			// preprocessing and 
-			// add the edges and vertices of the current ontology to 'overall' collections
-			if (HolomaConstants.IS_OPTIM_PREPR)
-				doOptimPreprocessing(parser.getVertexSet(), parser.getEdgeSet(), ontName);
-			else
-				doPessimPreprocessing(parser.getVertexSet(), parser.getEdgeSet(), ontName);			
-		}
+		for (String ontology : HolomaConstants.ONTOLOGY_FILES)
+			merge(parseOntology(ontology));
 		
 		// #2: add mapping correspondences to edges
 		//		... and missing vertices to the vertex set
-		System.out.println("\nReading "+HolomaConstants.PATH+HolomaConstants.MAPPING_FILE+" ... ");
-		BufferedReader reader = null;
+		merge(readMappingFile(HolomaConstants.PATH+HolomaConstants.MAPPING_FILE));
+	}
+	
+	
+	/** Parses the ontology files and the mapping file concurrently.
+	 *  Each file is parsed on its own, and the results are merged
+	 *  by the calling thread as soon as all files are parsed.
+	 *  @exception Wrong input file. 
+	 */
+	private void parseEdgesVerticesParallel () throws IllegalArgumentException {
+		ExecutorService executor = Executors.newFixedThreadPool(HolomaConstants.PARSING_PARALLELISM);
+		List<Future<ParsingResult>> results = new ArrayList<Future<ParsingResult>>();
 		try {
-			reader = new BufferedReader ( new FileReader(HolomaConstants.PATH+HolomaConstants.MAPPING_FILE));
-			String line;
-			while ( (line = reader.readLine()) != null ) {
-				String[] fields = line.split(",");
-				// check whether it is the right mapping file
-				if (fields.length != 6) {
-					reader.close();
-					throw new IllegalArgumentException("Mapping file has "+fields.length+" columns. 6 expected!");
+			// #1: parse each ontology
+			for (final String ontology : HolomaConstants.ONTOLOGY_FILES) {
+				results.add(executor.submit(new Callable<ParsingResult>() {
+					public ParsingResult call() {
+						return parseOntology(ontology);
+					}
+				}));
+			}
+			// #2: read the mapping correspondences
+			Future<MappingFileReader> mapping = executor.submit(new Callable<MappingFileReader>() {
+				public MappingFileReader call() {
+					return readMappingFile(HolomaConstants.PATH+HolomaConstants.MAPPING_FILE);
 				}
-				Edge<String, Integer> edge = new Edge<String, Integer>(fields[0],fields[1],0);
-				this.edges.add(edge);
-				edge = new Edge<String, Integer>(fields[1],fields[0],0);
-				this.edges.add(edge);
-				Vertex<String, String> v1 = new Vertex<String, String>(fields[0],fields[2].toLowerCase());
-				Vertex<String, String> v2 = new Vertex<String, String>(fields[1],fields[3].toLowerCase());
-				this.vertices.add(v1);
-				this.vertices.add(v2);
+			});
+			
+			// #3: merge in the order of submission
+			for (Future<ParsingResult> result : results)
+				merge(result.get());
+			merge(mapping.get());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Parsing has been interrupted.", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IllegalArgumentException)
+				throw (IllegalArgumentException) e.getCause();
+			throw new IllegalStateException("Parsing failed.", e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+	
+	
+	/**
+	 * Parses and preprocesses one ontology file.
+	 * @param ontology The name of the ontology file.
+	 * @return Edges and vertices of the ontology.
+	 */
+	private ParsingResult parseOntology (String ontology) {
+		System.out.println("Parsing "+HolomaConstants.PATH+ontology+" ... ");
+		File fileOntology = new File (HolomaConstants.PATH+ontology);
+		String ontName = getOntologyName(ontology);
+		
+		OntologyParserJSON parser = new OntologyParserJSON(ontName, fileOntology);
+		parser.doParsing();
+		// preprocessing
+		if (HolomaConstants.IS_OPTIM_PREPR)
+			return doOptimPreprocessing(parser.getVertexSet(), parser.getEdgeSet(), ontName);
+		else
+			return doPessimPreprocessing(parser.getVertexSet(), parser.getEdgeSet(), ontName);
+	}
+	
+	
+	/**
+	 * Reads the same-as edges of a (new) mapping file.
+	 * The URIs are replaced by their IDs of the given dictionary; unknown URIs are added.
+	 * @param fileLoc Location of the mapping file.
+	 * @param dictionary Dictionary which maps the URIs of the vertices to their IDs.
+	 * @return Same-as edges of the mapping file.
+	 * @exception Wrong input file. 
+	 */
+	public static Set<Edge<Long, Integer>> readMappingEdges (String fileLoc, UriDictionary dictionary) throws IllegalArgumentException {
+		final Set<Edge<Long, Integer>> edges = new HashSet<Edge<Long, Integer>>();
+		readMappingFile(fileLoc).encode(dictionary, new MappingFileReader.CorrespondenceHandler() {
+			public void add (long src, long trg, String srcOnt, String trgOnt) {
+				edges.add(new Edge<Long, Integer>(src, trg, 0));
+				edges.add(new Edge<Long, Integer>(trg, src, 0));
 			}
-			reader.close();
-		} catch (IOException e) {
-			e.printStackTrace();
+		});
+		return edges;
+	}
+	
+	
+	/**
+	 * Reads the mapping correspondences, see {@link MappingFileReader}.
+	 * @param fileLoc Location of the mapping file.
+	 * @return The correspondences, which have not been encoded yet.
+	 * @exception Wrong input file. 
+	 */
+	private static MappingFileReader readMappingFile (String fileLoc) throws IllegalArgumentException {
+		System.out.println("\nReading "+fileLoc+" ... ");
+		return new MappingFileReader(fileLoc, HolomaConstants.MAPPING_PARALLELISM);
+	}
+	
+	
+	/**
+	 * Adds the edges and vertices of one file to the 'overall' collections.
+	 * The URIs are replaced by their IDs of the dictionary.
+	 * @param result Edges and vertices of one file.
+	 */
+	private void merge (ParsingResult result) {
+		for (Edge<String, Integer> edge : result.edges) {
+			long src = this.dictionary.encode(edge.f0);
+			long trg = this.dictionary.encode(edge.f1);
+			this.edges.add(new Edge<Long, Integer>(src, trg, edge.f2));
 		}
+		for (Vertex<String, String> vertex : result.vertices)
+			this.vertices.add(new Vertex<Long, String>(this.dictionary.encode(vertex.f0), vertex.f1));
+	}
+	
+	
+	/**
+	 * Adds the mapping correspondences as same-as edges in both directions plus their vertices
+	 * to the 'overall' collections. The correspondences are encoded directly into the IDs
+	 * of the dictionary; a vertex is only added once per ontology name.
+	 * @param mapping The mapping correspondences.
+	 */
+	private void merge (MappingFileReader mapping) {
+		mapping.encode(this.dictionary, new MappingFileReader.CorrespondenceHandler() {
+			/** Ontology name per vertex ID under which the vertex has been added. */
+			private String[] addedOnts = new String[Math.max(16, dictionary.size())];
+			
+			public void add (long src, long trg, String srcOnt, String trgOnt) {
+				edges.add(new Edge<Long, Integer>(src, trg, 0));
+				edges.add(new Edge<Long, Integer>(trg, src, 0));
+				addVertex(src, srcOnt);
+				addVertex(trg, trgOnt);
+			}
+			
+			private void addVertex (long id, String ontName) {
+				if (id >= this.addedOnts.length)
+					this.addedOnts = Arrays.copyOf(this.addedOnts, Math.max((int) id+1, 2*this.addedOnts.length));
+				// the ontology names are shared, thus they are compared by reference
+				if (this.addedOnts[(int) id] == ontName) return;
+				this.addedOnts[(int) id] = ontName;
+				vertices.add(new Vertex<Long, String>(id, ontName));
+			}
+		});
 	}
 	
 	
@@ -146,10 +286,13 @@ public class ParsingPoint {
 	 * @param vertices Set of vertices.
 	 * @param edges Set of edges.
 	 * @param ontName Abbreviated name of the ontology.
+	 * @return Preprocessed edges and vertices.
 	 */
-	private void doOptimPreprocessing (Set<Vertex<String, String>> vertices, Set<Edge<String, Integer>> edges, String ontName) {
-		this.edges.addAll(edges);
-		this.vertices.addAll(Preprocessor.addMissingVertices(vertices, edges, ontName));
+	private ParsingResult doOptimPreprocessing (Set<Vertex<String, String>> vertices, Set<Edge<String, Integer>> edges, String ontName) {
+		ParsingResult result = new ParsingResult();
+		result.edges.addAll(edges);
+		result.vertices.addAll(Preprocessor.addMissingVertices(vertices, edges, ontName));
+		return result;
 	}
 	
 	
@@ -158,10 +301,13 @@ public class ParsingPoint {
 	 * @param vertices Set of vertices.
 	 * @param edges Set of edges.
 	 * @param ontName Abbreviated name of the ontology.
+	 * @return Preprocessed edges and vertices.
 	 */
-	private void doPessimPreprocessing (Set<Vertex<String, String>> vertices, Set<Edge<String, Integer>> edges, String ontName) {
-		this.edges.addAll(Preprocessor.removeInvalidEdges(vertices, edges, ontName));
-		this.vertices.addAll(vertices);
+	private ParsingResult doPessimPreprocessing (Set<Vertex<String, String>> vertices, Set<Edge<String, Integer>> edges, String ontName) {
+		ParsingResult result = new ParsingResult();
+		result.edges.addAll(Preprocessor.removeInvalidEdges(vertices, edges, ontName));
+		result.vertices.addAll(vertices);
+		return result;
 	}
 	
 	
@@ -184,6 +330,13 @@ public class ParsingPoint {
 	}
 	
 	
+	/** Edges and vertices which are parsed from one file. */
+	private static final class ParsingResult {
+		/** Edges of the file. */
+		final Set<Edge<String, Integer>> edges = new HashSet<Edge<String, Integer>>();
+		/** Vertices of the file. */
+		final Set<Vertex<String, String>> vertices = new HashSet<Vertex<String, String>>();
+	}
 	
 
 }
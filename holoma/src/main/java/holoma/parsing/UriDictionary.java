@@ -0,0 +1,132 @@
+package holoma.parsing;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import holoma.HolomaConstants;
+import tools.io.OutputToFile;
+
+/**
+ * Global dictionary of all vertex URIs.
+ * Each URI is assigned a dense numeric ID (0, 1, 2, ...) in the order
+ * in which it is encoded. The graph works on these IDs only;
+ * the URIs are resolved when results are printed.
+ * @author max
+ *
+ */
+public class UriDictionary implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/** Mapping from URI to its ID. */
+	private final Map<String, Long> ids = new HashMap<String, Long>();
+	/** Mapping from ID (list index) to its URI. */
+	private final List<String> uris = new ArrayList<String>();
+
+
+	/**
+	 * Returns the ID of the URI. A new ID is assigned if the URI is unknown.
+	 * @param uri The URI of a vertex.
+	 * @return The ID of the URI.
+	 */
+	public long encode (String uri) {
+		Long id = this.ids.get(uri);
+		if (id == null) {
+			id = (long) this.uris.size();
+			this.ids.put(uri, id);
+			this.uris.add(uri);
+		}
+		return id;
+	}
+
+
+	/**
+	 * Returns the ID of the URI without assigning a new one.
+	 * @param uri The URI of a vertex.
+	 * @return The ID of the URI or 'null' iff the URI is unknown.
+	 */
+	public Long getId (String uri) {
+		return this.ids.get(uri);
+	}
+
+
+	/**
+	 * Resolves an ID to its URI.
+	 * @param id The ID of a vertex.
+	 * @return The URI of the vertex.
+	 * @exception IllegalArgumentException Unknown ID.
+	 */
+	public String decode (long id) throws IllegalArgumentException {
+		if (id < 0 || id >= this.uris.size())
+			throw new IllegalArgumentException("Unknown vertex ID "+id+".");
+		return this.uris.get((int) id);
+	}
+
+
+	/**
+	 * Returns the number of URIs within the dictionary.
+	 * @return Number of URIs.
+	 */
+	public int size () { return this.uris.size(); }
+
+
+	/**
+	 * Prints the dictionary to <code>fileLoc</code>.
+	 * Schema: Each line contains an ID and its URI, separated by a tab.
+	 * @param fileLoc Location of the dictionary file.
+	 */
+	public void printToFile (String fileLoc) {
+		OutputToFile out = new OutputToFile (fileLoc, HolomaConstants.OUTPUT_BUFFER_BYTES, HolomaConstants.IS_ASYNC_OUTPUT);
+		try {
+			for (int id=0; id<this.uris.size(); id++)
+				out.addToBuff(id+"\t"+this.uris.get(id));
+		} finally {
+			out.close();
+		}
+	}
+
+
+	/**
+	 * Loads a dictionary which has been printed by {@link #printToFile(String)}.
+	 * @param fileLoc Location of the dictionary file.
+	 * @return The dictionary.
+	 * @exception IllegalArgumentException Wrong input file.
+	 * @exception IllegalStateException Reading the file failed; no partial dictionary is returned.
+	 */
+	public static UriDictionary loadFromFile (String fileLoc) throws IllegalArgumentException, IllegalStateException {
+		if (!new File(fileLoc).exists())
+			throw new IllegalArgumentException("Dictionary file "+fileLoc+" does not exist.");
+		UriDictionary dictionary = new UriDictionary();
+		BufferedReader reader = null;
+		try {
+			reader = new BufferedReader(new FileReader(fileLoc));
+			String line;
+			while ( (line = reader.readLine()) != null ) {
+				int tab = line.indexOf('\t');
+				// IDs have to be dense and in ascending order
+				if (tab < 0 || Long.parseLong(line.substring(0, tab)) != dictionary.size())
+					throw new IllegalArgumentException("Invalid line in dictionary file: "+line);
+				dictionary.encode(line.substring(tab+1));
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException("Reading the dictionary file "+fileLoc+" failed.", e);
+		} finally {
+			if (reader != null)
+				try {
+					reader.close();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+		}
+		return dictionary;
+	}
+
+
+}
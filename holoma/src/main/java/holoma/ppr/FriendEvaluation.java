@@ -0,0 +1,297 @@
+package holoma.ppr;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.flink.api.java.tuple.Tuple2;
+
+import holoma.complexDatatypes.VertexValue;
+
+/**
+ * Evaluation of the pagerank vectors of a {@link TopKPageRanks} store which finds
+ * the best friends, true best friends, best friends apart from excluded vertices,
+ * worst friends and the <code>k</code> best true friends of each source in a single
+ * pass over its vector. The friends are kept as positions within the store
+ * and are resolved only by the getters.
+ * The sources are distributed over several threads.
+ * @author max
+ *
+ */
+public class FriendEvaluation {
+
+	/** Tolerance within which two pageranks are equal. */
+	private static final float TOLERANCE = 0.000000001f;
+	/** Number of sources which are evaluated by one task. */
+	private static final int SOURCES_PER_TASK = 64;
+
+	/** The result vectors. */
+	private final TopKPageRanks prVectors;
+	/** Excluded vertices in ascending order. */
+	private final long[] noFriends;
+	/** Number of best true friends per source. */
+	private final int k;
+
+	/** Positions of the best friends per source. */
+	private final int[][] best;
+	/** Positions of the true best friends per source. */
+	private final int[][] trueBest;
+	/** Positions of the best friends apart from the excluded vertices per source. */
+	private final int[][] exclBest;
+	/** Positions of the worst friends per source. */
+	private final int[][] worst;
+	/** Positions of the <code>k</code> best true friends per source, in descending order. */
+	private final int[][] topK;
+
+
+	/**
+	 * Evaluates all sources of the store.
+	 * @param prVectors The result vectors.
+	 * @param noFriends Vertices which are ignored as best friends apart from excluded vertices; may be null.
+	 * @param k Number of best true friends per source; 0 skips them.
+	 * @param parallelism Number of threads.
+	 */
+	public FriendEvaluation (TopKPageRanks prVectors, Set<Long> noFriends, int k, int parallelism) {
+		this.prVectors = prVectors;
+		this.k = Math.max(0, k);
+		int numNoFriends = (noFriends == null) ? 0 : noFriends.size();
+		this.noFriends = new long[numNoFriends];
+		if (noFriends != null) {
+			int i = 0;
+			for (long vertexId : noFriends)
+				this.noFriends[i++] = vertexId;
+			Arrays.sort(this.noFriends);
+		}
+		int numSources = prVectors.getNumberOfSources();
+		this.best = new int[numSources][];
+		this.trueBest = new int[numSources][];
+		this.exclBest = new int[numSources][];
+		this.worst = new int[numSources][];
+		this.topK = new int[numSources][];
+
+		if (parallelism <= 1 || numSources <= SOURCES_PER_TASK) {
+			evaluateSources(0, numSources);
+			return;
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+		List<Future<Void>> tasks = new ArrayList<Future<Void>>();
+		try {
+			for (int first=0; first<numSources; first+=SOURCES_PER_TASK) {
+				final int from = first;
+				final int to = Math.min(numSources, first+SOURCES_PER_TASK);
+				tasks.add(executor.submit(new Callable<Void>() {
+					public Void call() {
+						evaluateSources(from, to);
+						return null;
+					}
+				}));
+			}
+			for (Future<Void> task : tasks)
+				task.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Evaluation has been interrupted.", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Evaluation failed.", e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+
+	/**
+	 * Evaluates a range of sources, each in a single pass over its vector.
+	 * Each task writes only the results of its own sources.
+	 * @param from Index of the first source.
+	 * @param to Index after the last source.
+	 */
+	private void evaluateSources (int from, int to) {
+		TopKPageRanks pr = this.prVectors;
+		int[] bestBuf = new int[16], trueBestBuf = new int[16], exclBestBuf = new int[16], worstBuf = new int[16];
+		int[] heap = new int[this.k];
+		for (int src=from; src<to; src++) {
+			long srcId = pr.getSourceId(src);
+			float bestPr = -1f, trueBestPr = -1f, exclBestPr = -1f, worstPr = 1000f;
+			int numBest = 0, numTrueBest = 0, numExclBest = 0, numWorst = 0, heapSize = 0;
+			for (int pos=pr.getOffset(src); pos<pr.getOffset(src+1); pos++) {
+				float p = pr.getPr(pos);
+				long trgId = pr.getTargetId(pos);
+				// best friends
+				if (p > bestPr) {
+					bestPr = p;
+					numBest = 0;
+					bestBuf = append(bestBuf, numBest++, pos);
+				} else if (Math.abs(p - bestPr) < TOLERANCE) {
+					bestBuf = append(bestBuf, numBest++, pos);
+				}
+				// worst friends
+				if (p < worstPr) {
+					worstPr = p;
+					numWorst = 0;
+					worstBuf = append(worstBuf, numWorst++, pos);
+				} else if (Math.abs(p - worstPr) < TOLERANCE) {
+					worstBuf = append(worstBuf, numWorst++, pos);
+				}
+				// best friends apart from the excluded vertices
+				if (this.noFriends.length == 0 || Arrays.binarySearch(this.noFriends, trgId) < 0) {
+					if (p > exclBestPr) {
+						exclBestPr = p;
+						numExclBest = 0;
+						exclBestBuf = append(exclBestBuf, numExclBest++, pos);
+					} else if (Math.abs(p - exclBestPr) < TOLERANCE) {
+						exclBestBuf = append(exclBestBuf, numExclBest++, pos);
+					}
+				}
+				// true friends: not the source itself and with pagerank
+				if (trgId == srcId || Math.abs(p) <= TOLERANCE) continue;
+				if (p > trueBestPr) {
+					trueBestPr = p;
+					numTrueBest = 0;
+					trueBestBuf = append(trueBestBuf, numTrueBest++, pos);
+				} else if (Math.abs(p - trueBestPr) < TOLERANCE) {
+					trueBestBuf = append(trueBestBuf, numTrueBest++, pos);
+				}
+				if (heapSize < this.k) {
+					heap[heapSize++] = pos;
+					siftUp(heap, heapSize-1);
+				} else if (this.k > 0 && isBetter(pos, heap[0])) {
+					heap[0] = pos;
+					siftDown(heap, 0, heapSize);
+				}
+			}
+			this.best[src] = Arrays.copyOf(bestBuf, numBest);
+			this.trueBest[src] = Arrays.copyOf(trueBestBuf, numTrueBest);
+			this.exclBest[src] = Arrays.copyOf(exclBestBuf, numExclBest);
+			this.worst[src] = Arrays.copyOf(worstBuf, numWorst);
+			// extract the worst first, thus the friends are in descending order
+			int[] top = new int[heapSize];
+			for (int i=heapSize-1; i>=0; i--) {
+				top[i] = heap[0];
+				heap[0] = heap[i];
+				siftDown(heap, 0, i);
+			}
+			this.topK[src] = top;
+		}
+	}
+
+
+	/**
+	 * Returns for each vertex its best friend(s), i.e., the vertex with the highest pagerank.
+	 * @return Best friend(s) for each vertex.
+	 */
+	public Map<Long, Set<Tuple2<Long, VertexValue>>> getBestFriends () { return toMap(this.best); }
+
+	/**
+	 * Returns for each vertex its true best friend(s), i.e., the vertex with the highest pagerank
+	 * apart from itself and vertices without pagerank.
+	 * @return True best friend(s) for each vertex.
+	 */
+	public Map<Long, Set<Tuple2<Long, VertexValue>>> getTrueBestFriends () { return toMap(this.trueBest); }
+
+	/**
+	 * Returns for each vertex its best friend(s) apart from the excluded vertices.
+	 * @return Best friend(s) for each vertex.
+	 */
+	public Map<Long, Set<Tuple2<Long, VertexValue>>> getExcludedBestFriends () { return toMap(this.exclBest); }
+
+	/**
+	 * Returns for each vertex its worst friend(s), i.e., the stored target with the lowest pagerank;
+	 * the implicit zeros of a sparse vector (forward push, Monte Carlo) are no candidates.
+	 * @return Worst friend(s) for each vertex.
+	 */
+	public Map<Long, Set<Tuple2<Long, VertexValue>>> getWorstFriends () { return toMap(this.worst); }
+
+	/**
+	 * Returns for each vertex its <code>k</code> best true friends in descending order of their pagerank.
+	 * @return Best true friends for each vertex.
+	 */
+	public Map<Long, List<Tuple2<Long, VertexValue>>> getTopFriends () {
+		Map<Long, List<Tuple2<Long, VertexValue>>> topFriends = new HashMap<Long, List<Tuple2<Long, VertexValue>>>();
+		for (int src=0; src<this.topK.length; src++) {
+			List<Tuple2<Long, VertexValue>> friends = new ArrayList<Tuple2<Long, VertexValue>>(this.topK[src].length);
+			for (int pos : this.topK[src])
+				friends.add(toFriend(pos));
+			topFriends.put(this.prVectors.getSourceId(src), friends);
+		}
+		return topFriends;
+	}
+
+	/**
+	 * Returns the mean of all page rank values per source.
+	 * @return Mean pagerank for each vertex.
+	 */
+	public Map<Long, Float> getStatistMeans () {
+		Map<Long, Float> meanStatistic = new HashMap<Long, Float>();
+		for (int src=0; src<this.prVectors.getNumberOfSources(); src++)
+			meanStatistic.put(this.prVectors.getSourceId(src), this.prVectors.getMean(src));
+		return meanStatistic;
+	}
+
+
+	/** Resolves the positions of the friends per source. */
+	private Map<Long, Set<Tuple2<Long, VertexValue>>> toMap (int[][] friendPositions) {
+		Map<Long, Set<Tuple2<Long, VertexValue>>> friends = new HashMap<Long, Set<Tuple2<Long, VertexValue>>>();
+		for (int src=0; src<friendPositions.length; src++) {
+			Set<Tuple2<Long, VertexValue>> friendsOfX = new HashSet<Tuple2<Long, VertexValue>>();
+			for (int pos : friendPositions[src])
+				friendsOfX.add(toFriend(pos));
+			friends.put(this.prVectors.getSourceId(src), friendsOfX);
+		}
+		return friends;
+	}
+
+	/** Resolves the position of a friend. */
+	private Tuple2<Long, VertexValue> toFriend (int pos) {
+		return new Tuple2<Long, VertexValue>(this.prVectors.getTargetId(pos),
+				new VertexValue(this.prVectors.getOntName(pos), this.prVectors.getPr(pos)));
+	}
+
+	/** Sets a value of a buffer, which is grown if necessary. */
+	private static int[] append (int[] buf, int i, int value) {
+		if (i == buf.length) buf = Arrays.copyOf(buf, 2*buf.length);
+		buf[i] = value;
+		return buf;
+	}
+
+	/**
+	 * Checks whether the target at position <code>a</code> ranks before the target at position <code>b</code>,
+	 * i.e., it has a higher pagerank or the same pagerank and a smaller vertex ID.
+	 */
+	private boolean isBetter (int a, int b) {
+		float prA = this.prVectors.getPr(a), prB = this.prVectors.getPr(b);
+		return prA > prB || (prA == prB && this.prVectors.getTargetId(a) < this.prVectors.getTargetId(b));
+	}
+
+	/** Restores the heap (worst target at the root) upwards from position <code>i</code>. */
+	private void siftUp (int[] heap, int i) {
+		while (i > 0) {
+			int parent = (i-1) >>> 1;
+			if (!isBetter(heap[parent], heap[i])) break;
+			int tmp = heap[parent]; heap[parent] = heap[i]; heap[i] = tmp;
+			i = parent;
+		}
+	}
+
+	/** Restores the heap (worst target at the root) downwards from position <code>i</code>. */
+	private void siftDown (int[] heap, int i, int size) {
+		while (true) {
+			int worst = i, left = 2*i+1, right = left+1;
+			if (left < size && isBetter(heap[worst], heap[left])) worst = left;
+			if (right < size && isBetter(heap[worst], heap[right])) worst = right;
+			if (worst == i) return;
+			int tmp = heap[worst]; heap[worst] = heap[i]; heap[i] = tmp;
+			i = worst;
+		}
+	}
+
+
+}
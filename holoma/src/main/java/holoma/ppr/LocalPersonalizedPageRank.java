@@ -0,0 +1,217 @@
+package holoma.ppr;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.flink.graph.Graph;
+import org.apache.flink.graph.Vertex;
+
+import holoma.HolomaConstants;
+import holoma.complexDatatypes.EdgeValue;
+import holoma.complexDatatypes.VertexValue;
+import holoma.graph.CsrSubgraph;
+
+/**
+ * Personalized pagerank on an in-memory CSR subgraph (local engine).
+ * The iteration follows {@link PersonalizedPageRank}: in each superstep the vertices
+ * which have been updated in the previous superstep send their pagerank along their
+ * outgoing edges, weighted by the edge weight divided by their sum of outgoing weights;
+ * each vertex which receives messages is updated to
+ * <code>(1-teleportProb)*sum + teleportProb*delta(source)</code>.
+ * <p>
+ * The weights are normalized once per component into a row-stochastic transition
+ * matrix in CSR format. Since the active vertices of a superstep do not depend on the
+ * source, a block of sources is calculated together by multiplying the sparse matrix
+ * with a dense block of pagerank vectors. The block stops as soon as the L1 change of
+ * each of its vectors within a superstep is below <code>PPR_CONVERGENCE_EPSILON</code>.
+ * @author max
+ *
+ */
+public class LocalPersonalizedPageRank {
+
+	/** The enriched connected component. */
+	private CsrSubgraph enrConnComp;
+	/** Transition probability of each edge, i.e., its weight divided by the sum of outgoing weights of its source. */
+	private float[] transProbs;
+
+	/** The results. */
+	//source_ID, target_ID, target
+	Map<Long, List<Vertex<Long, VertexValue>>> mapCalcPageRanks = new HashMap<Long, List<Vertex<Long,VertexValue>>>();
+	/** Number of supersteps until convergence, per source. */
+	Map<Long, Integer> mapIterations = new HashMap<Long, Integer>();
+	/** Compact store of the results; null iff the results are kept in the map. */
+	private TopKPageRanks resultStore = null;
+
+
+	/**
+	 * Returns the map of source ID to its pagerank vector.
+	 * @return The result.
+	 */
+	public Map<Long, List<Vertex<Long, VertexValue>>> getMapCalcPageRanks ()  {
+		return this.mapCalcPageRanks;
+	}
+
+	/**
+	 * Sets a store which keeps the results compactly instead of the map of vertex lists.
+	 * @param resultStore The store; null iff the results are kept in the map.
+	 */
+	public void setResultStore (TopKPageRanks resultStore) {
+		this.resultStore=resultStore;
+	}
+
+	/**
+	 * Returns the map of source ID to the number of supersteps until the L1 change
+	 * of its pagerank vector has been below <code>PPR_CONVERGENCE_EPSILON</code>
+	 * (at most <code>MAX_ITER_PPR</code>).
+	 * @return Number of iterations per source.
+	 */
+	public Map<Long, Integer> getMapIterations ()  {
+		return this.mapIterations;
+	}
+
+	/**
+	 * Sets the enriched connected component and resets the results.
+	 * @param enrConnComp The enriched connected component.
+	 */
+	public void setEnrConnComp (CsrSubgraph enrConnComp) {
+		this.enrConnComp=enrConnComp;
+		this.mapCalcPageRanks = new HashMap<Long, List<Vertex<Long,VertexValue>>>();
+		this.mapIterations = new HashMap<Long, Integer>();
+		// row-normalize the weights: the transition matrix does not depend on the source
+		int n = enrConnComp.getNumberOfVertices();
+		int[] offsets = enrConnComp.getOffsets();
+		float[] weights = enrConnComp.getWeights();
+		this.transProbs = new float[weights.length];
+		for (int v=0; v<n; v++) {
+			float sumWeights = 0f;
+			for (int e=offsets[v]; e<offsets[v+1]; e++)
+				sumWeights += weights[e];
+			for (int e=offsets[v]; e<offsets[v+1]; e++)
+				this.transProbs[e] = weights[e]/sumWeights;
+		}
+	}
+
+	/**
+	 * Sets an enriched connected component of the Gelly workflow and resets the results.
+	 * @param enrConnComp The enriched connected component.
+	 * @throws Exception Converting DataSet to List failed.
+	 */
+	public void setEnrConnComp (Graph<Long, VertexValue, EdgeValue> enrConnComp) throws Exception {
+		setEnrConnComp(CsrSubgraph.fromGraph(enrConnComp));
+	}
+
+	/** Starts the computation of pagerank for all sources, block by block. */
+	public void start () {
+		int n = this.enrConnComp.getNumberOfVertices();
+		int blockSize = Math.max(1, HolomaConstants.PPR_BLOCK_SIZE);
+		for (int first=0; first<n; first+=blockSize)
+			calculateSources(first, Math.min(n, first+blockSize));
+	}
+
+
+	/**
+	 * Starts calculation of personalized pagerank for one source.
+	 * @param source Local index of the source.
+	 */
+	public void calculateOneSource (int source) {
+		calculateSources(source, source+1);
+	}
+
+
+	/**
+	 * Calculates personalized pagerank for a block of sources by power iteration.
+	 * The pagerank vectors are stored row by row: the value of vertex <i>v</i>
+	 * for the <i>s</i>-th source of the block is at position <code>v*blockSize+s</code>.
+	 * @param first Local index of the first source.
+	 * @param last Local index after the last source.
+	 */
+	public void calculateSources (int first, int last) {
+		int n = this.enrConnComp.getNumberOfVertices();
+		int b = last-first;
+		int[] offsets = this.enrConnComp.getOffsets();
+		int[] targets = this.enrConnComp.getTargets();
+		float teleportProb = HolomaConstants.TELEPORT_PROB;
+		float epsilon = HolomaConstants.PPR_CONVERGENCE_EPSILON;
+
+		// #1: initialize: each source has pagerank 1, every vertex is active
+		float[] pr = new float[n*b];
+		for (int s=0; s<b; s++)
+			pr[(first+s)*b+s] = 1f;
+		boolean[] active = new boolean[n];
+		Arrays.fill(active, true);
+		float[] sum = new float[n*b];
+		boolean[] received = new boolean[n];
+		// L1 change per source within the current superstep, and supersteps until convergence
+		float[] change = new float[b];
+		int[] iterations = new int[b];
+		int converged = 0, performed = 0;
+
+		// #2: iterate
+		for (int superstep=1; superstep<=HolomaConstants.MAX_ITER_PPR && converged<b; superstep++) {
+			boolean anyMessage = false;
+			// messaging: sparse matrix times dense block
+			for (int u=0; u<n; u++) {
+				if (!active[u]) continue;
+				int rowU = u*b;
+				for (int e=offsets[u]; e<offsets[u+1]; e++) {
+					int rowV = targets[e]*b;
+					float p = this.transProbs[e];
+					for (int s=0; s<b; s++)
+						sum[rowV+s] += pr[rowU+s]*p;
+					received[targets[e]] = true;
+					anyMessage = true;
+				}
+			}
+			if (!anyMessage) break;
+			// update
+			for (int v=0; v<n; v++) {
+				int rowV = v*b;
+				if (received[v]) {
+					for (int s=0; s<b; s++) {
+						if (iterations[s] > 0) continue;	// converged sources are not updated anymore
+						float value = (1-teleportProb)*sum[rowV+s] + teleportProb*((v == first+s) ? 1 : 0);
+						change[s] += Math.abs(value-pr[rowV+s]);
+						pr[rowV+s] = value;
+					}
+					Arrays.fill(sum, rowV, rowV+b, 0f);
+				}
+				active[v] = received[v];
+				received[v] = false;
+			}
+			// convergence check
+			for (int s=0; s<b; s++) {
+				if (iterations[s] == 0 && change[s] < epsilon) {
+					iterations[s] = superstep;
+					converged++;
+				}
+				change[s] = 0f;
+			}
+			performed = superstep;
+		}
+		for (int s=0; s<b; s++)
+			if (iterations[s] == 0) iterations[s] = performed;
+
+		// #3: save result vectors
+		float[] column = (this.resultStore != null) ? new float[n] : null;
+		for (int s=0; s<b; s++) {
+			this.mapIterations.put(this.enrConnComp.getVertexId(first+s), iterations[s]);
+			if (this.resultStore != null) {
+				for (int v=0; v<n; v++)
+					column[v] = pr[v*b+s];
+				this.resultStore.add(this.enrConnComp.getVertexId(first+s),
+						this.enrConnComp.getVertexIds(), this.enrConnComp.getOntNames(), column, n);
+				continue;
+			}
+			List<Vertex<Long, VertexValue>> verticesWithPR = new ArrayList<Vertex<Long, VertexValue>>(n);
+			for (int v=0; v<n; v++)
+				verticesWithPR.add(new Vertex<Long, VertexValue>(this.enrConnComp.getVertexId(v),
+						new VertexValue(this.enrConnComp.getOntName(v), pr[v*b+s])));
+			this.mapCalcPageRanks.put(this.enrConnComp.getVertexId(first+s), verticesWithPR);
+		}
+	}
+
+
+}
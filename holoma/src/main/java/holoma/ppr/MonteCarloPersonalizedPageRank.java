@@ -0,0 +1,226 @@
+package holoma.ppr;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.flink.graph.Graph;
+import org.apache.flink.graph.Vertex;
+
+import holoma.HolomaConstants;
+import holoma.complexDatatypes.EdgeValue;
+import holoma.complexDatatypes.VertexValue;
+import holoma.graph.CsrSubgraph;
+
+/**
+ * Approximate personalized pagerank by Monte Carlo simulation of random walks
+ * on an in-memory CSR subgraph.
+ * Each walk starts at the source; in each step it stops with probability
+ * <code>teleportProb</code>, otherwise it follows an outgoing edge with a
+ * probability proportional to the edge weight. The pagerank of a vertex is
+ * estimated by the fraction of walks which stop at this vertex. Walks which
+ * reach a vertex without outgoing edges are lost, like the mass of such vertices
+ * in {@link PersonalizedPageRank}.
+ * By Hoeffding's inequality, each estimate deviates by at most
+ * {@link #getConfidenceBound()} from its expected value with the given confidence.
+ * The sources are distributed over several threads.
+ * @author max
+ *
+ */
+public class MonteCarloPersonalizedPageRank {
+
+	/** The enriched connected component. */
+	private CsrSubgraph enrConnComp;
+	/** Cumulative transition probability per edge within the outgoing edges of its source. */
+	private float[] cumTransProbs;
+	/** Number of walks per source. */
+	private final int numWalks;
+	/** Probability that an estimate lies within the confidence bound. */
+	private final float confidence;
+	/** Number of threads. */
+	private final int parallelism;
+
+	/** The results. */
+	//source_ID, target_ID, target
+	Map<Long, List<Vertex<Long, VertexValue>>> mapCalcPageRanks = new HashMap<Long, List<Vertex<Long,VertexValue>>>();
+	/** Compact store of the results; null iff the results are kept in the map. */
+	private TopKPageRanks resultStore = null;
+
+
+	/**
+	 * Constructor.
+	 * @param numWalks Number of walks per source.
+	 * @param confidence Confidence of the bound, e.g., 0.95.
+	 * @param parallelism Number of threads.
+	 */
+	public MonteCarloPersonalizedPageRank (int numWalks, float confidence, int parallelism) {
+		if (numWalks <= 0 || confidence <= 0f || confidence >= 1f)
+			throw new IllegalArgumentException("Invalid number of walks or confidence.");
+		this.numWalks = numWalks;
+		this.confidence = confidence;
+		this.parallelism = Math.max(1, parallelism);
+	}
+
+
+	/**
+	 * Returns the map of source ID to its (sparse) pagerank vector.
+	 * @return The result.
+	 */
+	public Map<Long, List<Vertex<Long, VertexValue>>> getMapCalcPageRanks ()  {
+		return this.mapCalcPageRanks;
+	}
+
+	/**
+	 * Returns the maximal deviation of an estimate from its expected value
+	 * which holds with the given confidence (Hoeffding's inequality).
+	 * @return Confidence bound.
+	 */
+	public float getConfidenceBound () {
+		return getConfidenceBound(this.numWalks, this.confidence);
+	}
+
+	/**
+	 * Returns the maximal deviation of an estimate from its expected value
+	 * which holds with the given confidence (Hoeffding's inequality).
+	 * @param numWalks Number of walks per source.
+	 * @param confidence Confidence of the bound, e.g., 0.95.
+	 * @return Confidence bound.
+	 */
+	public static float getConfidenceBound (int numWalks, float confidence) {
+		return (float) Math.sqrt(Math.log(2/(1-confidence)) / (2.0*numWalks));
+	}
+
+	/**
+	 * Sets a store which keeps the results compactly instead of the map of vertex lists.
+	 * @param resultStore The store; null iff the results are kept in the map.
+	 */
+	public void setResultStore (TopKPageRanks resultStore) {
+		this.resultStore=resultStore;
+	}
+
+	/**
+	 * Sets the enriched connected component and resets the results.
+	 * @param enrConnComp The enriched connected component.
+	 */
+	public void setEnrConnComp (CsrSubgraph enrConnComp) {
+		this.enrConnComp=enrConnComp;
+		this.mapCalcPageRanks = new HashMap<Long, List<Vertex<Long,VertexValue>>>();
+		int n = enrConnComp.getNumberOfVertices();
+		int[] offsets = enrConnComp.getOffsets();
+		float[] weights = enrConnComp.getWeights();
+		this.cumTransProbs = new float[weights.length];
+		for (int v=0; v<n; v++) {
+			float sumWeights = 0f;
+			for (int e=offsets[v]; e<offsets[v+1]; e++)
+				sumWeights += weights[e];
+			float cum = 0f;
+			for (int e=offsets[v]; e<offsets[v+1]; e++) {
+				cum += weights[e];
+				this.cumTransProbs[e] = cum/sumWeights;
+			}
+		}
+	}
+
+	/**
+	 * Sets an enriched connected component of the Gelly workflow and resets the results.
+	 * @param enrConnComp The enriched connected component.
+	 * @throws Exception Converting DataSet to List failed.
+	 */
+	public void setEnrConnComp (Graph<Long, VertexValue, EdgeValue> enrConnComp) throws Exception {
+		setEnrConnComp(CsrSubgraph.fromGraph(enrConnComp));
+	}
+
+
+	/** Starts the computation of pagerank for all sources. */
+	public void start () {
+		int n = this.enrConnComp.getNumberOfVertices();
+		ExecutorService executor = Executors.newFixedThreadPool(this.parallelism);
+		List<Future<List<Vertex<Long, VertexValue>>>> results = new ArrayList<Future<List<Vertex<Long, VertexValue>>>>();
+		try {
+			for (int source=0; source<n; source++) {
+				final int src = source;
+				results.add(executor.submit(new Callable<List<Vertex<Long, VertexValue>>>() {
+					public List<Vertex<Long, VertexValue>> call() {
+						return calculateOneSource(src);
+					}
+				}));
+			}
+			for (int source=0; source<n; source++) {
+				if (this.resultStore != null)
+					this.resultStore.add(this.enrConnComp.getVertexId(source), results.get(source).get(), n);
+				else
+					this.mapCalcPageRanks.put(this.enrConnComp.getVertexId(source), results.get(source).get());
+				results.set(source, null);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Random walks have been interrupted.", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Random walks failed.", e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+
+	/**
+	 * Simulates the random walks of one source. The random generator is seeded
+	 * by the source, thus the estimates do not depend on the scheduling of the threads.
+	 * @param source Local index of the source.
+	 * @return The estimated (sparse) pagerank vector.
+	 */
+	public List<Vertex<Long, VertexValue>> calculateOneSource (int source) {
+		int[] offsets = this.enrConnComp.getOffsets();
+		int[] targets = this.enrConnComp.getTargets();
+		float teleportProb = HolomaConstants.TELEPORT_PROB;
+		Random random = new Random(this.enrConnComp.getVertexId(source));
+		int[] stops = new int[this.enrConnComp.getNumberOfVertices()];
+
+		for (int walk=0; walk<this.numWalks; walk++) {
+			int v = source;
+			while (true) {
+				if (random.nextFloat() < teleportProb) {
+					stops[v]++;
+					break;
+				}
+				if (offsets[v] == offsets[v+1]) break;	// walk is lost
+				v = targets[nextEdge(offsets[v], offsets[v+1], random.nextFloat())];
+			}
+		}
+
+		List<Vertex<Long, VertexValue>> verticesWithPR = new ArrayList<Vertex<Long, VertexValue>>();
+		for (int v=0; v<stops.length; v++) {
+			if (stops[v] > 0)
+				verticesWithPR.add(new Vertex<Long, VertexValue>(this.enrConnComp.getVertexId(v),
+						new VertexValue(this.enrConnComp.getOntName(v), stops[v]/(float) this.numWalks)));
+		}
+		return verticesWithPR;
+	}
+
+
+	/**
+	 * Selects an outgoing edge by binary search on the cumulative transition probabilities.
+	 * @param from Position of the first outgoing edge.
+	 * @param to Position after the last outgoing edge.
+	 * @param rand Uniform random number in [0,1).
+	 * @return Position of the selected edge.
+	 */
+	private int nextEdge (int from, int to, float rand) {
+		int lo = from, hi = to-1;
+		while (lo < hi) {
+			int mid = (lo+hi) >>> 1;
+			if (this.cumTransProbs[mid] > rand) hi = mid;
+			else lo = mid+1;
+		}
+		return lo;
+	}
+
+
+}
@@ -1,5 +1,6 @@
 package holoma.ppr;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -10,89 +11,155 @@ import org.apache.flink.api.java.tuple.Tuple2;
 import org.apache.flink.graph.Graph;
 import org.apache.flink.graph.Vertex;
 
+import holoma.HolomaConstants;
 import holoma.complexDatatypes.EdgeValue;
 import holoma.complexDatatypes.VertexValue;
+import holoma.parsing.UriDictionary;
+import tools.io.StreamingWriter;
 
 /**
  * Evaluates the results of applying the personalized pagerank algorithm
  * to the enriched connected components.
+ * The result vectors are read from a {@link TopKPageRanks} store; if the store keeps
+ * only the top targets of each source, all friends refer to these targets.
  * @author max
  *
  */
 public class PPREvaluation {
 	
 	/** The underlying structure, the enriched connected component. */
-	private Graph<String, VertexValue, EdgeValue> component = null;
-	/** 
-	 * The result vectors:
-	 * the outer map maps from source to its result vector;
-	 * the inner map maps from vertexId to its pagerank value.
-	 */
-	private Map<String, Map<String, VertexValue>> prVectors = null;
+	private Graph<Long, VertexValue, EdgeValue> component = null;
+	/** The result vectors. */
+	private TopKPageRanks prVectors = null;
+	/** The last evaluation of the friends. */
+	private FriendEvaluation evaluation = null;
+	/** Excluded vertices of the last evaluation. */
+	private Set<Long> evaluatedNoFriends = null;
 	
 	
 	/**  Constructor.
 	 * @param component The underlying structure, the enriched connected component.
 	 * @param prVectors The result vectors.
 	 */
-	public PPREvaluation (Graph<String, VertexValue, EdgeValue> component, 
-			Map<String, List<Vertex<String, VertexValue>>> prVectors) {
+	public PPREvaluation (Graph<Long, VertexValue, EdgeValue> component, 
+			Map<Long, List<Vertex<Long, VertexValue>>> prVectors) {
+		this(prVectors);
 		this.component=component;
-		Map<String, Map<String, VertexValue>> mOuter = new HashMap<String, Map<String, VertexValue>>();
-		for (String s : prVectors.keySet()) {
-			Map<String, VertexValue> mInner = new HashMap<String, VertexValue>();
-			for (Vertex<String, VertexValue> t : prVectors.get(s))
-				mInner.put(t.f0, t.f1);
-			mOuter.put(s, mInner);			
-		}
-		this.prVectors=mOuter;
+	}
+	
+	
+	/**  Constructor for result vectors which have not been calculated on a Gelly graph.
+	 * @param prVectors The result vectors.
+	 */
+	public PPREvaluation (Map<Long, List<Vertex<Long, VertexValue>>> prVectors) {
+		this.prVectors = new TopKPageRanks(TopKPageRanks.ALL, false);
+		for (Long s : prVectors.keySet())
+			this.prVectors.add(s, prVectors.get(s));
+	}
+	
+	
+	/**  Constructor for result vectors which have been stored compactly.
+	 * @param prVectors The result vectors.
+	 */
+	public PPREvaluation (TopKPageRanks prVectors) {
+		this.prVectors=prVectors;
 	}
 	
 	
 	/**
 	 * Returns a String which represent the pagerank vector for each vertex.
+	 * @param dictionary Dictionary which resolves the vertex IDs to their URLs.
 	 * @return Pagerank vectors.
 	 */
-	public String getPrVectorsAsString () {
-		String res = "prVectors (enrConnComp size: "+this.prVectors.size()+"):\n";
-		res += "  <source>=(<target>,[<ontName>,<pagerank>])\n";
-		for (String src : this.prVectors.keySet()) {
-			Map<String, VertexValue> vect = this.prVectors.get(src);
-			for (String trg : vect.keySet())
-				res += "  src: "+src+" \t trg: "+trg+" \t "+vect.get(trg)+")\n";
+	public String getPrVectorsAsString (UriDictionary dictionary) {
+		StringBuilder res = new StringBuilder();
+		try {
+			appendPrVectors(res, dictionary);
+		} catch (IOException e) {
+			// not thrown by a StringBuilder
+			throw new IllegalStateException(e);
+		}
+		return res.toString();
+	}
+
+	/**
+	 * Streams the pagerank vector for each vertex to <code>out</code>.
+	 * @param out Output, e.g., a file.
+	 * @param dictionary Dictionary which resolves the vertex IDs to their URLs.
+	 * @throws IOException Writing failed.
+	 */
+	public void appendPrVectors (Appendable out, UriDictionary dictionary) throws IOException {
+		out.append("prVectors (enrConnComp size: ").append(String.valueOf(this.prVectors.getNumberOfSources())).append("):\n");
+		out.append("  <source>=(<target>,[<ontName>,<pagerank>])\n");
+		for (int src=0; src<this.prVectors.getNumberOfSources(); src++) {
+			String source = "  src: "+dictionary.decode(this.prVectors.getSourceId(src))+" \t trg: ";
+			for (int pos=this.prVectors.getOffset(src); pos<this.prVectors.getOffset(src+1); pos++)
+				out.append(source).append(dictionary.decode(this.prVectors.getTargetId(pos)))
+					.append(" \t ").append(String.valueOf(getValue(pos))).append(")\n");
 		}
-		return res;
+	}
+
+	/**
+	 * Writes the pagerank vector for each vertex.
+	 * Schema of the text formats: as {@link #appendPrVectors(Appendable, UriDictionary)}, introduced by the component ID.
+	 * Schema of the binary format: one record per source, i.e., the component ID (long), the source ID (long),
+	 * the number of targets (int) and per target its ID (long) and pagerank (float);
+	 * the URLs and ontologies are given by the dictionary and vertex files.
+	 * @param out The writer.
+	 * @param compId ID of the connected component.
+	 * @param dictionary Dictionary which resolves the vertex IDs to their URLs.
+	 * @throws IOException Writing failed.
+	 */
+	public void writePrVectors (StreamingWriter out, long compId, UriDictionary dictionary) throws IOException {
+		if (!out.isBinary()) {
+			out.writeLine("component ID: "+compId);
+			appendPrVectors(out, dictionary);
+			return;
+		}
+		for (int src=0; src<this.prVectors.getNumberOfSources(); src++) {
+			int from = this.prVectors.getOffset(src), to = this.prVectors.getOffset(src+1);
+			out.writeLong(compId);
+			out.writeLong(this.prVectors.getSourceId(src));
+			out.writeInt(to-from);
+			for (int pos=from; pos<to; pos++) {
+				out.writeLong(this.prVectors.getTargetId(pos));
+				out.writeFloat(this.prVectors.getPr(pos));
+			}
+		}
+	}
+
+	/**
+	 * Evaluates the friends of all sources in a single pass per source.
+	 * @param noFriends Vertices which are ignored as best friends apart from excluded vertices; may be null.
+	 * @param k Number of best true friends per source; 0 skips them.
+	 * @param parallelism Number of threads.
+	 * @return The evaluation.
+	 */
+	public FriendEvaluation evaluate (Set<Long> noFriends, int k, int parallelism) {
+		return new FriendEvaluation(this.prVectors, noFriends, k, parallelism);
+	}
+	
+	/**
+	 * Returns the evaluation of the friends; the evaluation is reused
+	 * as long as the excluded vertices do not change.
+	 * @param noFriends Excluded vertices; may be null.
+	 * @return The evaluation.
+	 */
+	private FriendEvaluation getEvaluation (Set<Long> noFriends) {
+		Set<Long> excluded = (noFriends == null) ? new HashSet<Long>() : noFriends;
+		if (this.evaluation == null || !excluded.equals(this.evaluatedNoFriends)) {
+			this.evaluation = evaluate(excluded, 0, HolomaConstants.PPR_EVAL_PARALLELISM);
+			this.evaluatedNoFriends = new HashSet<Long>(excluded);
+		}
+		return this.evaluation;
 	}
 	
 	/**
 	 * Returns for each vertex its best friend(s), i.e., the vertex with the highest pagerank.
 	 * @return Best friend(s) for each vertex.
 	 */
-	public Map<String, Set<Tuple2<String, VertexValue>>> getBestFriends () {
-		Map<String, Set<Tuple2<String, VertexValue>>> bestFriends = new HashMap<String, Set<Tuple2<String, VertexValue>>>();
-		// iterate over each vertex
-		for (String vertexId : this.prVectors.keySet()) {
-			// ... and find its best friend (or the set of the (same) best friends)
-			Set<Tuple2<String, VertexValue>> bestsOfX = new HashSet<Tuple2<String, VertexValue>>();
-			Tuple2<String, VertexValue> bestFriend = new Tuple2<String, VertexValue>("", new VertexValue("",-1f));
-			Map<String, VertexValue> prVector = this.prVectors.get(vertexId);
-			for (String friendId : prVector.keySet()) {	
-				if (prVector.get(friendId).pr > bestFriend.f1.pr) {	
-					// there is an even better friend
-					bestFriend = new Tuple2<String, VertexValue>(friendId, prVector.get(friendId));
-					bestsOfX.clear();
-					bestsOfX.add(bestFriend);
-				} else if (Math.abs(prVector.get(friendId).pr - bestFriend.f1.pr) < 0.000000001f) {
-					// there is a friend as good as the current best friend
-					Tuple2<String, VertexValue> furtherBestFriend = new Tuple2<String, VertexValue>(friendId, prVector.get(friendId));
-					bestsOfX.add(furtherBestFriend);
-				}
-			}
-			// ... and collect the vertex plus its best friend
-			bestFriends.put(vertexId, bestsOfX);
-		}		
-		
-		return bestFriends;
+	public Map<Long, Set<Tuple2<Long, VertexValue>>> getBestFriends () {
+		return getEvaluation(this.evaluatedNoFriends).getBestFriends();
 	}
 	
 	/**
@@ -100,40 +167,8 @@ public class PPREvaluation {
 	 * The vertex must be a true friend, i.e., you cannot be befriend with yourself and its pagerank must be greater than zero.
 	 * @return Best friend(s) for each vertex.
 	 */
-	public Map<String, Set<Tuple2<String, VertexValue>>> getTrueBestFriends () {
-		Map<String, Set<Tuple2<String, VertexValue>>> bestFriends = new HashMap<String, Set<Tuple2<String, VertexValue>>>();
-		// iterate over each vertex
-		for (String vertexId : this.prVectors.keySet()) {
-			// ... and find its best friend (or the set of the (same) best friends)
-			Set<Tuple2<String, VertexValue>> bestsOfX = new HashSet<Tuple2<String, VertexValue>>();
-			Tuple2<String, VertexValue> bestFriend = new Tuple2<String, VertexValue>("", new VertexValue("",-1f));
-			Map<String, VertexValue> prVector = this.prVectors.get(vertexId);
-			for (String friendId : prVector.keySet()) {
-				float friendPr = prVector.get(friendId).pr;
-				if (Math.abs(friendPr-0f) > 0.000000001f) {
-					if (friendPr > bestFriend.f1.pr) {	
-						// there is an even better friend
-						if (!vertexId.equals(friendId)) {
-							// ... it is not the source vertex
-							bestFriend = new Tuple2<String, VertexValue>(friendId, prVector.get(friendId));
-							bestsOfX.clear();
-							bestsOfX.add(bestFriend);
-						}
-					} else if (Math.abs(friendPr - bestFriend.f1.pr) < 0.000000001f) {
-						// there is a friend as good as the current best friend
-						if (!vertexId.equals(friendId)) {
-							// ... it is not the source vertex
-							Tuple2<String, VertexValue> furtherBestFriend = new Tuple2<String, VertexValue>(friendId, prVector.get(friendId));
-							bestsOfX.add(furtherBestFriend);
-						}
-					}
-				}
-			}
-			// ... and collect the vertex plus its best friend
-			bestFriends.put(vertexId, bestsOfX);
-		}		
-		
-		return bestFriends;
+	public Map<Long, Set<Tuple2<Long, VertexValue>>> getTrueBestFriends () {
+		return getEvaluation(this.evaluatedNoFriends).getTrueBestFriends();
 	}
 	
 	
@@ -143,33 +178,8 @@ public class PPREvaluation {
 	 * @param noFriends Specifies which friends are actual no friends and have to be ignored as a best friend.
 	 * @return Best friend(s) for each vertex.
 	 */
-	public Map<String, Set<Tuple2<String, VertexValue>>> getBestFriends (Set<String> noFriends) {
-		Map<String, Set<Tuple2<String, VertexValue>>> bestFriends = new HashMap<String, Set<Tuple2<String, VertexValue>>>();
-		// iterate over each vertex
-		for (String vertexId : this.prVectors.keySet()) {
-			// ... and find its best friend (or the set of the (same) best friends)
-			Set<Tuple2<String, VertexValue>> bestsOfX = new HashSet<Tuple2<String, VertexValue>>();
-			Tuple2<String, VertexValue> bestFriend = new Tuple2<String, VertexValue>("", new VertexValue("",-1f));
-			Map<String, VertexValue> prVector = this.prVectors.get(vertexId);
-			for (String friendId : prVector.keySet()) {
-				// exclude as best friends vertices which are specified as method parameter
-				if (noFriends.contains(friendId)) continue;
-				if (prVector.get(friendId).pr > bestFriend.f1.pr) {	
-					// there is an even better friend
-					bestFriend = new Tuple2<String, VertexValue>(friendId, prVector.get(friendId));
-					bestsOfX.clear();
-					bestsOfX.add(bestFriend);
-				} else if (Math.abs(prVector.get(friendId).pr - bestFriend.f1.pr) < 0.000000001f) {
-					// there is a friend as good as the current best friend
-					Tuple2<String, VertexValue> furtherBestFriend = new Tuple2<String, VertexValue>(friendId, prVector.get(friendId));
-					bestsOfX.add(furtherBestFriend);
-				}
-			}
-			// ... and collect the vertex plus its best friend
-			bestFriends.put(vertexId, bestsOfX);
-		}		
-		
-		return bestFriends;
+	public Map<Long, Set<Tuple2<Long, VertexValue>>> getBestFriends (Set<Long> noFriends) {
+		return getEvaluation(noFriends).getExcludedBestFriends();
 	}
 	
 	
@@ -177,50 +187,32 @@ public class PPREvaluation {
 	 * Returns for each vertex its worst friend(s), i.e., the vertex with the lowest pagerank.
 	 * @return Worst friend(s) for each vertex.
 	 */
-	public Map<String, Set<Tuple2<String, VertexValue>>> getWorstFriends () {
-		Map<String, Set<Tuple2<String, VertexValue>>> worstFriends = new HashMap<String, Set<Tuple2<String, VertexValue>>>();
-		// iterate over each vertex
-		for (String vertexId : this.prVectors.keySet()) {
-			// ... and find its worst friend (or the set of the (same) worst friends)
-			Set<Tuple2<String, VertexValue>> worstsOfX = new HashSet<Tuple2<String, VertexValue>>();
-			Tuple2<String, VertexValue> worstFriend = new Tuple2<String, VertexValue>("", new VertexValue("", 1000f));
-			Map<String, VertexValue> prVector = this.prVectors.get(vertexId);
-			for (String friendId : prVector.keySet()) {	
-				if (prVector.get(friendId).pr < worstFriend.f1.pr) {	
-					// there is an even better friend
-					worstFriend = new Tuple2<String, VertexValue>(friendId, prVector.get(friendId));
-					worstsOfX.clear();
-					worstsOfX.add(worstFriend);
-				} else if (Math.abs(prVector.get(friendId).pr - worstFriend.f1.pr) < 0.000000001f) {
-					// there is a friend as good as the current best friend
-					Tuple2<String, VertexValue> furtherWorstFriend = new Tuple2<String, VertexValue>(friendId, prVector.get(friendId));
-					worstsOfX.add(furtherWorstFriend);
-				}
-			}
-			// ... and collect the vertex plus its best friend
-			worstFriends.put(vertexId, worstsOfX);
-		}		
-		
-		return worstFriends;
+	public Map<Long, Set<Tuple2<Long, VertexValue>>> getWorstFriends () {
+		return getEvaluation(this.evaluatedNoFriends).getWorstFriends();
 	}
 	
 	/**
 	 * Calculates the mean of all page rank values depending on the source.
 	 * @return
 	 */
-	public Map<String, Float> getStatistMeans () {
-		Map<String, Float> meanStatistic = new HashMap<String, Float>();
-		for (String source : this.prVectors.keySet()) {
-			Map<String, VertexValue> prVector = this.prVectors.get(source);
-			float sum = 0f;
-			for (String target : prVector.keySet()) sum += prVector.get(target).pr;
-			float mean = sum/prVector.size();
-			meanStatistic.put(source, mean);
-		}
+	public Map<Long, Float> getStatistMeans () {
+		Map<Long, Float> meanStatistic = new HashMap<Long, Float>();
+		for (int src=0; src<this.prVectors.getNumberOfSources(); src++)
+			meanStatistic.put(this.prVectors.getSourceId(src), this.prVectors.getMean(src));
 		return meanStatistic;
 	}
 	
 	
+	/**
+	 * Returns the vertex value of a target.
+	 * @param pos Position of the target.
+	 * @return Ontology name and pagerank of the target.
+	 */
+	private VertexValue getValue (int pos) {
+		return new VertexValue(this.prVectors.getOntName(pos), this.prVectors.getPr(pos));
+	}
+	
+	
 	
 	
 }
@@ -1,9 +1,12 @@
 package holoma.ppr;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.flink.api.common.aggregators.DoubleSumAggregator;
 import org.apache.flink.api.common.functions.MapFunction;
 import org.apache.flink.api.java.DataSet;
 import org.apache.flink.api.java.tuple.Tuple2;
@@ -14,36 +17,68 @@ import org.apache.flink.graph.ReduceEdgesFunction;
 import org.apache.flink.graph.Vertex;
 import org.apache.flink.graph.spargel.MessageIterator;
 import org.apache.flink.graph.spargel.MessagingFunction;
+import org.apache.flink.graph.spargel.VertexCentricConfiguration;
 import org.apache.flink.graph.spargel.VertexUpdateFunction;
+import org.apache.flink.types.DoubleValue;
 
 import holoma.HolomaConstants;
 import holoma.complexDatatypes.EdgeValue;
 import holoma.complexDatatypes.VertexValue;
+import holoma.complexDatatypes.VertexVectorValue;
 
 public class PersonalizedPageRank {
 	
+	/** Name of the aggregator which sums up the L1 change of the pagerank within a superstep. */
+	static final String L1_CHANGE_AGGREGATOR = "pagerank L1 change";
+	
 	//static Graph<String, VertexValue, Float> enrConnComp;
-	public Graph<String, VertexValue, EdgeValue> enrConnComp; // who is right?
+	public Graph<Long, VertexValue, EdgeValue> enrConnComp; // who is right?
+	/** The enriched connected component with transition probabilities as edge weights; created once per component. */
+	private Graph<Long, VertexValue, EdgeValue> transGraph = null;
 	
 	/** The results. */
 	//source_ID, target_ID, target
-	Map<String, List<Vertex<String, VertexValue>>> mapCalcPageRanks = new HashMap<String, List<Vertex<String,VertexValue>>>();
+	Map<Long, List<Vertex<Long, VertexValue>>> mapCalcPageRanks = new HashMap<Long, List<Vertex<Long,VertexValue>>>();
+	/** Number of supersteps which have updated the pagerank, per source. */
+	Map<Long, Integer> mapIterations = new HashMap<Long, Integer>();
+	/** Compact store of the results; null iff the results are kept in the map. */
+	private TopKPageRanks resultStore = null;
 	
 	/**
 	 * Returns the map of source ID to its pagerank vector.
 	 * @return The result.
 	 */
-	public Map<String, List<Vertex<String, VertexValue>>> getMapCalcPageRanks ()  {
+	public Map<Long, List<Vertex<Long, VertexValue>>> getMapCalcPageRanks ()  {
 		return this.mapCalcPageRanks;
 	}
 	
+	/**
+	 * Returns the map of source ID to the number of supersteps which have updated its pagerank
+	 * before convergence (at most <code>MAX_ITER_PPR</code>).
+	 * If all sources are calculated in one iteration, they share this number.
+	 * @return Number of iterations per source.
+	 */
+	public Map<Long, Integer> getMapIterations ()  {
+		return this.mapIterations;
+	}
+	
+	/**
+	 * Sets a store which keeps the results compactly instead of the map of vertex lists.
+	 * @param resultStore The store; null iff the results are kept in the map.
+	 */
+	public void setResultStore (TopKPageRanks resultStore) {
+		this.resultStore=resultStore;
+	}
+	
 	/**
 	 * 
 	 * @param enrConnComp
 	 */
-	public void setEnrConnComp (Graph<String, VertexValue, EdgeValue> enrConnComp) {
+	public void setEnrConnComp (Graph<Long, VertexValue, EdgeValue> enrConnComp) {
 		this.enrConnComp=enrConnComp;
-		this.mapCalcPageRanks = new HashMap<String, List<Vertex<String,VertexValue>>>();
+		this.transGraph = null;
+		this.mapCalcPageRanks = new HashMap<Long, List<Vertex<Long,VertexValue>>>();
+		this.mapIterations = new HashMap<Long, Integer>();
 	}
 	
 	/**
@@ -51,14 +86,16 @@ public class PersonalizedPageRank {
 	 * @throws Exception Exception during Messaging.
 	 */
 	public void start () throws Exception {		
+		if (HolomaConstants.IS_MULTI_SOURCE_PPR) {
+			startMultiSource();
+			return;
+		}
 		
-		List<Vertex<String, VertexValue>> sources = this.enrConnComp.getVertices().collect();
+		List<Vertex<Long, VertexValue>> sources = getTransitionGraph().getVertices().collect();
 		
 		// iterate over all vertices as sources
-		for (Vertex<String, VertexValue> source : sources) {		
-			// #1: initialize component
-			this.enrConnComp = this.enrConnComp.mapVertices(new InitMapper(source.f0));
-			// #2: calculate pagerank 
+		for (Vertex<Long, VertexValue> source : sources) {		
+			// calculate pagerank 
 			try {
 				calculateOneSource(source);
 			} catch (Exception e) {
@@ -70,47 +107,172 @@ public class PersonalizedPageRank {
 	
 	
 	
+	/**
+	 * Starts the computation of pagerank for all sources in one iteration.
+	 * Each vertex carries one pagerank value per source, and all sources
+	 * are propagated in the same supersteps.
+	 * @throws Exception Exception during Messaging.
+	 */
+	public void startMultiSource () throws Exception {
+		Graph<Long, VertexValue, EdgeValue> transGraph = getTransitionGraph();
+		List<Long> sourceList = transGraph.getVertexIds().collect();
+		long[] sourceIds = new long[sourceList.size()];
+		for (int i=0; i<sourceIds.length; i++)
+			sourceIds[i] = sourceList.get(i);
+		Arrays.sort(sourceIds);
+		
+		// #1: initialize component: the slot of each source has pagerank 1 at the source
+		Graph<Long, VertexVectorValue, EdgeValue> vectorGraph =
+				transGraph.mapVertices(new InitVectorMapper(sourceIds));
+		// #2: calculate pagerank for all sources
+		Graph<Long, VertexVectorValue, EdgeValue> calcGraph = 
+				vectorGraph.runVertexCentricIteration(
+						new VertexVectorPageRankUpdater(HolomaConstants.TELEPORT_PROB, HolomaConstants.PPR_CONVERGENCE_EPSILON),
+						new VectorPageRankMessenger(), HolomaConstants.MAX_ITER_PPR,
+						getIterationConfiguration());
+		// #3: split the result vectors by source
+		List<Vertex<Long, VertexVectorValue>> verticesWithPRs = calcGraph.getVertices().collect();
+		int iterations = 0;
+		for (Vertex<Long, VertexVectorValue> vertex : verticesWithPRs)
+			iterations = Math.max(iterations, vertex.f1.superstep);
+		for (int slot=0; slot<sourceIds.length; slot++) {
+			List<Vertex<Long, VertexValue>> verticesWithPR = new ArrayList<Vertex<Long, VertexValue>>(verticesWithPRs.size());
+			for (Vertex<Long, VertexVectorValue> vertex : verticesWithPRs)
+				verticesWithPR.add(new Vertex<Long, VertexValue>(vertex.f0,
+						new VertexValue(vertex.f1.ontName, vertex.f1.pr[slot])));
+			if (this.resultStore != null)
+				this.resultStore.add(sourceIds[slot], verticesWithPR);
+			else
+				this.mapCalcPageRanks.put(sourceIds[slot], verticesWithPR);
+			this.mapIterations.put(sourceIds[slot], iterations);
+		}
+	}
+	
+	
+	/**
+	 * Returns the configuration of the pagerank iteration, which registers
+	 * the aggregator of the L1 change for the convergence check.
+	 * @return Configuration of the vertex-centric iteration.
+	 */
+	private static VertexCentricConfiguration getIterationConfiguration () {
+		VertexCentricConfiguration parameters = new VertexCentricConfiguration();
+		parameters.registerAggregator(L1_CHANGE_AGGREGATOR, new DoubleSumAggregator());
+		return parameters;
+	}
+	
+	
+	/**
+	 * Checks whether the iteration has converged, i.e., whether the L1 change
+	 * of the pagerank within the previous superstep is below <code>epsilon</code>.
+	 * @param superstep Current superstep.
+	 * @param previousL1Change Aggregated L1 change of the previous superstep.
+	 * @param epsilon Convergence threshold; 0 disables the check.
+	 * @return 'true' iff the vertices must not be updated anymore.
+	 */
+	static boolean isConverged (int superstep, DoubleValue previousL1Change, float epsilon) {
+		return epsilon > 0f && superstep > 1 && previousL1Change != null
+				&& previousL1Change.getValue() < epsilon;
+	}
+	
+	
+	/**
+	 * Returns the enriched connected component whose edge weights are the transition
+	 * probabilities, i.e., the weight divided by the sum of outgoing weights of the source.
+	 * The normalized edges are collected when they are needed the first time,
+	 * thus the iterations of all sources reuse them without further jobs.
+	 * @return Component with transition probabilities as edge weights.
+	 * @throws Exception Cannot collect the vertices or normalized edges.
+	 */
+	Graph<Long, VertexValue, EdgeValue> getTransitionGraph () throws Exception {
+		if (this.transGraph == null) {
+			DataSet<Tuple2<Long, EdgeValue>> sumWeights = this.enrConnComp.reduceOnEdges(new SumWeight(), EdgeDirection.OUT);
+			Graph<Long, VertexValue, EdgeValue> normalized =
+					this.enrConnComp.joinWithEdgesOnSource(sumWeights, new NormalizeWeight());
+			this.transGraph = Graph.fromCollection(this.enrConnComp.getVertices().collect(),
+					normalized.getEdges().collect(), this.enrConnComp.getContext());
+		}
+		return this.transGraph;
+	}
+	
+	
 	/** Starts calculation of personalized pagerank for one source.
 	 * @param source Source.
 	 * @throws Exception Exception during Messaging.
 	 */
-	public void calculateOneSource(Vertex<String, VertexValue> source) throws Exception {
+	public void calculateOneSource(Vertex<Long, VertexValue> source) throws Exception {
+		// initialize component: the source has pagerank 1
+		Graph<Long, VertexValue, EdgeValue> initGraph = getTransitionGraph().mapVertices(new InitMapper(source.f0));
 		// calculate pagerank for one source and for all vertices
-		Graph<String, VertexValue, EdgeValue> calcGraph = 
-				this.enrConnComp.runVertexCentricIteration(
-						new VertexPageRankUpdater(HolomaConstants.TELEPORT_PROB, source),
-						new PageRankMessenger(this.enrConnComp), HolomaConstants.MAX_ITER_PPR);	
+		Graph<Long, VertexValue, EdgeValue> calcGraph = 
+				initGraph.runVertexCentricIteration(
+						new VertexPageRankUpdater(HolomaConstants.TELEPORT_PROB, source, HolomaConstants.PPR_CONVERGENCE_EPSILON),
+						new PageRankMessenger(), HolomaConstants.MAX_ITER_PPR,
+						getIterationConfiguration());	
 		// save result vector
-		List<Vertex<String, VertexValue>> verticesWithPR = calcGraph.getVertices().collect();
-		this.mapCalcPageRanks.put(source.f0, verticesWithPR);		
+		List<Vertex<Long, VertexValue>> verticesWithPR = calcGraph.getVertices().collect();
+		if (this.resultStore != null)
+			this.resultStore.add(source.f0, verticesWithPR);
+		else
+			this.mapCalcPageRanks.put(source.f0, verticesWithPR);		
+		int iterations = 0;
+		for (Vertex<Long, VertexValue> vertex : verticesWithPR)
+			iterations = Math.max(iterations, vertex.f1.superstep);
+		this.mapIterations.put(source.f0, iterations);
 	}
 	
 	
 	/**
 	 * Class for updates on the vertices during iteration.
+	 * As soon as the L1 change of the previous superstep is below <code>epsilon</code>,
+	 * no vertex is updated anymore, thus no messages are sent and the iteration stops.
 	 * @author agata
 	 *
 	 */
 	@SuppressWarnings("serial")
 	public static final class VertexPageRankUpdater
-		extends VertexUpdateFunction<String, VertexValue, Float> {
+		extends VertexUpdateFunction<Long, VertexValue, Float> {
 		
 		final float teleportProb;
-		final Vertex<String, VertexValue> source;
+		final Vertex<Long, VertexValue> source;
+		/** Convergence threshold of the L1 change; 0 disables the check. */
+		final float epsilon;
+		private DoubleSumAggregator l1Change;
 		
 		/**
 		 * Constructor.
 		 * @param teleportProb Teleportation probability (epsilon).
 		 * @param source Source vertex.
 		 */
-		public VertexPageRankUpdater (float teleportProb, Vertex<String, VertexValue> source) {
+		public VertexPageRankUpdater (float teleportProb, Vertex<Long, VertexValue> source) {
+			this(teleportProb, source, 0f);
+		}
+		
+		/**
+		 * Constructor. The iteration must register the aggregator <code>L1_CHANGE_AGGREGATOR</code>
+		 * iff <code>epsilon</code> is positive.
+		 * @param teleportProb Teleportation probability (epsilon).
+		 * @param source Source vertex.
+		 * @param epsilon Convergence threshold of the L1 change; 0 disables the check.
+		 */
+		public VertexPageRankUpdater (float teleportProb, Vertex<Long, VertexValue> source, float epsilon) {
 			this.teleportProb=teleportProb;
 			this.source = source;
+			this.epsilon = epsilon;
+		}
+		
+		@Override
+		public void preSuperstep() throws Exception {
+			if (this.epsilon > 0f)
+				this.l1Change = getIterationAggregator(L1_CHANGE_AGGREGATOR);
 		}
 		
 		/** Update method. */
 		@Override
-		public void updateVertex(Vertex<String, VertexValue> vertex, MessageIterator<Float> mssgIt) throws Exception {
+		public void updateVertex(Vertex<Long, VertexValue> vertex, MessageIterator<Float> mssgIt) throws Exception {
+			DoubleValue previousL1Change = (this.epsilon > 0f) ?
+					this.<DoubleValue>getPreviousIterationAggregate(L1_CHANGE_AGGREGATOR) : null;
+			if (isConverged(getSuperstepNumber(), previousL1Change, this.epsilon))
+				return;
 			
 			// sum all of the messages
 			float sum = 0;
@@ -120,12 +282,15 @@ public class PersonalizedPageRank {
 			float pr = (1-this.teleportProb)*sum+this.teleportProb*delta(vertex);
 			
 			VertexValue val = new VertexValue(vertex.getValue().ontName, pr);
+			val.superstep = getSuperstepNumber();
+			if (this.l1Change != null)
+				this.l1Change.aggregate(Math.abs(pr-vertex.getValue().pr));
 			
 			setNewVertexValue(val);
 			
 		}	
 		
-		private int delta (Vertex<String, VertexValue> v) {
+		private int delta (Vertex<Long, VertexValue> v) {
 			return (v.f0.equals(this.source.f0)) ? 1 : 0;
 		}
 	}
@@ -133,27 +298,107 @@ public class PersonalizedPageRank {
 	
 	/**
 	 * Class for sending messages during iteration.
+	 * The edge weights must be transition probabilities, see {@link PersonalizedPageRank#getTransitionGraph()}.
 	 * @author agata
 	 *
 	 */
 	@SuppressWarnings("serial")
 	public static final class PageRankMessenger
-		extends MessagingFunction<String, VertexValue, Float, EdgeValue> {
-
-		Map<String, EdgeValue> sumWeights = new HashMap<String, EdgeValue>();
+		extends MessagingFunction<Long, VertexValue, Float, EdgeValue> {
+		
+		/**
+		 * Messaging method.
+		 * @param arg0 Source vertex.
+		 * @throws Exception
+		 */
+		@Override
+		public void sendMessages(Vertex<Long, VertexValue> arg0) throws Exception {
+			for (Edge<Long, EdgeValue> edge : getEdges()){
+				sendMessageTo(edge.getTarget(), arg0.f1.pr*edge.getValue().weight);
+			}		
+		}		
+	}
+	
+	
+	/**
+	 * Class for updates on the pagerank vectors during iteration.
+	 * Each slot is updated as in {@link VertexPageRankUpdater}; the L1 change
+	 * is summed up over all slots.
+	 */
+	@SuppressWarnings("serial")
+	public static final class VertexVectorPageRankUpdater
+		extends VertexUpdateFunction<Long, VertexVectorValue, float[]> {
+		
+		final float teleportProb;
+		/** Convergence threshold of the L1 change; 0 disables the check. */
+		final float epsilon;
+		private DoubleSumAggregator l1Change;
 		
 		/**
 		 * Constructor.
-		 * @param enrConnComp
-		 * @throws Exception Cannot collect DataSet of sums of weights.
+		 * @param teleportProb Teleportation probability (epsilon).
 		 */
-		public PageRankMessenger (Graph<String, VertexValue, EdgeValue> enrConnComp) throws Exception {
-			DataSet<Tuple2<String, EdgeValue>> sumWeightsDS =enrConnComp.reduceOnEdges(new SumWeight(), EdgeDirection.OUT);
-			List<Tuple2<String, EdgeValue>> sumWeightsList = sumWeightsDS.collect();			
-			for (Tuple2<String, EdgeValue> tuple : sumWeightsList)
-				this.sumWeights.put(tuple.f0, tuple.f1);			
+		public VertexVectorPageRankUpdater (float teleportProb) {
+			this(teleportProb, 0f);
 		}
 		
+		/**
+		 * Constructor. The iteration must register the aggregator <code>L1_CHANGE_AGGREGATOR</code>
+		 * iff <code>epsilon</code> is positive.
+		 * @param teleportProb Teleportation probability (epsilon).
+		 * @param epsilon Convergence threshold of the L1 change; 0 disables the check.
+		 */
+		public VertexVectorPageRankUpdater (float teleportProb, float epsilon) {
+			this.teleportProb=teleportProb;
+			this.epsilon=epsilon;
+		}
+		
+		@Override
+		public void preSuperstep() throws Exception {
+			if (this.epsilon > 0f)
+				this.l1Change = getIterationAggregator(L1_CHANGE_AGGREGATOR);
+		}
+		
+		/** Update method. */
+		@Override
+		public void updateVertex(Vertex<Long, VertexVectorValue> vertex, MessageIterator<float[]> mssgIt) throws Exception {
+			DoubleValue previousL1Change = (this.epsilon > 0f) ?
+					this.<DoubleValue>getPreviousIterationAggregate(L1_CHANGE_AGGREGATOR) : null;
+			if (isConverged(getSuperstepNumber(), previousL1Change, this.epsilon))
+				return;
+			
+			// sum all of the messages per source
+			float[] pr = new float[vertex.getValue().pr.length];
+			for (float[] msg : mssgIt) 
+				for (int i=0; i<pr.length; i++)
+					pr[i] += msg[i];
+			
+			for (int i=0; i<pr.length; i++)
+				pr[i] = (1-this.teleportProb)*pr[i];
+			// the vertex is the source of its own slot
+			if (vertex.getValue().slot >= 0)
+				pr[vertex.getValue().slot] += this.teleportProb;
+			
+			if (this.l1Change != null) {
+				double change = 0;
+				for (int i=0; i<pr.length; i++)
+					change += Math.abs(pr[i]-vertex.getValue().pr[i]);
+				this.l1Change.aggregate(change);
+			}
+			VertexVectorValue val = new VertexVectorValue(vertex.getValue().ontName, vertex.getValue().slot, pr);
+			val.superstep = getSuperstepNumber();
+			setNewVertexValue(val);
+		}	
+	}
+	
+	
+	/**
+	 * Class for sending pagerank vectors during iteration.
+	 * The edge weights must be transition probabilities, see {@link PersonalizedPageRank#getTransitionGraph()}.
+	 */
+	@SuppressWarnings("serial")
+	public static final class VectorPageRankMessenger
+		extends MessagingFunction<Long, VertexVectorValue, float[], EdgeValue> {
 		
 		/**
 		 * Messaging method.
@@ -161,32 +406,68 @@ public class PersonalizedPageRank {
 		 * @throws Exception
 		 */
 		@Override
-		public void sendMessages(Vertex<String, VertexValue> arg0) throws Exception {
-			for (Edge<String, EdgeValue> edge : getEdges()){
-				sendMessageTo(edge.getTarget(),
-						arg0.f1.pr*(edge.getValue().weight/this.sumWeights.get(edge.getSource()).weight));
+		public void sendMessages(Vertex<Long, VertexVectorValue> arg0) throws Exception {
+			float[] pr = arg0.f1.pr;
+			for (Edge<Long, EdgeValue> edge : getEdges()){
+				float factor = edge.getValue().weight;
+				float[] msg = new float[pr.length];
+				for (int i=0; i<pr.length; i++)
+					msg[i] = pr[i]*factor;
+				sendMessageTo(edge.getTarget(), msg);
 			}		
 		}		
 	}
 	
 	
+	/** Initializes the pagerank vectors of the vertices. */
+	@SuppressWarnings("serial")
+	static final class InitVectorMapper implements MapFunction<Vertex<Long,VertexValue>, VertexVectorValue> {
+		/** IDs of the sources in ascending order. */
+		long[] sourceIds;
+		
+		public InitVectorMapper (long[] sourceIds) {
+			this.sourceIds=sourceIds;
+		}
+		
+		@Override
+		public VertexVectorValue map(Vertex<Long, VertexValue> value) throws Exception {
+			int slot = Arrays.binarySearch(this.sourceIds, value.f0);
+			if (slot < 0) slot = -1;
+			float[] pr = new float[this.sourceIds.length];
+			if (slot >= 0) pr[slot] = 1f;
+			return new VertexVectorValue(value.f1.ontName, slot, pr);
+		}		
+	}
+	
+	
 	/** Initializes the vertices. */
 	@SuppressWarnings("serial")
-	static final class InitMapper implements MapFunction<Vertex<String,VertexValue>, VertexValue> {
-		String sourceId;
+	static final class InitMapper implements MapFunction<Vertex<Long,VertexValue>, VertexValue> {
+		long sourceId;
 		
-		public InitMapper (String sourceId) {
+		public InitMapper (long sourceId) {
 			this.sourceId=sourceId;
 		}
 		
 		@Override
-		public VertexValue map(Vertex<String, VertexValue> value) throws Exception {
-			value.f1.pr = (value.f0.equals(this.sourceId)) ? 1f : 0f;
+		public VertexValue map(Vertex<Long, VertexValue> value) throws Exception {
+			value.f1.pr = (value.f0 == this.sourceId) ? 1f : 0f;
+			value.f1.superstep = 0;
 			return value.f1;
 		}		
 	}
 	
 	
+	/** Divides the edge weight by the sum of outgoing weights of its source. */
+	@SuppressWarnings("serial")
+	static final class NormalizeWeight implements MapFunction<Tuple2<EdgeValue, EdgeValue>, EdgeValue> {
+		@Override
+		public EdgeValue map(Tuple2<EdgeValue, EdgeValue> value) throws Exception {
+			return new EdgeValue(value.f0.type, value.f0.weight/value.f1.weight);
+		}
+	}
+	
+	
 	/** Sums up edge weights. */
 	@SuppressWarnings("serial")
 	static final class SumWeight implements ReduceEdgesFunction<EdgeValue> {
@@ -0,0 +1,194 @@
+package holoma.ppr;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.flink.graph.Graph;
+import org.apache.flink.graph.Vertex;
+
+import holoma.HolomaConstants;
+import holoma.complexDatatypes.EdgeValue;
+import holoma.complexDatatypes.VertexValue;
+import holoma.graph.CsrSubgraph;
+
+/**
+ * Approximate personalized pagerank by local forward push (Andersen, Chung, Lang)
+ * on an in-memory CSR subgraph.
+ * Each source starts with residual 1. A vertex <i>u</i> whose residual exceeds
+ * <code>threshold</code> times its number of outgoing edges keeps
+ * <code>teleportProb</code> of its residual as pagerank and pushes the rest to its
+ * targets, weighted by the edge weight divided by its sum of outgoing weights.
+ * A vertex without outgoing edges keeps <code>teleportProb</code> of each residual
+ * it receives as pagerank at once; the rest is dropped.
+ * Only vertices which receive significant mass are touched, and the result
+ * vectors contain only vertices with positive pagerank.
+ * @author max
+ *
+ */
+public class PushPersonalizedPageRank {
+
+	/** The enriched connected component. */
+	private CsrSubgraph enrConnComp;
+	/** Transition probability of each edge, i.e., its weight divided by the sum of outgoing weights of its source. */
+	private float[] transProbs;
+	/** Residual threshold per outgoing edge. */
+	private final float threshold;
+
+	/** Pagerank per vertex of the current source. */
+	private float[] pr;
+	/** Residual per vertex of the current source. */
+	private float[] residual;
+	/** Marks the vertices within the queue. */
+	private boolean[] inQueue;
+	/** Ring buffer of the vertices to push; each vertex is queued at most once. */
+	private int[] queue;
+
+	/** The results. */
+	//source_ID, target_ID, target
+	Map<Long, List<Vertex<Long, VertexValue>>> mapCalcPageRanks = new HashMap<Long, List<Vertex<Long,VertexValue>>>();
+	/** Compact store of the results; null iff the results are kept in the map. */
+	private TopKPageRanks resultStore = null;
+
+
+	/**
+	 * Constructor.
+	 * @param threshold Residual threshold per outgoing edge; the smaller, the more accurate.
+	 */
+	public PushPersonalizedPageRank (float threshold) {
+		this.threshold = threshold;
+	}
+
+
+	/**
+	 * Returns the map of source ID to its (sparse) pagerank vector.
+	 * @return The result.
+	 */
+	public Map<Long, List<Vertex<Long, VertexValue>>> getMapCalcPageRanks ()  {
+		return this.mapCalcPageRanks;
+	}
+
+	/**
+	 * Sets a store which keeps the results compactly instead of the map of vertex lists.
+	 * @param resultStore The store; null iff the results are kept in the map.
+	 */
+	public void setResultStore (TopKPageRanks resultStore) {
+		this.resultStore=resultStore;
+	}
+
+	/**
+	 * Sets the enriched connected component and resets the results.
+	 * @param enrConnComp The enriched connected component.
+	 */
+	public void setEnrConnComp (CsrSubgraph enrConnComp) {
+		this.enrConnComp=enrConnComp;
+		this.mapCalcPageRanks = new HashMap<Long, List<Vertex<Long,VertexValue>>>();
+		int n = enrConnComp.getNumberOfVertices();
+		int[] offsets = enrConnComp.getOffsets();
+		float[] weights = enrConnComp.getWeights();
+		this.transProbs = new float[weights.length];
+		for (int v=0; v<n; v++) {
+			float sumWeights = 0f;
+			for (int e=offsets[v]; e<offsets[v+1]; e++)
+				sumWeights += weights[e];
+			for (int e=offsets[v]; e<offsets[v+1]; e++)
+				this.transProbs[e] = weights[e]/sumWeights;
+		}
+		this.pr = new float[n];
+		this.residual = new float[n];
+		this.inQueue = new boolean[n];
+		this.queue = new int[n];
+	}
+
+	/**
+	 * Sets an enriched connected component of the Gelly workflow and resets the results.
+	 * @param enrConnComp The enriched connected component.
+	 * @throws Exception Converting DataSet to List failed.
+	 */
+	public void setEnrConnComp (Graph<Long, VertexValue, EdgeValue> enrConnComp) throws Exception {
+		setEnrConnComp(CsrSubgraph.fromGraph(enrConnComp));
+	}
+
+	/** Starts the computation of pagerank for all sources. */
+	public void start () {
+		for (int source=0; source<this.enrConnComp.getNumberOfVertices(); source++)
+			calculateOneSource(source);
+	}
+
+
+	/**
+	 * Calculates approximate personalized pagerank for one source.
+	 * @param source Local index of the source.
+	 */
+	public void calculateOneSource (int source) {
+		int[] offsets = this.enrConnComp.getOffsets();
+		int[] targets = this.enrConnComp.getTargets();
+		float teleportProb = HolomaConstants.TELEPORT_PROB;
+		// vertices with pagerank or residual; only these are reset afterwards
+		List<Integer> touched = new ArrayList<Integer>();
+		int n = this.queue.length;
+		int head = 0, size = 0;
+
+		this.residual[source] = 1f;
+		touched.add(source);
+		this.queue[0] = source;
+		size++;
+		this.inQueue[source] = true;
+		while (size > 0) {
+			int u = this.queue[head];
+			head = (head+1) % n;
+			size--;
+			this.inQueue[u] = false;
+			float r = this.residual[u];
+			this.residual[u] = 0f;
+			this.pr[u] += teleportProb*r;
+			float pushed = (1-teleportProb)*r;
+			for (int e=offsets[u]; e<offsets[u+1]; e++) {
+				int v = targets[e];
+				if (this.residual[v] == 0f && this.pr[v] == 0f)
+					touched.add(v);
+				int degree = offsets[v+1]-offsets[v];
+				if (degree == 0) {
+					this.pr[v] += teleportProb*pushed*this.transProbs[e];
+					continue;
+				}
+				this.residual[v] += pushed*this.transProbs[e];
+				if (!this.inQueue[v] && this.residual[v] > this.threshold*degree) {
+					this.queue[(head+size) % n] = v;
+					size++;
+					this.inQueue[v] = true;
+				}
+			}
+		}
+
+		// save the sparse result vector and reset the touched vertices
+		boolean isStored = this.resultStore != null;
+		List<Vertex<Long, VertexValue>> verticesWithPR = isStored ? null : new ArrayList<Vertex<Long, VertexValue>>();
+		long[] ids = isStored ? new long[touched.size()] : null;
+		String[] onts = isStored ? new String[touched.size()] : null;
+		float[] prs = isStored ? new float[touched.size()] : null;
+		int numTargets = 0;
+		for (int v : touched) {
+			if (this.pr[v] > 0f) {
+				if (isStored) {
+					ids[numTargets] = this.enrConnComp.getVertexId(v);
+					onts[numTargets] = this.enrConnComp.getOntName(v);
+					prs[numTargets] = this.pr[v];
+					numTargets++;
+				} else {
+					verticesWithPR.add(new Vertex<Long, VertexValue>(this.enrConnComp.getVertexId(v),
+							new VertexValue(this.enrConnComp.getOntName(v), this.pr[v])));
+				}
+			}
+			this.pr[v] = 0f;
+			this.residual[v] = 0f;
+		}
+		if (isStored)
+			this.resultStore.add(this.enrConnComp.getVertexId(source), ids, onts, prs, numTargets, n);
+		else
+			this.mapCalcPageRanks.put(this.enrConnComp.getVertexId(source), verticesWithPR);
+	}
+
+
+}
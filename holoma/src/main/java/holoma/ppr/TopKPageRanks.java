@@ -0,0 +1,318 @@
+package holoma.ppr;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.flink.graph.Vertex;
+
+import holoma.complexDatatypes.VertexValue;
+
+/**
+ * Compact store of pagerank vectors which keeps only the <code>k</code> targets
+ * with the highest pagerank per source (or per source and target ontology).
+ * The targets are stored in primitive parallel arrays: the targets of the
+ * <i>i</i>-th source are at positions <code>getOffset(i) ... getOffset(i+1)-1</code>,
+ * in descending order of their pagerank (ties in ascending order of the vertex ID);
+ * if the targets are selected per ontology, they are grouped by ontology.
+ * Ontology names are stored once and referenced by index.
+ * The sum of pageranks and the number of vertices of each source are recorded
+ * before the selection, thus the means refer to the complete vectors; a sparse
+ * vector (e.g., of forward push or Monte Carlo) is completed by implicit zeros
+ * up to the size of the component, thus the means of all engines are comparable.
+ * @author max
+ *
+ */
+public class TopKPageRanks {
+
+	/** Keeps all targets of a source. */
+	public static final int ALL = Integer.MAX_VALUE;
+
+	/** Number of targets per source (or per source and ontology). */
+	private final int k;
+	/** Iff 'true', <code>k</code> targets are kept per target ontology. */
+	private final boolean isPerOntology;
+
+	/** Ontology names by index. */
+	private final List<String> ontNames = new ArrayList<String>();
+	/** Map from ontology name to its index. */
+	private final Map<String, Integer> ontIndex = new HashMap<String, Integer>();
+	/** Map from source ID to its index. */
+	private final Map<Long, Integer> sourceIndex = new HashMap<Long, Integer>();
+
+	/** Number of sources. */
+	private int numSources = 0;
+	/** Source ID by index. */
+	private long[] sourceIds = new long[16];
+	/** Sum of pageranks of the complete vector per source. */
+	private double[] sums = new double[16];
+	/** Number of vertices of the complete vector per source, including implicit zeros. */
+	private int[] counts = new int[16];
+	/** Offsets of the targets per source (length: number of sources plus one). */
+	private int[] offsets = new int[17];
+
+	/** Vertex ID per target. */
+	private long[] targetIds = new long[64];
+	/** Pagerank per target. */
+	private float[] prs = new float[64];
+	/** Ontology index per target. */
+	private int[] targetOnts = new int[64];
+
+
+	/**
+	 * Constructor.
+	 * @param k Number of targets per source (or per source and ontology); {@link #ALL} keeps all targets.
+	 * @param isPerOntology Iff 'true', <code>k</code> targets are kept per target ontology.
+	 */
+	public TopKPageRanks (int k, boolean isPerOntology) {
+		if (k <= 0)
+			throw new IllegalArgumentException("Invalid number of targets: "+k);
+		this.k = k;
+		this.isPerOntology = isPerOntology;
+	}
+
+
+	/**
+	 * Adds the pagerank vector of a source and keeps its top targets.
+	 * @param sourceId ID of the source.
+	 * @param ids Vertex ID per target.
+	 * @param onts Ontology name per target.
+	 * @param pr Pagerank per target.
+	 * @param n Number of targets, i.e., the first <code>n</code> positions of the arrays are used.
+	 */
+	public void add (long sourceId, long[] ids, String[] onts, float[] pr, int n) {
+		add(sourceId, ids, onts, pr, n, n);
+	}
+
+	/**
+	 * Adds a sparse pagerank vector of a source and keeps its top targets;
+	 * the missing vertices of the component have pagerank 0.
+	 * @param sourceId ID of the source.
+	 * @param ids Vertex ID per target.
+	 * @param onts Ontology name per target.
+	 * @param pr Pagerank per target.
+	 * @param n Number of targets, i.e., the first <code>n</code> positions of the arrays are used.
+	 * @param numVertices Number of vertices of the complete vector, i.e., of the component.
+	 */
+	public void add (long sourceId, long[] ids, String[] onts, float[] pr, int n, int numVertices) {
+		if (numVertices < n)
+			throw new IllegalArgumentException("Vector of source "+sourceId+" has "+n+" targets but only "+numVertices+" vertices.");
+		if (this.sourceIndex.containsKey(sourceId))
+			throw new IllegalArgumentException("Pagerank vector of source "+sourceId+" has already been added.");
+		int[] ont = new int[n];
+		double sum = 0;
+		for (int t=0; t<n; t++) {
+			ont[t] = getOntIndex(onts[t]);
+			sum += pr[t];
+		}
+
+		// #1: select the top targets per group
+		int numGroups = this.isPerOntology ? this.ontNames.size() : 1;
+		int[] heap = new int[Math.min(n, this.k)];
+		int[] selected = new int[n];
+		int numSelected = 0;
+		for (int group=0; group<numGroups; group++) {
+			int size = 0;
+			for (int t=0; t<n; t++) {
+				if (this.isPerOntology && ont[t] != group) continue;
+				if (size < heap.length) {
+					heap[size++] = t;
+					siftUp(heap, size-1, ids, pr);
+				} else if (heap.length > 0 && isBetter(t, heap[0], ids, pr)) {
+					heap[0] = t;
+					siftDown(heap, 0, size, ids, pr);
+				}
+			}
+			// extract the worst first, thus the group is filled from its end
+			for (int i=size-1; i>=0; i--) {
+				selected[numSelected+i] = heap[0];
+				heap[0] = heap[i];
+				siftDown(heap, 0, i, ids, pr);
+			}
+			numSelected += size;
+		}
+
+		// #2: append the selected targets
+		ensureSourceCapacity(this.numSources+1);
+		ensureTargetCapacity(this.offsets[this.numSources]+numSelected);
+		int pos = this.offsets[this.numSources];
+		for (int i=0; i<numSelected; i++, pos++) {
+			int t = selected[i];
+			this.targetIds[pos] = ids[t];
+			this.prs[pos] = pr[t];
+			this.targetOnts[pos] = ont[t];
+		}
+		this.sourceIds[this.numSources] = sourceId;
+		this.sums[this.numSources] = sum;
+		this.counts[this.numSources] = numVertices;
+		this.sourceIndex.put(sourceId, this.numSources);
+		this.numSources++;
+		this.offsets[this.numSources] = pos;
+	}
+
+
+	/**
+	 * Adds the pagerank vector of a source and keeps its top targets.
+	 * @param sourceId ID of the source.
+	 * @param vector The pagerank vector.
+	 */
+	public void add (long sourceId, List<Vertex<Long, VertexValue>> vector) {
+		add(sourceId, vector, vector.size());
+	}
+
+	/**
+	 * Adds a sparse pagerank vector of a source and keeps its top targets;
+	 * the missing vertices of the component have pagerank 0.
+	 * @param sourceId ID of the source.
+	 * @param vector The pagerank vector.
+	 * @param numVertices Number of vertices of the complete vector, i.e., of the component.
+	 */
+	public void add (long sourceId, List<Vertex<Long, VertexValue>> vector, int numVertices) {
+		int n = vector.size();
+		long[] ids = new long[n];
+		String[] onts = new String[n];
+		float[] pr = new float[n];
+		for (int t=0; t<n; t++) {
+			Vertex<Long, VertexValue> vertex = vector.get(t);
+			ids[t] = vertex.f0;
+			onts[t] = vertex.f1.ontName;
+			pr[t] = vertex.f1.pr;
+		}
+		add(sourceId, ids, onts, pr, n, numVertices);
+	}
+
+
+	/**
+	 * Returns the number of targets which are kept per source (or per source and ontology).
+	 * @return Number of targets; {@link #ALL} iff all targets are kept.
+	 */
+	public int getK () { return this.k; }
+
+	/**
+	 * Returns the number of sources.
+	 * @return Number of sources.
+	 */
+	public int getNumberOfSources () { return this.numSources; }
+
+	/**
+	 * Returns the ID of a source.
+	 * @param source Index of the source.
+	 * @return Source ID.
+	 */
+	public long getSourceId (int source) { return this.sourceIds[source]; }
+
+	/**
+	 * Returns the index of a source.
+	 * @param sourceId ID of the source.
+	 * @return Index of the source or -1 iff it has not been added.
+	 */
+	public int indexOf (long sourceId) {
+		Integer source = this.sourceIndex.get(sourceId);
+		return (source == null) ? -1 : source;
+	}
+
+	/**
+	 * Returns the position of the first target of a source;
+	 * <code>getOffset(getNumberOfSources())</code> is the number of stored targets.
+	 * @param source Index of the source.
+	 * @return Position of the first target.
+	 */
+	public int getOffset (int source) { return this.offsets[source]; }
+
+	/**
+	 * Returns the mean pagerank of the complete vector of a source, including implicit zeros.
+	 * @param source Index of the source.
+	 * @return Mean pagerank.
+	 */
+	public float getMean (int source) { return (float) (this.sums[source]/this.counts[source]); }
+
+	/**
+	 * Returns the vertex ID of a target.
+	 * @param pos Position of the target.
+	 * @return Vertex ID.
+	 */
+	public long getTargetId (int pos) { return this.targetIds[pos]; }
+
+	/**
+	 * Returns the pagerank of a target.
+	 * @param pos Position of the target.
+	 * @return Pagerank.
+	 */
+	public float getPr (int pos) { return this.prs[pos]; }
+
+	/**
+	 * Returns the ontology name of a target.
+	 * @param pos Position of the target.
+	 * @return Ontology name.
+	 */
+	public String getOntName (int pos) { return this.ontNames.get(this.targetOnts[pos]); }
+
+
+	/**
+	 * Returns the index of an ontology name; a new name is added.
+	 * @param ontName Ontology name.
+	 * @return Index of the ontology.
+	 */
+	private int getOntIndex (String ontName) {
+		Integer ont = this.ontIndex.get(ontName);
+		if (ont == null) {
+			ont = this.ontNames.size();
+			this.ontNames.add(ontName);
+			this.ontIndex.put(ontName, ont);
+		}
+		return ont;
+	}
+
+	/**
+	 * Checks whether target <code>a</code> ranks before target <code>b</code>,
+	 * i.e., it has a higher pagerank or the same pagerank and a smaller vertex ID.
+	 */
+	private static boolean isBetter (int a, int b, long[] ids, float[] pr) {
+		return pr[a] > pr[b] || (pr[a] == pr[b] && ids[a] < ids[b]);
+	}
+
+	/** Restores the heap (worst target at the root) upwards from position <code>i</code>. */
+	private static void siftUp (int[] heap, int i, long[] ids, float[] pr) {
+		while (i > 0) {
+			int parent = (i-1) >>> 1;
+			if (!isBetter(heap[parent], heap[i], ids, pr)) break;
+			int tmp = heap[parent]; heap[parent] = heap[i]; heap[i] = tmp;
+			i = parent;
+		}
+	}
+
+	/** Restores the heap (worst target at the root) downwards from position <code>i</code>. */
+	private static void siftDown (int[] heap, int i, int size, long[] ids, float[] pr) {
+		while (true) {
+			int worst = i, left = 2*i+1, right = left+1;
+			if (left < size && isBetter(heap[worst], heap[left], ids, pr)) worst = left;
+			if (right < size && isBetter(heap[worst], heap[right], ids, pr)) worst = right;
+			if (worst == i) return;
+			int tmp = heap[worst]; heap[worst] = heap[i]; heap[i] = tmp;
+			i = worst;
+		}
+	}
+
+	/** Grows the arrays of the sources. */
+	private void ensureSourceCapacity (int capacity) {
+		if (capacity < this.sourceIds.length) return;
+		int newLength = Math.max(capacity+1, 2*this.sourceIds.length);
+		this.sourceIds = Arrays.copyOf(this.sourceIds, newLength);
+		this.sums = Arrays.copyOf(this.sums, newLength);
+		this.counts = Arrays.copyOf(this.counts, newLength);
+		this.offsets = Arrays.copyOf(this.offsets, newLength+1);
+	}
+
+	/** Grows the arrays of the targets. */
+	private void ensureTargetCapacity (int capacity) {
+		if (capacity <= this.targetIds.length) return;
+		int newLength = Math.max(capacity, 2*this.targetIds.length);
+		this.targetIds = Arrays.copyOf(this.targetIds, newLength);
+		this.prs = Arrays.copyOf(this.prs, newLength);
+		this.targetOnts = Arrays.copyOf(this.targetOnts, newLength);
+	}
+
+
+}
@@ -0,0 +1,349 @@
+package tools.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Scans the lines of a memory-mapped file and splits them at a delimiter byte.
+ * Fields are exposed as offsets into the mapped buffer; numbers are parsed
+ * directly from the bytes, so only {@link #getString(int)} creates Strings.
+ * Files larger than the mapped window are mapped window by window, each starting
+ * at the beginning of a line. Offsets are valid until the next call of {@link #nextLine()}.
+ * A scanner may be restricted to the lines which start within a byte range of the file,
+ * thus several scanners can read splits of one file concurrently.
+ * Example: <code>while (scanner.nextLine()) id = scanner.getLong(0);</code>
+ * @author Max
+ *
+ */
+public class FieldScanner {
+
+	/** Default size in bytes of the mapped window. */
+	public static final int DEFAULT_WINDOW_BYTES = 1 << 26;
+	/** Powers of ten which are exactly representable as double. */
+	private static final double[] POWERS_OF_TEN = new double[23];
+	static {
+		POWERS_OF_TEN[0] = 1d;
+		for (int i=1; i<POWERS_OF_TEN.length; i++)
+			POWERS_OF_TEN[i] = 10d*POWERS_OF_TEN[i-1];
+	}
+
+	private final File file;
+	private final RandomAccessFile raf;
+	private final FileChannel channel;
+	private final long size;
+	/** Lines which start at or behind this position are not scanned. */
+	private final long rangeEnd;
+	/** Iff 'true', the first line belongs to the previous range and is skipped. */
+	private boolean isSkippingLine;
+	/** The delimiter of the fields. */
+	private final byte delimiter;
+	/** Maximal size in bytes of the mapped window. */
+	private int windowBytes;
+
+	/** The mapped window. */
+	private MappedByteBuffer buffer = null;
+	/** Position of the window within the file. */
+	private long windowStart = 0;
+	/** Position of the next line within the window. */
+	private int next = 0;
+
+	/** Start of each field of the current line, and the end of the line at position <code>numFields</code>. */
+	private int[] fieldStarts = new int[16];
+	private int numFields = 0;
+	private long lineNumber = 0;
+
+
+	/**
+	 * Constructor.
+	 * @param file The input file.
+	 * @param delimiter The delimiter of the fields, a single ASCII character.
+	 * @param windowBytes Maximal size in bytes of the mapped window.
+	 * @throws IOException The file cannot be opened.
+	 */
+	public FieldScanner (File file, char delimiter, int windowBytes) throws IOException {
+		this(file, delimiter, 0, Long.MAX_VALUE, windowBytes);
+	}
+
+	/**
+	 * Constructor for the lines which start within <code>[from, to)</code>; a line which
+	 * starts before <code>from</code> belongs to the previous range.
+	 * @param file The input file.
+	 * @param delimiter The delimiter of the fields, a single ASCII character.
+	 * @param from Position of the range within the file.
+	 * @param to Position behind the range.
+	 * @param windowBytes Maximal size in bytes of the mapped window.
+	 * @throws IOException The file cannot be opened.
+	 */
+	public FieldScanner (File file, char delimiter, long from, long to, int windowBytes) throws IOException {
+		if (delimiter > 127 || delimiter == '\n' || delimiter == '\r')
+			throw new IllegalArgumentException("No valid delimiter: '"+delimiter+"'.");
+		if (from < 0 || to < from)
+			throw new IllegalArgumentException("No valid range ["+from+", "+to+").");
+		this.file = file;
+		this.delimiter = (byte) delimiter;
+		this.windowBytes = (windowBytes > 0) ? windowBytes : DEFAULT_WINDOW_BYTES;
+		this.raf = new RandomAccessFile(file, "r");
+		this.channel = this.raf.getChannel();
+		this.size = this.channel.size();
+		this.rangeEnd = to;
+		// the line which ends at 'from-1' or behind belongs to the previous range
+		this.isSkippingLine = from > 0;
+		this.windowStart = this.isSkippingLine ? from-1 : 0;
+	}
+
+	/**
+	 * Constructor with the default window size.
+	 * @param file The input file.
+	 * @param delimiter The delimiter of the fields, a single ASCII character.
+	 * @throws IOException The file cannot be opened.
+	 */
+	public FieldScanner (File file, char delimiter) throws IOException {
+		this(file, delimiter, DEFAULT_WINDOW_BYTES);
+	}
+
+
+	/**
+	 * Advances to the next line and splits it into its fields.
+	 * A line is terminated by '\n' (an optional '\r' before is dropped) or by the end of the file.
+	 * @return 'false' iff there is no further line.
+	 * @throws IOException Mapping the file failed.
+	 */
+	public boolean nextLine () throws IOException {
+		if (this.isSkippingLine) {
+			this.isSkippingLine = false;
+			if (!scanLine()) return false;
+			this.lineNumber--;
+		}
+		return scanLine();
+	}
+
+	/** Scans the next line of the range. */
+	private boolean scanLine () throws IOException {
+		long lineStart = this.windowStart + this.next;
+		if (lineStart >= this.size || lineStart >= this.rangeEnd) return false;
+		if (this.buffer == null || this.next >= this.buffer.limit())
+			map(lineStart);
+		while (true) {
+			MappedByteBuffer buff = this.buffer;
+			int limit = buff.limit();
+			int pos = this.next;
+			int fields = 0;
+			this.fieldStarts[fields++] = pos;
+			while (pos < limit) {
+				byte b = buff.get(pos);
+				if (b == '\n') break;
+				if (b == this.delimiter) {
+					if (fields == this.fieldStarts.length)
+						this.fieldStarts = Arrays.copyOf(this.fieldStarts, 2*fields);
+					this.fieldStarts[fields++] = pos+1;
+				}
+				pos++;
+			}
+			boolean isEndOfFile = this.windowStart + limit >= this.size;
+			if (pos == limit && !isEndOfFile) {
+				// the line continues behind the window: map the window again from the start of the line
+				if (this.next == 0)
+					this.windowBytes = (int) Math.min(Integer.MAX_VALUE, 2l*this.windowBytes);
+				map(this.windowStart + this.next);
+				continue;
+			}
+			int end = pos;
+			if (end > this.next && buff.get(end-1) == '\r') end--;
+			if (fields == this.fieldStarts.length)
+				this.fieldStarts = Arrays.copyOf(this.fieldStarts, 2*fields);
+			// each field ends one byte before the start of the next one
+			this.fieldStarts[fields] = end+1;
+			this.numFields = fields;
+			this.next = pos+1;
+			this.lineNumber++;
+			return true;
+		}
+	}
+
+	/** Maps the window which starts at <code>position</code> of the file. */
+	private void map (long position) throws IOException {
+		long length = Math.min(this.windowBytes, this.size - position);
+		this.buffer = this.channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+		this.windowStart = position;
+		this.next = 0;
+	}
+
+
+	/** Returns the mapped window; the offsets of the fields refer to it. */
+	public MappedByteBuffer getBuffer () { return this.buffer; }
+
+	/** Returns the number of the current line within the range, starting at 1. */
+	public long getLineNumber () { return this.lineNumber; }
+
+	/** Returns the position of the current line within the file. */
+	public long getLinePosition () { return this.windowStart + this.fieldStarts[0]; }
+
+	/** Returns the number of fields of the current line. */
+	public int getNumberOfFields () { return this.numFields; }
+
+	/**
+	 * Returns the offset of the first byte of a field within the buffer.
+	 * @param i Index of the field.
+	 * @return The offset.
+	 */
+	public int getFieldStart (int i) {
+		checkField(i);
+		return this.fieldStarts[i];
+	}
+
+	/**
+	 * Returns the offset behind the last byte of a field within the buffer.
+	 * @param i Index of the field.
+	 * @return The offset.
+	 */
+	public int getFieldEnd (int i) {
+		checkField(i);
+		return this.fieldStarts[i+1]-1;
+	}
+
+	/**
+	 * Compares a field with the given bytes without creating a String.
+	 * @param i Index of the field.
+	 * @param bytes The bytes.
+	 * @return 'true' iff the field consists of the bytes.
+	 */
+	public boolean fieldEquals (int i, byte[] bytes) {
+		int start = getFieldStart(i), end = getFieldEnd(i);
+		if (end-start != bytes.length) return false;
+		for (int pos=start; pos<end; pos++)
+			if (this.buffer.get(pos) != bytes[pos-start]) return false;
+		return true;
+	}
+
+	/**
+	 * Returns the bytes of a field.
+	 * @param i Index of the field.
+	 * @return The bytes.
+	 */
+	public byte[] getBytes (int i) {
+		int start = getFieldStart(i), end = getFieldEnd(i);
+		byte[] bytes = new byte[end-start];
+		ByteBuffer field = this.buffer.duplicate();
+		field.position(start);
+		field.get(bytes);
+		return bytes;
+	}
+
+	/**
+	 * Parses a field as decimal long.
+	 * @param i Index of the field.
+	 * @return The value.
+	 */
+	public long getLong (int i) {
+		int pos = getFieldStart(i), end = getFieldEnd(i);
+		boolean isNegative = pos < end && this.buffer.get(pos) == '-';
+		if (isNegative || (pos < end && this.buffer.get(pos) == '+')) pos++;
+		if (pos == end) throw invalidField(i);
+		long value = 0;
+		for (; pos<end; pos++) {
+			int digit = this.buffer.get(pos) - '0';
+			if (digit < 0 || digit > 9) throw invalidField(i);
+			long shifted = 10*value - digit;
+			// accumulated negatively, thus Long.MIN_VALUE is valid
+			if (value < Long.MIN_VALUE/10 || shifted > 10*value) throw invalidField(i);
+			value = shifted;
+		}
+		if (!isNegative && value == Long.MIN_VALUE) throw invalidField(i);
+		return isNegative ? value : -value;
+	}
+
+	/**
+	 * Parses a field as decimal int.
+	 * @param i Index of the field.
+	 * @return The value.
+	 */
+	public int getInt (int i) {
+		long value = getLong(i);
+		if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) throw invalidField(i);
+		return (int) value;
+	}
+
+	/**
+	 * Parses a field as double. Plain decimal numbers of at most 15 digits with at most
+	 * 22 decimal places are parsed directly from the bytes; other notations are parsed
+	 * by {@link Double#parseDouble(String)}.
+	 * @param i Index of the field.
+	 * @return The value.
+	 */
+	public double getDouble (int i) {
+		int pos = getFieldStart(i), end = getFieldEnd(i);
+		boolean isNegative = pos < end && this.buffer.get(pos) == '-';
+		if (isNegative || (pos < end && this.buffer.get(pos) == '+')) pos++;
+		long mantissa = 0;
+		int digits = 0, decimals = -1;
+		boolean isPlain = pos < end, hasDigit = false;
+		for (; pos<end && isPlain; pos++) {
+			byte b = this.buffer.get(pos);
+			if (b == '.' && decimals < 0) {
+				decimals = 0;
+			} else if (b >= '0' && b <= '9') {
+				mantissa = 10*mantissa + (b - '0');
+				hasDigit = true;
+				if (mantissa > 0) digits++;
+				if (decimals >= 0) decimals++;
+			} else {
+				isPlain = false;
+			}
+		}
+		if (!isPlain || !hasDigit || digits > 15 || decimals >= POWERS_OF_TEN.length) {
+			try {
+				return Double.parseDouble(getString(i));
+			} catch (NumberFormatException e) {
+				throw invalidField(i);
+			}
+		}
+		// both operands are exact, thus the quotient is rounded correctly
+		double value = (decimals > 0) ? mantissa / POWERS_OF_TEN[decimals] : mantissa;
+		return isNegative ? -value : value;
+	}
+
+	/**
+	 * Parses a field as float, see {@link #getDouble(int)}.
+	 * @param i Index of the field.
+	 * @return The value.
+	 */
+	public float getFloat (int i) {
+		return (float) getDouble(i);
+	}
+
+	/**
+	 * Decodes a field by the default charset, as a <code>FileReader</code> does.
+	 * @param i Index of the field.
+	 * @return The field.
+	 */
+	public String getString (int i) {
+		return new String(getBytes(i), Charset.defaultCharset());
+	}
+
+	/** Closes the file. */
+	public void close () {
+		this.buffer = null;
+		try {
+			this.raf.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+
+	private void checkField (int i) {
+		if (i < 0 || i >= this.numFields)
+			throw new IllegalArgumentException("Line "+this.lineNumber+" of "+this.file+" has no field "+i+".");
+	}
+
+	private IllegalArgumentException invalidField (int i) {
+		return new IllegalArgumentException("Invalid number in line "+this.lineNumber+" of "+this.file+": "+getString(i));
+	}
+
+}
@@ -5,9 +5,18 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
+/**
+ * Input of a file, either buffered as lists, streamed line by line by an
+ * iterator, or scanned from the memory-mapped file by a {@link FieldScanner}.
+ * @author Max
+ *
+ */
 public class InputFromFile {
 	
 	/** The input file. */
@@ -122,6 +131,49 @@ public class InputFromFile {
 		return this.fileColumns;
 	}
 	
+	/**
+	 * Streams the content of the file line by line; lines which do not match
+	 * the regular expression are skipped. Nothing is buffered.
+	 * @return Iterator over the lines.
+	 */
+	public Iterator<String> iterateFileContent () {
+		return new LineIterator();
+	}
+	
+	/**
+	 * Streams the content of the file line by line whereby each line is split into its columns.
+	 * @return Iterator over the column separated lines.
+	 */
+	public Iterator<String[]> iterateSplitByColumn () {
+		final Pattern delimiter = Pattern.compile(COLUMN_DEL);
+		final Iterator<String> lines = new LineIterator();
+		return new Iterator<String[]>() {
+			public boolean hasNext () { return lines.hasNext(); }
+			public String[] next () {
+				String[] data = delimiter.split(lines.next());
+				checkNoCols(data.length);
+				return data;
+			}
+			public void remove () { throw new UnsupportedOperationException(); }
+		};
+	}
+	
+	/**
+	 * Scans the memory-mapped file; the fields are exposed as offsets into the mapped
+	 * buffer and numbers are parsed without Strings. The regular expression is not checked.
+	 * @return Scanner, which has to be closed.
+	 * @throws IllegalArgumentException The delimiter of the columns is not a single ASCII character.
+	 */
+	public FieldScanner scan () {
+		if (COLUMN_DEL.length() != 1)
+			throw new IllegalArgumentException("The delimiter "+COLUMN_DEL+" is not a single character.");
+		try {
+			return new FieldScanner(FILE, COLUMN_DEL.charAt(0));
+		} catch (IOException e) {
+			throw new IllegalArgumentException("Input file "+FILE+" cannot be read.", e);
+		}
+	}
+	
 	/**
 	 * Closes the input. All Lists are cleared.
 	 * @return 'true' iff the content is cleared.
@@ -226,6 +278,49 @@ public class InputFromFile {
 		}
 	}
 	
+	/** Reads the lines of the file lazily; the file is closed at its end. */
+	private class LineIterator implements Iterator<String> {
+		private BufferedReader reader;
+		private String nextLine = null;
+		
+		LineIterator () {
+			try {
+				this.reader = new BufferedReader(new FileReader (FILE));
+			} catch (IOException e) {
+				throw new IllegalArgumentException("Input file "+FILE+" cannot be read.", e);
+			}
+			advance();
+		}
+		
+		public boolean hasNext () { return this.nextLine != null; }
+		
+		public String next () {
+			if (this.nextLine == null) throw new NoSuchElementException();
+			String line = this.nextLine;
+			advance();
+			return line;
+		}
+		
+		public void remove () { throw new UnsupportedOperationException(); }
+		
+		/** Reads the next line which matches the regular expression. */
+		private void advance () {
+			try {
+				while ((this.nextLine = this.reader.readLine()) != null) {
+					if (REGULAR_EXPR == null || checkLine(this.nextLine)) return;
+					System.err.println("Line "+this.nextLine+" does not match the regular expression '"+REGULAR_EXPR+"'!");
+				}
+				this.reader.close();
+			} catch (PatternSyntaxException e) {
+				System.err.println("Invalid regular expression: "+REGULAR_EXPR);
+				System.exit(501);
+			} catch (IOException e) {
+				e.printStackTrace();
+				this.nextLine = null;
+			}
+		}
+	}
+	
 	/**
 	 * Checks the line against an regular expression.
 	 * @param line The line.
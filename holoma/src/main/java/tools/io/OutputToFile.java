@@ -1,78 +1,228 @@
 package tools.io;
 
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.util.ArrayList;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 /**
  * Ausgabe von Strings in Datei.
+ * The file is opened once and kept open until {@link #close()}; the lines are
+ * buffered either by number or by size in bytes. Optionally, full buffers are
+ * written by a background thread, thus adding lines blocks only if several
+ * buffers are waiting for the disk.
+ * The background writer is a daemon thread, thus {@link #close()} has to be called
+ * (e.g., in a <code>finally</code> block); otherwise waiting buffers are lost when the JVM exits.
+ * As an {@link Appendable}, reports are streamed into the buffer without building them as one String.
  * @author Max
  *
  */
-public class OutputToFile {
-	
+public class OutputToFile implements Appendable {
+
+	/** Line separator, as written by <code>PrintWriter.println</code>. */
+	private static final byte[] NEW_LINE = System.getProperty("line.separator").getBytes();
+	/** Number of full buffers which may wait for the background writer. */
+	private static final int MAX_PENDING_BUFFERS = 4;
+	/** Marks the end of the buffers for the background writer. */
+	private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+	/** Maximal number of lines within the buffer. */
 	private int buffSize;
+	/** Maximal number of bytes within the buffer. */
+	private int buffBytes;
 	private String pathFile;
-	private ArrayList<String> buffer;
-	
-	
+	/** Encoded lines which have not been written yet. */
+	private byte[] buffer;
+	private int buffLength = 0;
+	private int buffLines = 0;
+
+	/** Channel of the file; null iff the file is not open. */
+	private FileChannel channel = null;
+	/** Iff 'true', full buffers are written by a background thread. */
+	private final boolean isAsync;
+	/** Full buffers which wait for the background writer. */
+	private BlockingQueue<ByteBuffer> pending = null;
+	private Thread writer = null;
+	/** Exception of the background writer. */
+	private volatile IOException writeError = null;
+
+
+	/**
+	 * Constructor: the buffer is written as soon as it contains more than <code>buffSize</code> lines.
+	 * @param buffSize Number of lines.
+	 * @param pathFile Location of the file, an existing file is replaced.
+	 */
 	public OutputToFile (int buffSize, String pathFile) {
-		this.buffSize = (buffSize > 0) ? buffSize : 10;
+		this(pathFile, (buffSize > 0) ? buffSize : 10, Integer.MAX_VALUE, false);
+	}
+
+	/**
+	 * Constructor: the buffer is written as soon as it contains at least <code>buffBytes</code> bytes.
+	 * @param pathFile Location of the file, an existing file is replaced.
+	 * @param buffBytes Size of the buffer in bytes.
+	 * @param isAsync Iff 'true', full buffers are written by a background thread.
+	 */
+	public OutputToFile (String pathFile, int buffBytes, boolean isAsync) {
+		this(pathFile, Integer.MAX_VALUE, (buffBytes > 0) ? buffBytes : 8192, isAsync);
+	}
+
+	private OutputToFile (String pathFile, int buffSize, int buffBytes, boolean isAsync) {
+		this.buffSize = buffSize;
+		this.buffBytes = buffBytes;
+		this.isAsync = isAsync;
 		this.pathFile = pathFile;
 		File file = new File(pathFile);
 		if (file.exists()) file.delete();
-		buffer = new ArrayList<String>();
+		this.buffer = new byte[(buffBytes < Integer.MAX_VALUE) ? buffBytes+256 : 8192];
 	}
 
 	public String getPath () { return this.pathFile; }
-	
-	public boolean isEmpty () { return buffer.isEmpty(); }
-	
+
+	public boolean isEmpty () { return this.buffLength == 0; }
+
+	/**
+	 * Changes the location of the file; the lines which have been buffered
+	 * but not written yet are written to the new location.
+	 * @param pathFileNew New location of the file.
+	 */
 	public void changePath (String pathFileNew) {
+		closeChannel();
 		this.pathFile = pathFileNew;
 	}
-	
+
+	/** Writes the buffer and closes the file; further lines are appended to the file again. */
 	public void close () {
 		clearBuff();
+		closeChannel();
 	}
-	
+
 	public void addToBuff (String datum) {
-		buffer.add(datum);
-		if (buffer.size() > buffSize) {
-			clearBuff();
-		}
+		put(datum.getBytes());
+		put(NEW_LINE);
 	}
 	
 	public void addToBuff(List<String> data) {
-		if (data.size()<=buffSize-buffer.size()) {
-			buffer.addAll(data);
+		for(String datum: data) {
+			addToBuff(datum);
 		}
-		else {
-			for(String datum: data) {
-				addToBuff(datum);
-			}
+	}
+
+	/**
+	 * Appends text; unlike {@link #addToBuff(String)} no line separator is added.
+	 * @param csq The text.
+	 * @return This output.
+	 */
+	public OutputToFile append (CharSequence csq) {
+		put(String.valueOf(csq).getBytes());
+		return this;
+	}
+	
+	public OutputToFile append (CharSequence csq, int start, int end) {
+		return append(String.valueOf(csq).subSequence(start, end));
+	}
+	
+	public OutputToFile append (char c) {
+		return append(String.valueOf(c));
+	}
+	
+	/** Adds bytes to the buffer; each line feed counts as a line. */
+	private void put (byte[] bytes) {
+		int length = this.buffLength+bytes.length;
+		if (length > this.buffer.length)
+			this.buffer = Arrays.copyOf(this.buffer, Math.max(length, 2*this.buffer.length));
+		System.arraycopy(bytes, 0, this.buffer, this.buffLength, bytes.length);
+		this.buffLength = length;
+		for (byte b : bytes)
+			if (b == '\n') this.buffLines++;
+		if (this.buffLines > this.buffSize || this.buffLength >= this.buffBytes) {
+			clearBuff();
 		}
 	}
 	
+	/** Writes the buffer to the file, or hands it to the background writer. */
 	private void clearBuff() {
-		PrintWriter writer = null;
 		try {
-			writer = new PrintWriter (new BufferedWriter (new FileWriter(pathFile, true)));
-			for (String datum: buffer)
-				writer.println(datum);
-			writer.close();
-			
-			buffer.clear();
+			openChannel();
+			ByteBuffer data = ByteBuffer.wrap(this.buffer, 0, this.buffLength);
+			if (this.isAsync) {
+				this.pending.put(data);
+				this.buffer = new byte[this.buffer.length];
+			} else {
+				while (data.hasRemaining())
+					this.channel.write(data);
+			}
+			this.buffLength = 0;
+			this.buffLines = 0;
 		} catch (IOException e) {
 			System.err.println("Wrong path '"+pathFile+"'.");
 			System.exit(1);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Writing to '"+pathFile+"' has been interrupted.", e);
 		}
 	}
 
-}
+	/**
+	 * Opens the file (to append) and starts the background writer, if not done yet.
+	 * @throws IOException The file cannot be opened or the background writer failed.
+	 */
+	private void openChannel () throws IOException {
+		if (this.writeError != null) throw this.writeError;
+		if (this.channel != null) return;
+		this.channel = new FileOutputStream(this.pathFile, true).getChannel();
+		if (!this.isAsync) return;
+		final FileChannel out = this.channel;
+		final BlockingQueue<ByteBuffer> in = new ArrayBlockingQueue<ByteBuffer>(MAX_PENDING_BUFFERS);
+		this.pending = in;
+		this.writer = new Thread(new Runnable() {
+			public void run() {
+				try {
+					ByteBuffer data;
+					while ((data = in.take()) != END) {
+						// after an exception the buffers are dropped until the end
+						if (writeError != null) continue;
+						try {
+							while (data.hasRemaining())
+								out.write(data);
+						} catch (IOException e) {
+							writeError = e;
+						}
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}, "OutputToFile "+this.pathFile);
+		this.writer.setDaemon(true);
+		this.writer.start();
+	}
 
+	/** Waits for the background writer and closes the file. */
+	private void closeChannel () {
+		if (this.channel == null) return;
+		try {
+			if (this.isAsync) {
+				this.pending.put(END);
+				this.writer.join();
+				this.writer = null;
+				this.pending = null;
+			}
+			this.channel.close();
+			this.channel = null;
+			if (this.writeError != null) throw this.writeError;
+		} catch (IOException e) {
+			System.err.println("Wrong path '"+pathFile+"'.");
+			System.exit(1);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Writing to '"+pathFile+"' has been interrupted.", e);
+		}
+	}
+
+}
@@ -0,0 +1,174 @@
+package tools.io;
+
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streaming output of results in one of three formats: plain text lines,
+ * gzip-compressed text lines, or compact binary records (big endian,
+ * strings and arrays are prefixed by their length).
+ * Nothing is kept in memory apart from the buffer; the layout of the
+ * binary records is defined by the caller. In the text formats, reports can be
+ * streamed as an {@link Appendable}.
+ * @author Max
+ *
+ */
+public class StreamingWriter implements Appendable {
+
+	/** Plain text lines. */
+	public static final int PLAIN = 0;
+	/** Gzip-compressed text lines; the suffix ".gz" is added to the location. */
+	public static final int GZIP = 1;
+	/** Binary records; the suffix ".bin" is added to the location. */
+	public static final int BINARY = 2;
+
+	/** Line separator, as written by <code>PrintWriter.println</code>. */
+	private static final byte[] NEW_LINE = System.getProperty("line.separator").getBytes();
+
+	private final String pathFile;
+	private final int format;
+	private final DataOutputStream out;
+
+
+	/**
+	 * Constructor; an existing file is replaced.
+	 * @param pathFile Location of the file (without the suffix of the format).
+	 * @param format Format: PLAIN, GZIP or BINARY.
+	 * @param buffBytes Size of the buffer in bytes.
+	 * @throws IOException The file cannot be opened.
+	 */
+	public StreamingWriter (String pathFile, int format, int buffBytes) throws IOException {
+		if (format != PLAIN && format != GZIP && format != BINARY)
+			throw new IllegalArgumentException("Unknown output format: "+format);
+		this.format = format;
+		this.pathFile = getPath(pathFile, format);
+		int size = (buffBytes > 0) ? buffBytes : 8192;
+		OutputStream file = new FileOutputStream(this.pathFile);
+		if (format == GZIP) {
+			try {
+				file = new GZIPOutputStream(file, size);
+			} catch (IOException e) {
+				// writing the gzip header failed
+				file.close();
+				throw e;
+			}
+		}
+		this.out = new DataOutputStream(new BufferedOutputStream(file, size));
+	}
+
+
+	/**
+	 * Returns the location of the file of a format.
+	 * @param pathFile Location of the file (without the suffix of the format).
+	 * @param format Format: PLAIN, GZIP or BINARY.
+	 * @return Location of the file.
+	 */
+	public static String getPath (String pathFile, int format) {
+		if (format == GZIP) return pathFile+".gz";
+		if (format == BINARY) return pathFile+".bin";
+		return pathFile;
+	}
+
+	public String getPath () { return this.pathFile; }
+
+	public int getFormat () { return this.format; }
+
+	public boolean isBinary () { return this.format == BINARY; }
+
+
+	/**
+	 * Writes a text line.
+	 * @param line The line.
+	 * @throws IOException Writing failed.
+	 */
+	public void writeLine (String line) throws IOException {
+		if (isBinary())
+			throw new IllegalStateException("No text lines within binary file '"+this.pathFile+"'.");
+		this.out.write(line.getBytes());
+		this.out.write(NEW_LINE);
+	}
+
+	/**
+	 * Writes text (text formats only); unlike {@link #writeLine(String)} no line separator is added.
+	 * @param csq The text.
+	 * @return This writer.
+	 * @throws IOException Writing failed.
+	 */
+	public StreamingWriter append (CharSequence csq) throws IOException {
+		if (isBinary())
+			throw new IllegalStateException("No text within binary file '"+this.pathFile+"'.");
+		this.out.write(String.valueOf(csq).getBytes());
+		return this;
+	}
+
+	public StreamingWriter append (CharSequence csq, int start, int end) throws IOException {
+		return append(String.valueOf(csq).subSequence(start, end));
+	}
+
+	public StreamingWriter append (char c) throws IOException {
+		return append(String.valueOf(c));
+	}
+
+	/**
+	 * Writes an int (binary records only).
+	 * @param value The value.
+	 * @throws IOException Writing failed.
+	 */
+	public void writeInt (int value) throws IOException {
+		checkBinary();
+		this.out.writeInt(value);
+	}
+
+	/**
+	 * Writes a long (binary records only).
+	 * @param value The value.
+	 * @throws IOException Writing failed.
+	 */
+	public void writeLong (long value) throws IOException {
+		checkBinary();
+		this.out.writeLong(value);
+	}
+
+	/**
+	 * Writes a float (binary records only).
+	 * @param value The value.
+	 * @throws IOException Writing failed.
+	 */
+	public void writeFloat (float value) throws IOException {
+		checkBinary();
+		this.out.writeFloat(value);
+	}
+
+	/**
+	 * Writes a string as length-prefixed UTF-8 (binary records only).
+	 * @param value The string.
+	 * @throws IOException Writing failed.
+	 */
+	public void writeString (String value) throws IOException {
+		checkBinary();
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		this.out.writeInt(bytes.length);
+		this.out.write(bytes);
+	}
+
+	/**
+	 * Writes the remaining buffer and closes the file.
+	 * @throws IOException Writing failed.
+	 */
+	public void close () throws IOException {
+		this.out.close();
+	}
+
+
+	private void checkBinary () {
+		if (!isBinary())
+			throw new IllegalStateException("No binary records within text file '"+this.pathFile+"'.");
+	}
+
+}
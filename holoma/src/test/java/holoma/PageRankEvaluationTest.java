@@ -29,63 +29,63 @@ public class PageRankEvaluationTest {
 	public void setUp() {		
 		ExecutionEnvironment env = ExecutionEnvironment.getExecutionEnvironment();		
 		
-		List<Vertex<String, VertexValue>> vertexList = new ArrayList<Vertex<String, VertexValue>>();
-		vertexList.add(new Vertex<String, VertexValue>("1", new VertexValue("blue", 0f)));
-		vertexList.add(new Vertex<String, VertexValue>("3", new VertexValue("blue", 0f)));
-		vertexList.add(new Vertex<String, VertexValue>("8", new VertexValue("green", 0f)));
-		vertexList.add(new Vertex<String, VertexValue>("9", new VertexValue("green", 0f)));
-		vertexList.add(new Vertex<String, VertexValue>("10", new VertexValue("orange", 0f)));
-		vertexList.add(new Vertex<String, VertexValue>("11", new VertexValue("orange", 0f)));
-		vertexList.add(new Vertex<String, VertexValue>("12", new VertexValue("orange", 0f)));
-		vertexList.add(new Vertex<String, VertexValue>("13", new VertexValue("orange", 0f)));
-		
-		List<Edge<String, EdgeValue>> edgeList = new ArrayList<Edge<String, EdgeValue>>();
-		edgeList.add(new Edge<String, EdgeValue>("1","10", new EdgeValue(-1,0.5f)));
-		edgeList.add(new Edge<String, EdgeValue>("3","1",new EdgeValue(-1,0.5f)));
-		edgeList.add(new Edge<String, EdgeValue>("3","9",new EdgeValue(-1,1f)));
-		edgeList.add(new Edge<String, EdgeValue>("9","3",new EdgeValue(-1,1f)));
-		edgeList.add(new Edge<String, EdgeValue>("9","8",new EdgeValue(-1,0.5f)));
-		edgeList.add(new Edge<String, EdgeValue>("9","11",new EdgeValue(-1,1f)));
-		edgeList.add(new Edge<String, EdgeValue>("9","12",new EdgeValue(-1,1f)));
-		edgeList.add(new Edge<String, EdgeValue>("11","9",new EdgeValue(-1,1f)));
-		edgeList.add(new Edge<String, EdgeValue>("11","10",new EdgeValue(-1,0.5f)));
-		edgeList.add(new Edge<String, EdgeValue>("12","9",new EdgeValue(-1,1f)));
-		edgeList.add(new Edge<String, EdgeValue>("12","10",new EdgeValue(-1,0.5f)));
-		edgeList.add(new Edge<String, EdgeValue>("13","12",new EdgeValue(-1,0.5f)));
-		
-		Graph<String, VertexValue, EdgeValue> component = Graph.fromCollection(vertexList, edgeList, env);
-		
-		Map<String, List<Vertex<String, VertexValue>>> prVectors = new HashMap<String, List<Vertex<String, VertexValue>>>();
-		List<Vertex<String, VertexValue>> innerVector = new ArrayList<Vertex<String, VertexValue>>();
-		innerVector.add(new Vertex<String, VertexValue>("1", new VertexValue("blue",1f)));
-		innerVector.add(new Vertex<String, VertexValue>("3", new VertexValue("blue",0.6f)));
-		innerVector.add(new Vertex<String, VertexValue>("8", new VertexValue("green",0.6f)));
-		innerVector.add(new Vertex<String, VertexValue>("9", new VertexValue("green",0.7f)));
-		innerVector.add(new Vertex<String, VertexValue>("10", new VertexValue("orange",0.65f)));
-		innerVector.add(new Vertex<String, VertexValue>("11", new VertexValue("orange",0.8f)));
-		innerVector.add(new Vertex<String, VertexValue>("12", new VertexValue("orange",0.2f)));
-		innerVector.add(new Vertex<String, VertexValue>("13", new VertexValue("orange",0.4f)));
-		prVectors.put("1", innerVector);
-		innerVector = new ArrayList<Vertex<String, VertexValue>>();
-		innerVector.add(new Vertex<String, VertexValue>("1",  new VertexValue("blue",0f)));
-		innerVector.add(new Vertex<String, VertexValue>("3", new VertexValue("blue",0.6f)));
-		innerVector.add(new Vertex<String, VertexValue>("8", new VertexValue("green",0.6f)));
-		innerVector.add(new Vertex<String, VertexValue>("9", new VertexValue("green",0.7f)));
-		innerVector.add(new Vertex<String, VertexValue>("10", new VertexValue("orange",0.65f)));
-		innerVector.add(new Vertex<String, VertexValue>("11", new VertexValue("orange",0.8f)));
-		innerVector.add(new Vertex<String, VertexValue>("12", new VertexValue("orange",0.2f)));
-		innerVector.add(new Vertex<String, VertexValue>("13", new VertexValue("orange",0.4f)));
-		prVectors.put("3", innerVector);
-		innerVector = new ArrayList<Vertex<String, VertexValue>>();
-		innerVector.add(new Vertex<String, VertexValue>("1",  new VertexValue("blue",0f)));
-		innerVector.add(new Vertex<String, VertexValue>("3", new VertexValue("blue",0.6f)));
-		innerVector.add(new Vertex<String, VertexValue>("8", new VertexValue("green",0.6f)));
-		innerVector.add(new Vertex<String, VertexValue>("9", new VertexValue("green",0.7f)));
-		innerVector.add(new Vertex<String, VertexValue>("10", new VertexValue("orange",0.65f)));
-		innerVector.add(new Vertex<String, VertexValue>("11", new VertexValue("orange",0.8f)));
-		innerVector.add(new Vertex<String, VertexValue>("12", new VertexValue("orange",0f)));
-		innerVector.add(new Vertex<String, VertexValue>("13", new VertexValue("orange",0.8f)));
-		prVectors.put("8", innerVector);
+		List<Vertex<Long, VertexValue>> vertexList = new ArrayList<Vertex<Long, VertexValue>>();
+		vertexList.add(new Vertex<Long, VertexValue>(1l, new VertexValue("blue", 0f)));
+		vertexList.add(new Vertex<Long, VertexValue>(3l, new VertexValue("blue", 0f)));
+		vertexList.add(new Vertex<Long, VertexValue>(8l, new VertexValue("green", 0f)));
+		vertexList.add(new Vertex<Long, VertexValue>(9l, new VertexValue("green", 0f)));
+		vertexList.add(new Vertex<Long, VertexValue>(10l, new VertexValue("orange", 0f)));
+		vertexList.add(new Vertex<Long, VertexValue>(11l, new VertexValue("orange", 0f)));
+		vertexList.add(new Vertex<Long, VertexValue>(12l, new VertexValue("orange", 0f)));
+		vertexList.add(new Vertex<Long, VertexValue>(13l, new VertexValue("orange", 0f)));
+		
+		List<Edge<Long, EdgeValue>> edgeList = new ArrayList<Edge<Long, EdgeValue>>();
+		edgeList.add(new Edge<Long, EdgeValue>(1l,10l, new EdgeValue(-1,0.5f)));
+		edgeList.add(new Edge<Long, EdgeValue>(3l,1l,new EdgeValue(-1,0.5f)));
+		edgeList.add(new Edge<Long, EdgeValue>(3l,9l,new EdgeValue(-1,1f)));
+		edgeList.add(new Edge<Long, EdgeValue>(9l,3l,new EdgeValue(-1,1f)));
+		edgeList.add(new Edge<Long, EdgeValue>(9l,8l,new EdgeValue(-1,0.5f)));
+		edgeList.add(new Edge<Long, EdgeValue>(9l,11l,new EdgeValue(-1,1f)));
+		edgeList.add(new Edge<Long, EdgeValue>(9l,12l,new EdgeValue(-1,1f)));
+		edgeList.add(new Edge<Long, EdgeValue>(11l,9l,new EdgeValue(-1,1f)));
+		edgeList.add(new Edge<Long, EdgeValue>(11l,10l,new EdgeValue(-1,0.5f)));
+		edgeList.add(new Edge<Long, EdgeValue>(12l,9l,new EdgeValue(-1,1f)));
+		edgeList.add(new Edge<Long, EdgeValue>(12l,10l,new EdgeValue(-1,0.5f)));
+		edgeList.add(new Edge<Long, EdgeValue>(13l,12l,new EdgeValue(-1,0.5f)));
+		
+		Graph<Long, VertexValue, EdgeValue> component = Graph.fromCollection(vertexList, edgeList, env);
+		
+		Map<Long, List<Vertex<Long, VertexValue>>> prVectors = new HashMap<Long, List<Vertex<Long, VertexValue>>>();
+		List<Vertex<Long, VertexValue>> innerVector = new ArrayList<Vertex<Long, VertexValue>>();
+		innerVector.add(new Vertex<Long, VertexValue>(1l, new VertexValue("blue",1f)));
+		innerVector.add(new Vertex<Long, VertexValue>(3l, new VertexValue("blue",0.6f)));
+		innerVector.add(new Vertex<Long, VertexValue>(8l, new VertexValue("green",0.6f)));
+		innerVector.add(new Vertex<Long, VertexValue>(9l, new VertexValue("green",0.7f)));
+		innerVector.add(new Vertex<Long, VertexValue>(10l, new VertexValue("orange",0.65f)));
+		innerVector.add(new Vertex<Long, VertexValue>(11l, new VertexValue("orange",0.8f)));
+		innerVector.add(new Vertex<Long, VertexValue>(12l, new VertexValue("orange",0.2f)));
+		innerVector.add(new Vertex<Long, VertexValue>(13l, new VertexValue("orange",0.4f)));
+		prVectors.put(1l, innerVector);
+		innerVector = new ArrayList<Vertex<Long, VertexValue>>();
+		innerVector.add(new Vertex<Long, VertexValue>(1l,  new VertexValue("blue",0f)));
+		innerVector.add(new Vertex<Long, VertexValue>(3l, new VertexValue("blue",0.6f)));
+		innerVector.add(new Vertex<Long, VertexValue>(8l, new VertexValue("green",0.6f)));
+		innerVector.add(new Vertex<Long, VertexValue>(9l, new VertexValue("green",0.7f)));
+		innerVector.add(new Vertex<Long, VertexValue>(10l, new VertexValue("orange",0.65f)));
+		innerVector.add(new Vertex<Long, VertexValue>(11l, new VertexValue("orange",0.8f)));
+		innerVector.add(new Vertex<Long, VertexValue>(12l, new VertexValue("orange",0.2f)));
+		innerVector.add(new Vertex<Long, VertexValue>(13l, new VertexValue("orange",0.4f)));
+		prVectors.put(3l, innerVector);
+		innerVector = new ArrayList<Vertex<Long, VertexValue>>();
+		innerVector.add(new Vertex<Long, VertexValue>(1l,  new VertexValue("blue",0f)));
+		innerVector.add(new Vertex<Long, VertexValue>(3l, new VertexValue("blue",0.6f)));
+		innerVector.add(new Vertex<Long, VertexValue>(8l, new VertexValue("green",0.6f)));
+		innerVector.add(new Vertex<Long, VertexValue>(9l, new VertexValue("green",0.7f)));
+		innerVector.add(new Vertex<Long, VertexValue>(10l, new VertexValue("orange",0.65f)));
+		innerVector.add(new Vertex<Long, VertexValue>(11l, new VertexValue("orange",0.8f)));
+		innerVector.add(new Vertex<Long, VertexValue>(12l, new VertexValue("orange",0f)));
+		innerVector.add(new Vertex<Long, VertexValue>(13l, new VertexValue("orange",0.8f)));
+		prVectors.put(8l, innerVector);
 		
 		prEval = new PPREvaluation(component, prVectors);
 		
@@ -93,73 +93,73 @@ public class PageRankEvaluationTest {
 
 	@Test
 	public void testGetBestFriends() {
-		Map<String, Set<Tuple2<String,VertexValue>>> expectedResult = new HashMap<String, Set<Tuple2<String,VertexValue>>>();
-		Set<Tuple2<String,VertexValue>> bestsOfX = new HashSet<Tuple2<String,VertexValue>>();
+		Map<Long, Set<Tuple2<Long,VertexValue>>> expectedResult = new HashMap<Long, Set<Tuple2<Long,VertexValue>>>();
+		Set<Tuple2<Long,VertexValue>> bestsOfX = new HashSet<Tuple2<Long,VertexValue>>();
 		
-		Tuple2<String,VertexValue> bestFriend = new Tuple2<String,VertexValue>("1",new VertexValue("blue",1f));
+		Tuple2<Long,VertexValue> bestFriend = new Tuple2<Long,VertexValue>(1l,new VertexValue("blue",1f));
 		bestsOfX.add(bestFriend);
-		expectedResult.put("1", bestsOfX);
+		expectedResult.put(1l, bestsOfX);
 		
-		bestsOfX = new HashSet<Tuple2<String,VertexValue>>();
-		bestFriend = new Tuple2<String, VertexValue>("11",new VertexValue("orange",0.8f));
+		bestsOfX = new HashSet<Tuple2<Long,VertexValue>>();
+		bestFriend = new Tuple2<Long, VertexValue>(11l,new VertexValue("orange",0.8f));
 		bestsOfX.add(bestFriend);
-		expectedResult.put("3", bestsOfX);
+		expectedResult.put(3l, bestsOfX);
 		
-		bestsOfX = new HashSet<Tuple2<String,VertexValue>>();
-		bestFriend = new Tuple2<String, VertexValue>("11",new VertexValue("orange",0.8f));
+		bestsOfX = new HashSet<Tuple2<Long,VertexValue>>();
+		bestFriend = new Tuple2<Long, VertexValue>(11l,new VertexValue("orange",0.8f));
 		bestsOfX.add(bestFriend);
-		bestFriend = new Tuple2<String, VertexValue>("13",new VertexValue("orange",0.8f));
+		bestFriend = new Tuple2<Long, VertexValue>(13l,new VertexValue("orange",0.8f));
 		bestsOfX.add(bestFriend);
-		expectedResult.put("8", bestsOfX);		
+		expectedResult.put(8l, bestsOfX);		
 		
 		assertEquals(expectedResult, prEval.getBestFriends());
 	}
 	
 	@Test
 	public void testGetBestFriendsWithParm() {
-		Map<String, Set<Tuple2<String,Float>>> expectedResult = new HashMap<String, Set<Tuple2<String,Float>>>();
-		Set<Tuple2<String,Float>> bestsOfX = new HashSet<Tuple2<String,Float>>();
+		Map<Long, Set<Tuple2<Long,Float>>> expectedResult = new HashMap<Long, Set<Tuple2<Long,Float>>>();
+		Set<Tuple2<Long,Float>> bestsOfX = new HashSet<Tuple2<Long,Float>>();
 		
-		Tuple2<String,Float> bestFriend = new Tuple2<String, Float>("1",1f);
+		Tuple2<Long,Float> bestFriend = new Tuple2<Long, Float>(1l,1f);
 		bestsOfX.add(bestFriend);
-		expectedResult.put("1", bestsOfX);
+		expectedResult.put(1l, bestsOfX);
 		
-		bestsOfX = new HashSet<Tuple2<String,Float>>();
-		bestFriend = new Tuple2<String, Float>("9",0.7f);
+		bestsOfX = new HashSet<Tuple2<Long,Float>>();
+		bestFriend = new Tuple2<Long, Float>(9l,0.7f);
 		bestsOfX.add(bestFriend);
-		expectedResult.put("3", bestsOfX);
+		expectedResult.put(3l, bestsOfX);
 		
-		bestsOfX = new HashSet<Tuple2<String,Float>>();
-		bestFriend = new Tuple2<String, Float>("13",0.8f);
+		bestsOfX = new HashSet<Tuple2<Long,Float>>();
+		bestFriend = new Tuple2<Long, Float>(13l,0.8f);
 		bestsOfX.add(bestFriend);
-		expectedResult.put("8", bestsOfX);		
+		expectedResult.put(8l, bestsOfX);		
 		
-		Set<String> noFriends = new HashSet<String>();
-		noFriends.add("11");
+		Set<Long> noFriends = new HashSet<Long>();
+		noFriends.add(11l);
 		assertEquals(expectedResult, prEval.getBestFriends(noFriends));
 	}
 	
 	
 	@Test
 	public void testGetWorstFriends() {
-		Map<String, Set<Tuple2<String,Float>>> expectedResult = new HashMap<String, Set<Tuple2<String,Float>>>();
-		Set<Tuple2<String,Float>> worstsOfX = new HashSet<Tuple2<String,Float>>();
+		Map<Long, Set<Tuple2<Long,Float>>> expectedResult = new HashMap<Long, Set<Tuple2<Long,Float>>>();
+		Set<Tuple2<Long,Float>> worstsOfX = new HashSet<Tuple2<Long,Float>>();
 		
-		Tuple2<String,Float> worstFriend = new Tuple2<String, Float>("12",0.2f);
+		Tuple2<Long,Float> worstFriend = new Tuple2<Long, Float>(12l,0.2f);
 		worstsOfX.add(worstFriend);
-		expectedResult.put("1", worstsOfX);
+		expectedResult.put(1l, worstsOfX);
 		
-		worstsOfX = new HashSet<Tuple2<String,Float>>();
-		worstFriend = new Tuple2<String, Float>("1",0f);
+		worstsOfX = new HashSet<Tuple2<Long,Float>>();
+		worstFriend = new Tuple2<Long, Float>(1l,0f);
 		worstsOfX.add(worstFriend);
-		expectedResult.put("3", worstsOfX);
+		expectedResult.put(3l, worstsOfX);
 		
-		worstsOfX = new HashSet<Tuple2<String,Float>>();
-		worstFriend = new Tuple2<String, Float>("1",0f);
+		worstsOfX = new HashSet<Tuple2<Long,Float>>();
+		worstFriend = new Tuple2<Long, Float>(1l,0f);
 		worstsOfX.add(worstFriend);
-		worstFriend = new Tuple2<String, Float>("12",0f);
+		worstFriend = new Tuple2<Long, Float>(12l,0f);
 		worstsOfX.add(worstFriend);
-		expectedResult.put("8", worstsOfX);		
+		expectedResult.put(8l, worstsOfX);		
 		
 		assertEquals(expectedResult, prEval.getWorstFriends());
 	}
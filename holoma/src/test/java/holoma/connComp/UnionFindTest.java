@@ -0,0 +1,32 @@
+package holoma.connComp;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class UnionFindTest {
+
+	// components {0,2,5,7}, {1}, {3,4}, {6}
+	int[] sources = {7, 2, 3, 5, 0};
+	int[] targets = {5, 0, 4, 2, 2};
+
+	@Test
+	public void testComponents() {
+		int[] roots = UnionFind.components(8, this.sources, this.targets);
+		assertEquals(roots[0], roots[2]);
+		assertEquals(roots[0], roots[5]);
+		assertEquals(roots[0], roots[7]);
+		assertEquals(roots[3], roots[4]);
+		assertEquals(1, roots[1]);
+		assertEquals(6, roots[6]);
+	}
+
+	@Test
+	public void testConcurrentComponents() throws InterruptedException {
+		// the root of each component is its smallest vertex
+		int[] roots = ConcurrentUnionFind.components(8, this.sources, this.targets, 3);
+		assertArrayEquals(new int[]{0, 1, 0, 3, 3, 0, 6, 0}, roots);
+	}
+
+}
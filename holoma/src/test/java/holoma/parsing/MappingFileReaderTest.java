@@ -0,0 +1,99 @@
+package holoma.parsing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class MappingFileReaderTest {
+
+	@Test
+	public void testEncode() throws IOException {
+		File file = write("http://a,http://b,FMA,NCI,0.9,=\nhttp://b,http://c,NCI,fma,0.8,=\n");
+		MappingFileReader reader = new MappingFileReader(file.getPath(), 2);
+		assertEquals(2, reader.getNumberOfCorrespondences());
+
+		final UriDictionary dictionary = new UriDictionary();
+		final List<long[]> ids = new ArrayList<long[]>();
+		final List<String> ontNames = new ArrayList<String>();
+		reader.encode(dictionary, new MappingFileReader.CorrespondenceHandler() {
+			public void add (long src, long trg, String srcOnt, String trgOnt) {
+				ids.add(new long[] {src, trg});
+				ontNames.add(srcOnt);
+				ontNames.add(trgOnt);
+			}
+		});
+		// IDs in the order of the file
+		assertEquals(0l, ids.get(0)[0]);
+		assertEquals(1l, ids.get(0)[1]);
+		assertEquals(1l, ids.get(1)[0]);
+		assertEquals(2l, ids.get(1)[1]);
+		assertEquals("http://c", dictionary.decode(2l));
+		// lowercased names are shared
+		assertEquals("fma", ontNames.get(0));
+		assertEquals("nci", ontNames.get(1));
+		assertSame(ontNames.get(1), ontNames.get(2));
+		assertSame(ontNames.get(0), ontNames.get(3));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testWrongColumns() throws IOException {
+		new MappingFileReader(write("http://a,http://b,FMA\n").getPath(), 1);
+	}
+
+	@Test
+	public void testSplits() throws IOException {
+		// the splits end within lines, thus each line has to be read by exactly one split
+		StringBuilder content = new StringBuilder();
+		for (int i=0; i<100; i++)
+			content.append("http://v").append(i).append(",http://w").append(i).append(",FMA,NCI,0.").append(i).append(",=\n");
+		File file = write(content.toString());
+		for (int parallelism=1; parallelism<=8; parallelism++) {
+			MappingFileReader reader = new MappingFileReader(file.getPath(), parallelism, 16);
+			assertEquals(100, reader.getNumberOfCorrespondences());
+			final UriDictionary dictionary = new UriDictionary();
+			final List<long[]> ids = new ArrayList<long[]>();
+			reader.encode(dictionary, new MappingFileReader.CorrespondenceHandler() {
+				public void add (long src, long trg, String srcOnt, String trgOnt) {
+					ids.add(new long[] {src, trg});
+				}
+			});
+			assertEquals(100, ids.size());
+			for (int i=0; i<100; i++) {
+				assertEquals("http://v"+i, dictionary.decode(ids.get(i)[0]));
+				assertEquals("http://w"+i, dictionary.decode(ids.get(i)[1]));
+			}
+		}
+	}
+
+	@Test
+	public void testWrongColumnsPosition() throws IOException {
+		String line = "http://a,http://b,FMA,NCI,0.9,=\n";
+		File file = write(line+line+line+"http://c\n"+line);
+		try {
+			new MappingFileReader(file.getPath(), 4, 16);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// the position within the file, not within the split
+			assertTrue(e.getMessage().contains("byte "+3*line.length()+" "));
+		}
+	}
+
+	private static File write (String content) throws IOException {
+		File file = File.createTempFile("mapping", ".csv");
+		file.deleteOnExit();
+		FileOutputStream out = new FileOutputStream(file);
+		out.write(content.getBytes());
+		out.close();
+		return file;
+	}
+
+}
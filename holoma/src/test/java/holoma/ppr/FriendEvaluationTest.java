@@ -0,0 +1,81 @@
+package holoma.ppr;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.flink.api.java.tuple.Tuple2;
+import org.junit.Before;
+import org.junit.Test;
+
+import holoma.complexDatatypes.VertexValue;
+
+public class FriendEvaluationTest {
+
+	TopKPageRanks prVectors = new TopKPageRanks(TopKPageRanks.ALL, false);
+
+	@Before
+	public void setUp() {
+		long[] ids = {1l, 3l, 8l, 9l, 10l};
+		String[] onts = {"blue", "blue", "green", "green", "orange"};
+		this.prVectors.add(1l, ids, onts, new float[] {0.9f, 0.4f, 0f, 0.4f, 0.3f}, 5);
+		this.prVectors.add(3l, ids, onts, new float[] {0.2f, 0.5f, 0.1f, 0.1f, 0.2f}, 5);
+	}
+
+	@Test
+	public void testSinglePass() {
+		Set<Long> noFriends = new HashSet<Long>();
+		noFriends.add(1l);
+		FriendEvaluation eval = new FriendEvaluation(this.prVectors, noFriends, 2, 1);
+		assertEquals(ids(1l), ids(eval.getBestFriends().get(1l)));
+		assertEquals(ids(3l, 9l), ids(eval.getTrueBestFriends().get(1l)));
+		assertEquals(ids(3l, 9l), ids(eval.getExcludedBestFriends().get(1l)));
+		assertEquals(ids(8l), ids(eval.getWorstFriends().get(1l)));
+		assertEquals(ids(1l, 10l), ids(eval.getTrueBestFriends().get(3l)));
+		assertEquals(ids(8l, 9l), ids(eval.getWorstFriends().get(3l)));
+		assertEquals(0.4f, eval.getStatistMeans().get(1l), 0.000001f);
+
+		// top friends in descending order, ties by ascending ID
+		List<Tuple2<Long, VertexValue>> topFriends = eval.getTopFriends().get(3l);
+		assertEquals(2, topFriends.size());
+		assertEquals(Long.valueOf(1l), topFriends.get(0).f0);
+		assertEquals(Long.valueOf(10l), topFriends.get(1).f0);
+	}
+
+	@Test
+	public void testParallel() {
+		// enough sources for several tasks
+		TopKPageRanks manyVectors = new TopKPageRanks(TopKPageRanks.ALL, false);
+		long[] ids = {1l, 3l, 8l, 9l, 10l};
+		String[] onts = {"blue", "blue", "green", "green", "orange"};
+		for (long src=0; src<300; src++)
+			manyVectors.add(src, ids, onts, new float[] {(src%7)/10f, (src%5)/10f, 0.2f, (src%3)/10f, 0.1f}, 5);
+		FriendEvaluation seq = new FriendEvaluation(manyVectors, null, 3, 1);
+		FriendEvaluation par = new FriendEvaluation(manyVectors, null, 3, 4);
+		for (long src=0; src<300; src++) {
+			assertEquals(ids(seq.getBestFriends().get(src)), ids(par.getBestFriends().get(src)));
+			assertEquals(ids(seq.getTrueBestFriends().get(src)), ids(par.getTrueBestFriends().get(src)));
+			assertEquals(ids(seq.getWorstFriends().get(src)), ids(par.getWorstFriends().get(src)));
+			List<Tuple2<Long, VertexValue>> seqTop = seq.getTopFriends().get(src);
+			List<Tuple2<Long, VertexValue>> parTop = par.getTopFriends().get(src);
+			assertEquals(seqTop.size(), parTop.size());
+			for (int i=0; i<seqTop.size(); i++)
+				assertEquals(seqTop.get(i).f0, parTop.get(i).f0);
+		}
+	}
+
+	private static Set<Long> ids (long... ids) {
+		Set<Long> set = new HashSet<Long>();
+		for (long id : ids) set.add(id);
+		return set;
+	}
+
+	private static Set<Long> ids (Set<Tuple2<Long, VertexValue>> friends) {
+		Set<Long> set = new HashSet<Long>();
+		for (Tuple2<Long, VertexValue> friend : friends) set.add(friend.f0);
+		return set;
+	}
+
+}
@@ -0,0 +1,66 @@
+package holoma.ppr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+
+import org.apache.flink.graph.Vertex;
+import org.junit.Before;
+import org.junit.Test;
+
+import holoma.HolomaConstants;
+import holoma.complexDatatypes.VertexValue;
+import holoma.graph.CsrSubgraph;
+
+public class LocalPersonalizedPageRankTest {
+	
+	LocalPersonalizedPageRank ppr = new LocalPersonalizedPageRank();
+
+	@Before
+	public void setUp() throws Exception {
+		// cycle 1 -> 3 -> 8 -> 1 plus a shortcut 1 -> 8
+		long[] vertexIds = {1l, 3l, 8l};
+		String[] ontNames = {"blue", "blue", "green"};
+		int[] sources = {0, 1, 2, 0};
+		int[] targets = {1, 2, 0, 2};
+		int[] types = {1, 1, 0, 0};
+		float[] weights = {0.5f, 0.5f, 1f, 1f};
+		this.ppr.setEnrConnComp(new CsrSubgraph(vertexIds, ontNames, sources, targets, types, weights));
+	}
+
+	@Test
+	public void testStart() {
+		this.ppr.start();
+		Map<Long, List<Vertex<Long, VertexValue>>> prVectors = this.ppr.getMapCalcPageRanks();
+		assertEquals(3, prVectors.size());
+		for (long source : prVectors.keySet()) {
+			// no dangling vertices: the pagerank mass is preserved
+			float sum = 0f;
+			for (Vertex<Long, VertexValue> vertex : prVectors.get(source))
+				sum += vertex.f1.pr;
+			assertEquals(1f, sum, 0.0001f);
+		}
+	}
+	
+	@Test
+	public void testBlockEqualsOneSource() {
+		this.ppr.start();
+		List<Vertex<Long, VertexValue>> block = this.ppr.getMapCalcPageRanks().get(3l);
+		this.ppr.calculateOneSource(1);
+		List<Vertex<Long, VertexValue>> oneSource = this.ppr.getMapCalcPageRanks().get(3l);
+		for (int v=0; v<3; v++)
+			assertEquals(block.get(v).f1.pr, oneSource.get(v).f1.pr, 0.000001f);
+	}
+	
+	@Test
+	public void testIterations() {
+		this.ppr.start();
+		Map<Long, Integer> iterations = this.ppr.getMapIterations();
+		assertEquals(3, iterations.size());
+		for (long source : iterations.keySet())
+			assertTrue(iterations.get(source) >= 1 && iterations.get(source) <= HolomaConstants.MAX_ITER_PPR);
+	}
+
+}
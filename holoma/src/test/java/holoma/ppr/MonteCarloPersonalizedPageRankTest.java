@@ -0,0 +1,65 @@
+package holoma.ppr;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.flink.graph.Vertex;
+import org.junit.Before;
+import org.junit.Test;
+
+import holoma.HolomaConstants;
+import holoma.complexDatatypes.VertexValue;
+import holoma.graph.CsrSubgraph;
+
+public class MonteCarloPersonalizedPageRankTest {
+	
+	MonteCarloPersonalizedPageRank ppr = new MonteCarloPersonalizedPageRank(10000, 0.95f, 2);
+	LocalPersonalizedPageRank exact = new LocalPersonalizedPageRank();
+
+	@Before
+	public void setUp() throws Exception {
+		// 1 -> 3 -> 1 and the sink 8 behind 3
+		long[] vertexIds = {1l, 3l, 8l};
+		String[] ontNames = {"blue", "blue", "green"};
+		int[] sources = {0, 1, 1};
+		int[] targets = {1, 0, 2};
+		int[] types = {1, 1, 0};
+		float[] weights = {1f, 0.1f, 0.9f};
+		CsrSubgraph enrConnComp = new CsrSubgraph(vertexIds, ontNames, sources, targets, types, weights);
+		this.ppr.setEnrConnComp(enrConnComp);
+		this.exact.setEnrConnComp(enrConnComp);
+	}
+
+	@Test
+	public void testConfidenceBound() {
+		this.ppr.start();
+		this.exact.start();
+		float bound = this.ppr.getConfidenceBound() + HolomaConstants.PPR_CONVERGENCE_EPSILON;
+		Map<Long, List<Vertex<Long, VertexValue>>> prVectors = this.ppr.getMapCalcPageRanks();
+		assertEquals(3, prVectors.size());
+		for (long source : prVectors.keySet()) {
+			Map<Long, Float> estimates = new HashMap<Long, Float>();
+			for (Vertex<Long, VertexValue> vertex : prVectors.get(source))
+				estimates.put(vertex.f0, vertex.f1.pr);
+			for (Vertex<Long, VertexValue> vertex : this.exact.getMapCalcPageRanks().get(source)) {
+				Float pr = estimates.get(vertex.f0);
+				assertEquals(vertex.f1.pr, (pr == null) ? 0f : pr, bound);
+			}
+		}
+	}
+	
+	@Test
+	public void testSeeded() {
+		// the estimates do not depend on the scheduling of the threads
+		this.ppr.start();
+		List<Vertex<Long, VertexValue>> estimates = this.ppr.getMapCalcPageRanks().get(3l);
+		List<Vertex<Long, VertexValue>> oneSource = this.ppr.calculateOneSource(1);
+		assertEquals(estimates.size(), oneSource.size());
+		for (int v=0; v<estimates.size(); v++)
+			assertEquals(estimates.get(v).f1.pr, oneSource.get(v).f1.pr, 0f);
+	}
+
+}
@@ -24,31 +24,31 @@ public class PersonalizedPageRankTest {
 	public void setUp() throws Exception {
 		ExecutionEnvironment env = ExecutionEnvironment.getExecutionEnvironment();		
 		
-		List<Vertex<String, VertexValue>> vertexList = new ArrayList<Vertex<String, VertexValue>>();
-		vertexList.add(new Vertex<String, VertexValue>("1", new VertexValue("blue", 0f)));
-		vertexList.add(new Vertex<String, VertexValue>("3", new VertexValue("blue", 0f)));
-		vertexList.add(new Vertex<String, VertexValue>("8", new VertexValue("green", 0f)));
-		vertexList.add(new Vertex<String, VertexValue>("9", new VertexValue("green", 0f)));
-		vertexList.add(new Vertex<String, VertexValue>("10", new VertexValue("orange", 0f)));
-		vertexList.add(new Vertex<String, VertexValue>("11", new VertexValue("orange", 0f)));
-		vertexList.add(new Vertex<String, VertexValue>("12", new VertexValue("orange", 0f)));
-		vertexList.add(new Vertex<String, VertexValue>("13", new VertexValue("orange", 0f)));
+		List<Vertex<Long, VertexValue>> vertexList = new ArrayList<Vertex<Long, VertexValue>>();
+		vertexList.add(new Vertex<Long, VertexValue>(1l, new VertexValue("blue", 0f)));
+		vertexList.add(new Vertex<Long, VertexValue>(3l, new VertexValue("blue", 0f)));
+		vertexList.add(new Vertex<Long, VertexValue>(8l, new VertexValue("green", 0f)));
+		vertexList.add(new Vertex<Long, VertexValue>(9l, new VertexValue("green", 0f)));
+		vertexList.add(new Vertex<Long, VertexValue>(10l, new VertexValue("orange", 0f)));
+		vertexList.add(new Vertex<Long, VertexValue>(11l, new VertexValue("orange", 0f)));
+		vertexList.add(new Vertex<Long, VertexValue>(12l, new VertexValue("orange", 0f)));
+		vertexList.add(new Vertex<Long, VertexValue>(13l, new VertexValue("orange", 0f)));
 		
-		List<Edge<String, EdgeValue>> edgeList = new ArrayList<Edge<String, EdgeValue>>();
-		edgeList.add(new Edge<String, EdgeValue>("1","10", new EdgeValue(-1,0.5f)));
-		edgeList.add(new Edge<String, EdgeValue>("3","1",new EdgeValue(-1,0.5f)));
-		edgeList.add(new Edge<String, EdgeValue>("3","9",new EdgeValue(-1,1f)));
-		edgeList.add(new Edge<String, EdgeValue>("9","3",new EdgeValue(-1,1f)));
-		edgeList.add(new Edge<String, EdgeValue>("9","8",new EdgeValue(-1,0.5f)));
-		edgeList.add(new Edge<String, EdgeValue>("9","11",new EdgeValue(-1,1f)));
-		edgeList.add(new Edge<String, EdgeValue>("9","12",new EdgeValue(-1,1f)));
-		edgeList.add(new Edge<String, EdgeValue>("11","9",new EdgeValue(-1,1f)));
-		edgeList.add(new Edge<String, EdgeValue>("11","10",new EdgeValue(-1,0.5f)));
-		edgeList.add(new Edge<String, EdgeValue>("12","9",new EdgeValue(-1,1f)));
-		edgeList.add(new Edge<String, EdgeValue>("12","10",new EdgeValue(-1,0.5f)));
-		edgeList.add(new Edge<String, EdgeValue>("13","12",new EdgeValue(-1,0.5f)));
+		List<Edge<Long, EdgeValue>> edgeList = new ArrayList<Edge<Long, EdgeValue>>();
+		edgeList.add(new Edge<Long, EdgeValue>(1l,10l, new EdgeValue(-1,0.5f)));
+		edgeList.add(new Edge<Long, EdgeValue>(3l,1l,new EdgeValue(-1,0.5f)));
+		edgeList.add(new Edge<Long, EdgeValue>(3l,9l,new EdgeValue(-1,1f)));
+		edgeList.add(new Edge<Long, EdgeValue>(9l,3l,new EdgeValue(-1,1f)));
+		edgeList.add(new Edge<Long, EdgeValue>(9l,8l,new EdgeValue(-1,0.5f)));
+		edgeList.add(new Edge<Long, EdgeValue>(9l,11l,new EdgeValue(-1,1f)));
+		edgeList.add(new Edge<Long, EdgeValue>(9l,12l,new EdgeValue(-1,1f)));
+		edgeList.add(new Edge<Long, EdgeValue>(11l,9l,new EdgeValue(-1,1f)));
+		edgeList.add(new Edge<Long, EdgeValue>(11l,10l,new EdgeValue(-1,0.5f)));
+		edgeList.add(new Edge<Long, EdgeValue>(12l,9l,new EdgeValue(-1,1f)));
+		edgeList.add(new Edge<Long, EdgeValue>(12l,10l,new EdgeValue(-1,0.5f)));
+		edgeList.add(new Edge<Long, EdgeValue>(13l,12l,new EdgeValue(-1,0.5f)));
 		
-		Graph<String, VertexValue, EdgeValue> component = Graph.fromCollection(vertexList, edgeList, env);
+		Graph<Long, VertexValue, EdgeValue> component = Graph.fromCollection(vertexList, edgeList, env);
 		
 		this.ppr.setEnrConnComp(component);
 	}
@@ -60,14 +60,14 @@ public class PersonalizedPageRankTest {
 
 	@Test
 	public void testCalculateOneSource() {
-		Vertex<String, VertexValue> source = new Vertex<String, VertexValue>("9", new VertexValue("green", 0f));
+		Vertex<Long, VertexValue> source = new Vertex<Long, VertexValue>(9l, new VertexValue("green", 0f));
 		
 		try {
 			this.ppr.calculateOneSource(source);
-			Map<String, List<Vertex<String, VertexValue>>> map = this.ppr.getMapCalcPageRanks();
-			for (String src : map.keySet()) {
+			Map<Long, List<Vertex<Long, VertexValue>>> map = this.ppr.getMapCalcPageRanks();
+			for (Long src : map.keySet()) {
 				System.out.println("source: "+src);
-				for (Vertex<String, VertexValue> trg : map.get(src)) {
+				for (Vertex<Long, VertexValue> trg : map.get(src)) {
 					System.out.println("  target: "+trg.f0+": "+trg.f1.toString());
 				}
 			}
@@ -0,0 +1,58 @@
+package holoma.ppr;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.flink.graph.Vertex;
+import org.junit.Before;
+import org.junit.Test;
+
+import holoma.HolomaConstants;
+import holoma.complexDatatypes.VertexValue;
+import holoma.graph.CsrSubgraph;
+
+public class PushPersonalizedPageRankTest {
+	
+	PushPersonalizedPageRank ppr = new PushPersonalizedPageRank(HolomaConstants.PUSH_RESIDUAL_THRESHOLD);
+	LocalPersonalizedPageRank exact = new LocalPersonalizedPageRank();
+
+	@Before
+	public void setUp() throws Exception {
+		// 1 -> 3 -> 1 and the sink 8 behind 3
+		long[] vertexIds = {1l, 3l, 8l};
+		String[] ontNames = {"blue", "blue", "green"};
+		int[] sources = {0, 1, 1};
+		int[] targets = {1, 0, 2};
+		int[] types = {1, 1, 0};
+		float[] weights = {1f, 0.1f, 0.9f};
+		CsrSubgraph enrConnComp = new CsrSubgraph(vertexIds, ontNames, sources, targets, types, weights);
+		this.ppr.setEnrConnComp(enrConnComp);
+		this.exact.setEnrConnComp(enrConnComp);
+	}
+
+	@Test
+	public void testSink() {
+		this.ppr.start();
+		this.exact.start();
+		// each remaining residual is below the threshold per outgoing edge
+		float bound = 3*HolomaConstants.PUSH_RESIDUAL_THRESHOLD + HolomaConstants.PPR_CONVERGENCE_EPSILON;
+		Map<Long, List<Vertex<Long, VertexValue>>> prVectors = this.ppr.getMapCalcPageRanks();
+		assertEquals(3, prVectors.size());
+		for (long source : prVectors.keySet()) {
+			Map<Long, Float> approx = new HashMap<Long, Float>();
+			for (Vertex<Long, VertexValue> vertex : prVectors.get(source))
+				approx.put(vertex.f0, vertex.f1.pr);
+			for (Vertex<Long, VertexValue> vertex : this.exact.getMapCalcPageRanks().get(source)) {
+				Float pr = approx.get(vertex.f0);
+				assertEquals(vertex.f1.pr, (pr == null) ? 0f : pr, bound);
+			}
+		}
+		// the sink is reached by the sources 1 and 3
+		assertEquals(3, prVectors.get(1l).size());
+		assertEquals(3, prVectors.get(3l).size());
+	}
+
+}
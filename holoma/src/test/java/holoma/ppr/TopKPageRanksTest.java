@@ -0,0 +1,52 @@
+package holoma.ppr;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class TopKPageRanksTest {
+
+	long[] ids = {1l, 3l, 8l, 9l, 10l};
+	String[] onts = {"blue", "blue", "green", "green", "orange"};
+	float[] prs = {0.1f, 0.4f, 0.2f, 0.4f, 0.3f};
+
+	@Test
+	public void testTopK() {
+		TopKPageRanks store = new TopKPageRanks(3, false);
+		store.add(1l, this.ids, this.onts, this.prs, 5);
+		assertEquals(1, store.getNumberOfSources());
+		assertEquals(3, store.getOffset(1));
+		// descending pagerank, ties by ascending ID
+		assertEquals(3l, store.getTargetId(0));
+		assertEquals(9l, store.getTargetId(1));
+		assertEquals(10l, store.getTargetId(2));
+		assertEquals("green", store.getOntName(1));
+		// the mean refers to the complete vector
+		assertEquals(0.28f, store.getMean(0), 0.000001f);
+	}
+
+	@Test
+	public void testSparseMean() {
+		TopKPageRanks store = new TopKPageRanks(TopKPageRanks.ALL, false);
+		// the missing vertices of the component have pagerank 0
+		store.add(1l, this.ids, this.onts, this.prs, 5, 10);
+		assertEquals(0.14f, store.getMean(0), 0.000001f);
+		assertEquals(5, store.getOffset(1));
+	}
+
+	@Test
+	public void testTopKPerOntology() {
+		TopKPageRanks store = new TopKPageRanks(1, true);
+		store.add(1l, this.ids, this.onts, this.prs, 5);
+		store.add(3l, this.ids, this.onts, this.prs, 2);
+		assertEquals(2, store.getNumberOfSources());
+		assertEquals(1, store.indexOf(3l));
+		assertEquals(3, store.getOffset(1));
+		assertEquals(3l, store.getTargetId(0));
+		assertEquals(9l, store.getTargetId(1));
+		assertEquals(10l, store.getTargetId(2));
+		assertEquals(4, store.getOffset(2));
+		assertEquals(3l, store.getTargetId(3));
+	}
+
+}
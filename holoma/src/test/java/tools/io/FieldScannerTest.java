@@ -0,0 +1,86 @@
+package tools.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+
+import org.junit.Test;
+
+public class FieldScannerTest {
+
+	@Test
+	public void testFields() throws IOException {
+		File file = write("1\t-20\t0.25\thttp://a\r\n\n-9223372036854775808\t7\t1e-3\tb");
+		FieldScanner scanner = new FieldScanner(file, '\t');
+		assertTrue(scanner.nextLine());
+		assertEquals(4, scanner.getNumberOfFields());
+		assertEquals(1l, scanner.getLong(0));
+		assertEquals(-20, scanner.getInt(1));
+		assertEquals(0.25f, scanner.getFloat(2), 0f);
+		assertEquals("http://a", scanner.getString(3));
+		// empty line
+		assertTrue(scanner.nextLine());
+		assertEquals(1, scanner.getNumberOfFields());
+		assertEquals("", scanner.getString(0));
+		// last line without line feed
+		assertTrue(scanner.nextLine());
+		assertEquals(Long.MIN_VALUE, scanner.getLong(0));
+		assertEquals(0.001d, scanner.getDouble(2), 0d);
+		assertEquals("b", scanner.getString(3));
+		assertEquals(3l, scanner.getLineNumber());
+		assertFalse(scanner.nextLine());
+		scanner.close();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidNumber() throws IOException {
+		FieldScanner scanner = new FieldScanner(write("12a"), '\t');
+		scanner.nextLine();
+		try {
+			scanner.getLong(0);
+		} finally {
+			scanner.close();
+		}
+	}
+
+	@Test
+	public void testSmallWindow() throws IOException {
+		// lines are longer than the window and cross its borders
+		StringBuilder content = new StringBuilder();
+		for (int i=0; i<500; i++)
+			content.append(i).append('\t').append(i/10f).append('\t').append("vertex").append(i).append('\n');
+		FieldScanner scanner = new FieldScanner(write(content.toString()), '\t', 8);
+		for (int i=0; i<500; i++) {
+			assertTrue(scanner.nextLine());
+			assertEquals(i, scanner.getInt(0));
+			assertEquals(i/10f, scanner.getFloat(1), 0f);
+			assertEquals("vertex"+i, scanner.getString(2));
+		}
+		assertFalse(scanner.nextLine());
+		scanner.close();
+	}
+
+	@Test
+	public void testIterator() throws IOException {
+		InputFromFile in = new InputFromFile.Builder(write("a\tb\nc\td\n").getPath()).build();
+		Iterator<String[]> lines = in.iterateSplitByColumn();
+		assertEquals("b", lines.next()[1]);
+		assertEquals("c", lines.next()[0]);
+		assertFalse(lines.hasNext());
+	}
+
+	private static File write (String content) throws IOException {
+		File file = File.createTempFile("fieldScanner", ".csv");
+		file.deleteOnExit();
+		FileOutputStream out = new FileOutputStream(file);
+		out.write(content.getBytes());
+		out.close();
+		return file;
+	}
+
+}
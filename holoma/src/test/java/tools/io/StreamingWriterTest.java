@@ -0,0 +1,73 @@
+package tools.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Test;
+
+public class StreamingWriterTest {
+
+	@Test
+	public void testGzip() throws IOException {
+		File file = File.createTempFile("streamingWriter", "");
+		file.deleteOnExit();
+		StreamingWriter out = new StreamingWriter(file.getPath(), StreamingWriter.GZIP, 64);
+		assertEquals(file.getPath()+".gz", out.getPath());
+		for (int i=0; i<1000; i++)
+			out.writeLine("line "+i);
+		out.close();
+		new File(out.getPath()).deleteOnExit();
+
+		BufferedReader in = new BufferedReader(new InputStreamReader(
+				new GZIPInputStream(new FileInputStream(out.getPath()))));
+		for (int i=0; i<1000; i++)
+			assertEquals("line "+i, in.readLine());
+		assertNull(in.readLine());
+		in.close();
+	}
+
+	@Test
+	public void testBinary() throws IOException {
+		File file = File.createTempFile("streamingWriter", "");
+		file.deleteOnExit();
+		StreamingWriter out = new StreamingWriter(file.getPath(), StreamingWriter.BINARY, 64);
+		out.writeLong(42l);
+		out.writeInt(2);
+		out.writeFloat(0.25f);
+		out.writeString("http://example.org/ä");
+		out.close();
+		new File(out.getPath()).deleteOnExit();
+
+		DataInputStream in = new DataInputStream(new FileInputStream(out.getPath()));
+		assertEquals(42l, in.readLong());
+		assertEquals(2, in.readInt());
+		assertEquals(0.25f, in.readFloat(), 0f);
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		assertEquals("http://example.org/ä", new String(bytes, "UTF-8"));
+		assertEquals(-1, in.read());
+		in.close();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testNoLinesInBinary() throws IOException {
+		File file = File.createTempFile("streamingWriter", "");
+		file.deleteOnExit();
+		StreamingWriter out = new StreamingWriter(file.getPath(), StreamingWriter.BINARY, 64);
+		new File(out.getPath()).deleteOnExit();
+		try {
+			out.writeLine("text");
+		} finally {
+			out.close();
+		}
+	}
+
+}